@@ -0,0 +1,230 @@
+package fr.plugin.uniquecraft.benchmark;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.MockPlugin;
+import be.seeseemelk.mockbukkit.ServerMock;
+import be.seeseemelk.mockbukkit.entity.PlayerMock;
+import fr.plugin.uniquecraft.ClaimRecord;
+import fr.plugin.uniquecraft.ClaimRegistry;
+import fr.plugin.uniquecraft.ClaimStore;
+import fr.plugin.uniquecraft.CraftCompiler;
+import fr.plugin.uniquecraft.CraftDefinition;
+import fr.plugin.uniquecraft.CraftFeedback;
+import fr.plugin.uniquecraft.CraftHistory;
+import fr.plugin.uniquecraft.CraftListener;
+import fr.plugin.uniquecraft.CraftLoader;
+import fr.plugin.uniquecraft.CraftMetrics;
+import fr.plugin.uniquecraft.ItemLocator;
+import fr.plugin.uniquecraft.ItemLocatorListener;
+import fr.plugin.uniquecraft.Messages;
+import fr.plugin.uniquecraft.PluginScheduler;
+import fr.plugin.uniquecraft.RecipeIndex;
+import fr.plugin.uniquecraft.Trace;
+import fr.plugin.uniquecraft.UniqueCraftsPlugin;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.ShapedRecipe;
+import org.bukkit.plugin.PluginManager;
+
+// Serveur simulé (MockBukkit) et données partagées par les benchmarks.
+public final class BenchmarkFixture implements AutoCloseable {
+
+  private static final Material[] INGREDIENTS = {
+      Material.DIAMOND, Material.GOLD_INGOT, Material.IRON_INGOT, Material.EMERALD,
+      Material.REDSTONE_BLOCK, Material.LAPIS_BLOCK, Material.QUARTZ, Material.AMETHYST_SHARD,
+      Material.NETHERITE_INGOT, Material.BLAZE_ROD, Material.ENDER_PEARL, Material.GHAST_TEAR };
+
+  private final ServerMock server;
+  private final MockPlugin plugin;
+  private final CraftCompiler compiler;
+  // Listeners de production enregistrés par registerListeners, arrêtés par close
+  private CraftFeedback feedback;
+  private CraftHistory history;
+  private Supplier<ItemLocatorListener> locatorFactory;
+  private ItemLocatorListener locatorListener;
+
+  private BenchmarkFixture() {
+    this.server = MockBukkit.mock();
+    // Même nom que le plugin réel: les clés de recettes partagent le namespace "uniquecrafts"
+    this.plugin = MockBukkit.createMockPlugin("UniqueCrafts");
+    // Les logs ne doivent pas polluer la sortie JMH
+    this.plugin.getLogger().setLevel(Level.WARNING);
+    this.compiler = new CraftCompiler(plugin);
+  }
+
+  public static BenchmarkFixture start() {
+    return new BenchmarkFixture();
+  }
+
+  public ServerMock server() {
+    return server;
+  }
+
+  public MockPlugin plugin() {
+    return plugin;
+  }
+
+  public CraftCompiler compiler() {
+    return compiler;
+  }
+
+  // Traces désactivées, comme en production avec debug: false
+  public Trace trace() {
+    return new Trace(plugin.getLogger(), 0);
+  }
+
+  public PlayerMock addPlayer() {
+    return server.addPlayer();
+  }
+
+  // crafts.yml livré avec le plugin
+  public ConfigurationSection bundledCrafts() {
+    try (InputStream stream = UniqueCraftsPlugin.class.getResourceAsStream("/crafts.yml");
+        Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+      return YamlConfiguration.loadConfiguration(reader).getConfigurationSection("crafts");
+    } catch (Exception e) {
+      throw new IllegalStateException("crafts.yml introuvable dans l'artefact du plugin", e);
+    }
+  }
+
+  // Catalogue synthétique de "count" crafts, comparable à Ultio (nom, lore, enchantements, attributs)
+  public static ConfigurationSection syntheticCrafts(int count) {
+    YamlConfiguration yaml = new YamlConfiguration();
+    for (int i = 0; i < count; i++) {
+      String base = "crafts.craft_" + i;
+      yaml.set(base + ".shape", List.of("ABA", "BCB", "ABA"));
+      yaml.set(base + ".ingredients.A", INGREDIENTS[i % INGREDIENTS.length].name());
+      yaml.set(base + ".ingredients.B", INGREDIENTS[(i / INGREDIENTS.length) % INGREDIENTS.length].name());
+      yaml.set(base + ".ingredients.C", Material.NETHER_STAR.name());
+      yaml.set(base + ".result.material", Material.NETHERITE_SWORD.name());
+      yaml.set(base + ".result.name", "§cArme " + i);
+      yaml.set(base + ".result.lore", List.of("§7Une arme unique", "§7numéro " + i));
+      yaml.set(base + ".result.enchantments", Map.of("sharpness", 5, "unbreaking", 3));
+      yaml.set(base + ".result.attributes", Map.of("attack_damage", 8, "attack_speed", -2.4));
+      yaml.set(base + ".result.unbreakable", true);
+      yaml.set(base + ".message", "§6§lArme " + i + " forgée par %player% !");
+    }
+    return yaml.getConfigurationSection("crafts");
+  }
+
+  public List<CraftDefinition> compile(ConfigurationSection crafts) {
+    return CraftLoader.compileAll(crafts, compiler).definitions();
+  }
+
+  public RecipeIndex index(List<CraftDefinition> definitions) {
+    return new RecipeIndex(plugin.getName().toLowerCase(Locale.ROOT), definitions);
+  }
+
+  // Recette vanilla typique (namespace minecraft)
+  public static ShapedRecipe vanillaRecipe() {
+    ShapedRecipe recipe = new ShapedRecipe(NamespacedKey.minecraft("diamond_sword"),
+        new ItemStack(Material.DIAMOND_SWORD));
+    recipe.shape(" D ", " D ", " S ");
+    recipe.setIngredient('D', Material.DIAMOND);
+    recipe.setIngredient('S', Material.STICK);
+    return recipe;
+  }
+
+  // Même câblage que UniqueCraftsPlugin.onEnable (sans limites ni réseau): CraftListener avec
+  // regroupement des refus, numérotation et historique des exemplaires (dossier temporaire).
+  // Refus dans le chat plutôt qu'en barre d'action, pour être comptés par PlayerMock.nextMessage.
+  public void registerListeners(Supplier<RecipeIndex> recipes, ClaimRegistry claims, ClaimStore store,
+      CraftMetrics metrics) throws IOException {
+    PluginScheduler scheduler = new PluginScheduler(plugin);
+    Path dataFolder = Files.createTempDirectory("uniquecrafts-listeners");
+    feedback = new CraftFeedback(Messages::defaults, CraftFeedback.Mode.CHAT, 40);
+    history = new CraftHistory(dataFolder.resolve("history"), 8192, 5000, plugin.getLogger(), metrics, trace());
+    history.load();
+    history.start();
+    CraftListener listener = new CraftListener(trace(), recipes, claims, store, scheduler, metrics,
+        Messages::defaults, feedback, null, null);
+    PluginManager plugins = server.getPluginManager();
+    plugins.registerEvents(listener, plugin);
+    plugins.registerEvents(feedback, plugin);
+    locatorFactory = () -> new ItemLocatorListener(new ItemLocator(dataFolder.resolve("locations.yml"),
+        plugin.getLogger(), metrics, trace()), recipes, new NamespacedKey(plugin, CraftCompiler.MARKER_KEY),
+        new NamespacedKey(plugin, ItemLocatorListener.SERIAL_KEY), scheduler, history);
+    resetLocator();
+    feedback.start(scheduler);
+  }
+
+  // Localisateur vide: chaque craft réussi y ajoute un numéro de série, un benchmark qui craft en
+  // boucle le remplace à chaque itération pour que sa taille ne dépende pas de la durée de mesure
+  public void resetLocator() {
+    if (locatorListener != null) {
+      HandlerList.unregisterAll(locatorListener);
+    }
+    locatorListener = locatorFactory.get();
+    server.getPluginManager().registerEvents(locatorListener, plugin);
+  }
+
+  // Distribue l'événement aux listeners enregistrés, dans l'ordre des priorités
+  public <T extends Event> T call(T event) {
+    server.getPluginManager().callEvent(event);
+    // PluginManagerMock garde chaque événement lancé pour ses assertions
+    server.getPluginManager().clearEvents();
+    return event;
+  }
+
+  // Avance le serveur simulé d'un tick (tâches planifiées, dont la fenêtre des refus)
+  public void tick() {
+    server.getScheduler().performOneTick();
+  }
+
+  // Vide la file de messages du joueur simulé pour éviter qu'elle ne grossisse pendant la mesure
+  public static void drainMessages(PlayerMock player) {
+    while (player.nextMessage() != null) {
+      // rien
+    }
+  }
+
+  @Override
+  public void close() {
+    if (feedback != null) {
+      feedback.stop();
+    }
+    if (history != null) {
+      history.close();
+    }
+    MockBukkit.unmock();
+  }
+
+  // Stockage sans I/O, pour isoler le coût des listeners
+  public static final class NoopClaimStore implements ClaimStore {
+
+    @Override
+    public Map<String, ClaimRecord> load() {
+      return Map.of();
+    }
+
+    @Override
+    public void claim(String craftId, UUID player) {
+    }
+
+    @Override
+    public void reset(String craftId) {
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
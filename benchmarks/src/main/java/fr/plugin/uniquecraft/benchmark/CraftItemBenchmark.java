@@ -0,0 +1,82 @@
+package fr.plugin.uniquecraft.benchmark;
+
+import be.seeseemelk.mockbukkit.entity.PlayerMock;
+import fr.plugin.uniquecraft.ClaimJournal;
+import fr.plugin.uniquecraft.ClaimRegistry;
+import fr.plugin.uniquecraft.CraftDefinition;
+import fr.plugin.uniquecraft.CraftMetrics;
+import fr.plugin.uniquecraft.RecipeIndex;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// CraftItemEvent réussi distribué aux listeners enregistrés: décision, persistance (journal réel dans un
+// dossier temporaire), numéro de série et historique. Chaque invocation remet le craft à disposition
+// pour pouvoir le refaire.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CraftItemBenchmark {
+
+  private BenchmarkFixture fixture;
+  private File dataFolder;
+  private ClaimJournal journal;
+  private ClaimRegistry claims;
+  private String craftId;
+  private PlayerMock player;
+  private CraftingGrid grid;
+  private CraftingGrid.Placement placement;
+
+  @Setup
+  public void setup() throws IOException {
+    fixture = BenchmarkFixture.start();
+    RecipeIndex index = fixture.index(fixture.compile(fixture.bundledCrafts()));
+    dataFolder = Files.createTempDirectory("uniquecrafts-bench").toFile();
+    CraftMetrics metrics = new CraftMetrics();
+    journal = new ClaimJournal(dataFolder, fixture.plugin().getLogger(), metrics, fixture.trace());
+    journal.load();
+    claims = new ClaimRegistry(TimeUnit.SECONDS.toNanos(10));
+    fixture.registerListeners(() -> index, claims, journal, metrics);
+    CraftDefinition definition = index.get("Ultio");
+    craftId = definition.id();
+    player = fixture.addPlayer();
+    grid = new CraftingGrid(player);
+    placement = CraftingGrid.placement(definition.createRecipe());
+  }
+
+  @Setup(Level.Iteration)
+  public void resetLocator() {
+    fixture.resetLocator();
+  }
+
+  @TearDown
+  public void tearDown() {
+    journal.close();
+    fixture.close();
+  }
+
+  @Benchmark
+  public boolean craftAndPersist() {
+    boolean crafted = !fixture.call(grid.craft(placement, false)).isCancelled();
+    claims.reset(craftId);
+    journal.reset(craftId);
+    BenchmarkFixture.drainMessages(player);
+    return crafted;
+  }
+}
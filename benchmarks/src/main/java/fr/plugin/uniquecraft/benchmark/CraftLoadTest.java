@@ -0,0 +1,376 @@
+package fr.plugin.uniquecraft.benchmark;
+
+import be.seeseemelk.mockbukkit.entity.PlayerMock;
+import fr.plugin.uniquecraft.ClaimJournal;
+import fr.plugin.uniquecraft.ClaimRegistry;
+import fr.plugin.uniquecraft.ClaimStore;
+import fr.plugin.uniquecraft.CraftDefinition;
+import fr.plugin.uniquecraft.CraftMetrics;
+import fr.plugin.uniquecraft.RecipeIndex;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Test de charge sans serveur réel: N joueurs simulés (MockBukkit) produisent à chaque tick
+// des flux d'événements de craft, distribués aux listeners enregistrés comme en production,
+// et l'on mesure le temps passé dans les listeners par tick.
+//
+//   mvn -o compile exec:java -Dexec.args="--players 300 --ticks 1200"
+//
+// Le code de sortie est 1 si --max-p99-us est dépassé ou si une course produit plus d'un gagnant.
+public final class CraftLoadTest {
+
+  private static final int TICKS_PER_SECOND = 20;
+
+  // Types d'événements générés
+  private static final int VANILLA_PREPARE = 0;
+  private static final int UNIQUE_PREPARE = 1;
+  private static final int UNIQUE_CRAFT = 2;
+  private static final int SHIFT_CRAFT = 3;
+  private static final int RACE_CRAFT = 4;
+
+  private final Options options;
+  private final BenchmarkFixture fixture;
+  private final ClaimRegistry claims;
+  private final ClaimStore store;
+  private final RecipeIndex index;
+  private final List<CraftDefinition> definitions;
+  private final List<CraftingGrid.Placement> uniqueRecipes = new ArrayList<>();
+  private final CraftingGrid.Placement vanilla;
+  private final List<PlayerMock> players = new ArrayList<>();
+  // Établi de chaque joueur
+  private final List<CraftingGrid> grids = new ArrayList<>();
+  private final SplittableRandom random;
+  private final com.sun.management.ThreadMXBean threads =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  // Événements du tick courant, générés avant la mesure (tableaux réutilisés)
+  private int[] eventKind = new int[1024];
+  private int[] eventPlayer = new int[1024];
+  private int[] eventCraft = new int[1024];
+  private int eventCount;
+  private int raceCraft = -1;
+  private long tickAllocated;
+
+  private long events;
+  private long chatPackets;
+  private long maxChatPerTick;
+  private long crafted;
+  private int races;
+  private int raceViolations;
+
+  private CraftLoadTest(Options options) throws IOException {
+    this.options = options;
+    this.random = new SplittableRandom(options.seed);
+    this.fixture = BenchmarkFixture.start();
+    this.vanilla = CraftingGrid.placement(BenchmarkFixture.vanillaRecipe());
+    this.definitions = fixture.compile(BenchmarkFixture.syntheticCrafts(options.crafts));
+    this.index = fixture.index(definitions);
+    for (CraftDefinition definition : definitions) {
+      uniqueRecipes.add(CraftingGrid.placement(definition.createRecipe()));
+    }
+    this.claims = new ClaimRegistry(TimeUnit.SECONDS.toNanos(10));
+    CraftMetrics metrics = new CraftMetrics();
+    if (options.journal) {
+      Path dataFolder = Files.createTempDirectory("uniquecrafts-loadtest");
+      ClaimJournal journal = new ClaimJournal(dataFolder.toFile(), fixture.plugin().getLogger(), metrics,
+          fixture.trace());
+      journal.load();
+      this.store = journal;
+    } else {
+      this.store = new BenchmarkFixture.NoopClaimStore();
+    }
+    fixture.registerListeners(() -> index, claims, store, metrics);
+    for (int i = 0; i < options.players; i++) {
+      PlayerMock player = fixture.addPlayer();
+      players.add(player);
+      grids.add(new CraftingGrid(player));
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options options = Options.parse(args);
+    int exitCode;
+    CraftLoadTest test = new CraftLoadTest(options);
+    try {
+      exitCode = test.run();
+    } finally {
+      test.store.close();
+      test.fixture.close();
+    }
+    System.exit(exitCode);
+  }
+
+  private int run() throws IOException {
+    for (int tick = 0; tick < options.warmup; tick++) {
+      tick(tick);
+    }
+    events = chatPackets = maxChatPerTick = crafted = 0;
+    races = raceViolations = 0;
+
+    long[] tickNanos = new long[options.ticks];
+    long allocated = 0;
+    for (int tick = 0; tick < options.ticks; tick++) {
+      tickNanos[tick] = tick(tick);
+      allocated += tickAllocated;
+    }
+
+    Report report = new Report(options, tickNanos, allocated, events, chatPackets, maxChatPerTick,
+        crafted, races, raceViolations);
+    System.out.println(report.text());
+    Path output = Path.of(options.report);
+    if (output.getParent() != null) {
+      Files.createDirectories(output.getParent());
+    }
+    Files.writeString(output, report.json(), StandardCharsets.UTF_8);
+    System.out.println("Rapport JSON: " + output.toAbsolutePath());
+
+    if (raceViolations > 0) {
+      System.out.println("ÉCHEC: " + raceViolations + " course(s) avec plusieurs gagnants");
+      return 1;
+    }
+    if (options.maxP99Micros > 0 && report.p99Nanos() > TimeUnit.MICROSECONDS.toNanos(options.maxP99Micros)) {
+      System.out.println("ÉCHEC: p99 au-dessus du budget de " + options.maxP99Micros + " µs");
+      return 1;
+    }
+    return 0;
+  }
+
+  // Un tick simulé: génération (non mesurée), dispatch (mesuré), puis collecte des messages
+  private long tick(int tick) {
+    generate(tick);
+
+    int raceWinners = 0;
+    long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < eventCount; i++) {
+      CraftingGrid grid = grids.get(eventPlayer[i]);
+      switch (eventKind[i]) {
+        case VANILLA_PREPARE -> prepare(vanilla, grid);
+        case UNIQUE_PREPARE -> prepare(uniqueRecipes.get(eventCraft[i]), grid);
+        case UNIQUE_CRAFT, RACE_CRAFT -> {
+          if (craft(uniqueRecipes.get(eventCraft[i]), grid, false)) {
+            crafted++;
+            if (eventCraft[i] == raceCraft) {
+              raceWinners++;
+            }
+          }
+        }
+        case SHIFT_CRAFT -> craft(uniqueRecipes.get(eventCraft[i]), grid, true);
+        default -> throw new IllegalStateException("Événement inconnu: " + eventKind[i]);
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    tickAllocated = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+
+    // Tâches planifiées du tick (fenêtre des refus regroupés), hors mesure
+    fixture.tick();
+    events += eventCount;
+    if (raceWinners > 1) {
+      raceViolations++;
+    }
+    long chat = 0;
+    for (PlayerMock player : players) {
+      while (player.nextMessage() != null) {
+        chat++;
+      }
+    }
+    chatPackets += chat;
+    maxChatPerTick = Math.max(maxChatPerTick, chat);
+
+    // Les crafts réalisés redeviennent disponibles régulièrement pour garder un mélange réaliste
+    if (tick % options.resetEvery == options.resetEvery - 1) {
+      for (String craftId : claims.claimedIds()) {
+        claims.reset(craftId);
+        store.reset(craftId);
+      }
+    }
+    return elapsed;
+  }
+
+  private void prepare(CraftingGrid.Placement placement, CraftingGrid grid) {
+    fixture.call(grid.prepare(placement));
+  }
+
+  // Retourne true si le craft n'a pas été annulé
+  private boolean craft(CraftingGrid.Placement placement, CraftingGrid grid, boolean shiftClick) {
+    return !fixture.call(grid.craft(placement, shiftClick)).isCancelled();
+  }
+
+  // Profils: 60% de joueurs manipulent des grilles vanilla, 30% visent des crafts uniques,
+  // 10% font des rafales de shift-clics. Une course oppose régulièrement plusieurs joueurs.
+  private void generate(int tick) {
+    eventCount = 0;
+    raceCraft = -1;
+    int count = players.size();
+    for (int p = 0; p < count; p++) {
+      int profile = p % 10;
+      if (profile < 6) {
+        // Chaque déplacement d'objet dans la grille relance PrepareItemCraftEvent
+        int moves = random.nextInt(4);
+        for (int m = 0; m < moves; m++) {
+          add(VANILLA_PREPARE, p, 0);
+        }
+      } else if (profile < 9) {
+        int craft = random.nextInt(definitions.size());
+        if (random.nextInt(2) == 0) {
+          add(UNIQUE_PREPARE, p, craft);
+        }
+        if (random.nextInt(20) == 0) {
+          add(UNIQUE_PREPARE, p, craft);
+          add(UNIQUE_CRAFT, p, craft);
+        }
+      } else if (random.nextInt(50) == 0) {
+        int craft = random.nextInt(definitions.size());
+        add(UNIQUE_PREPARE, p, craft);
+        for (int burst = 0; burst < 8; burst++) {
+          add(SHIFT_CRAFT, p, craft);
+        }
+      }
+    }
+
+    if (tick % options.raceEvery == 0) {
+      int craft = random.nextInt(definitions.size());
+      String craftId = definitions.get(craft).id();
+      raceCraft = craft;
+      // Course sur un craft libre: on efface l'éventuel craft ou réservation précédent
+      claims.reset(craftId);
+      ClaimRegistry.ClaimState state = claims.state(craftId);
+      if (state != null) {
+        claims.release(craftId, state.holder());
+      }
+      races++;
+      for (int r = 0; r < options.raceSize; r++) {
+        int p = random.nextInt(count);
+        add(UNIQUE_PREPARE, p, craft);
+        add(RACE_CRAFT, p, craft);
+      }
+    }
+  }
+
+  private void add(int kind, int player, int craft) {
+    if (eventCount == eventKind.length) {
+      int size = eventCount * 2;
+      eventKind = Arrays.copyOf(eventKind, size);
+      eventPlayer = Arrays.copyOf(eventPlayer, size);
+      eventCraft = Arrays.copyOf(eventCraft, size);
+    }
+    eventKind[eventCount] = kind;
+    eventPlayer[eventCount] = player;
+    eventCraft[eventCount] = craft;
+    eventCount++;
+  }
+
+  private record Options(int players, int ticks, int warmup, int crafts, long seed, int raceEvery,
+      int raceSize, int resetEvery, boolean journal, long maxP99Micros, String report) {
+
+    static Options parse(String[] args) {
+      int players = 300;
+      int ticks = 1200;
+      int warmup = 400;
+      int crafts = 50;
+      long seed = 42;
+      int raceEvery = 100;
+      int raceSize = 10;
+      int resetEvery = 200;
+      boolean journal = true;
+      long maxP99Micros = 0;
+      String report = "target/loadtest.json";
+      for (int i = 0; i < args.length; i++) {
+        String value = i + 1 < args.length ? args[i + 1] : null;
+        switch (args[i]) {
+          case "--players" -> players = Integer.parseInt(value);
+          case "--ticks" -> ticks = Integer.parseInt(value);
+          case "--warmup" -> warmup = Integer.parseInt(value);
+          case "--crafts" -> crafts = Integer.parseInt(value);
+          case "--seed" -> seed = Long.parseLong(value);
+          case "--race-every" -> raceEvery = Integer.parseInt(value);
+          case "--race-size" -> raceSize = Integer.parseInt(value);
+          case "--reset-every" -> resetEvery = Integer.parseInt(value);
+          case "--store" -> journal = !"noop".equals(value);
+          case "--max-p99-us" -> maxP99Micros = Long.parseLong(value);
+          case "--report" -> report = value;
+          default -> throw new IllegalArgumentException("Option inconnue: " + args[i]);
+        }
+        i++;
+      }
+      return new Options(players, ticks, warmup, crafts, seed, Math.max(1, raceEvery), raceSize,
+          Math.max(1, resetEvery), journal, maxP99Micros, report);
+    }
+  }
+
+  private record Report(Options options, long[] tickNanos, long allocatedBytes, long events, long chatPackets,
+      long maxChatPerTick, long crafted, int races, int raceViolations) {
+
+    Report {
+      tickNanos = tickNanos.clone();
+      Arrays.sort(tickNanos);
+    }
+
+    long percentile(double p) {
+      int rank = (int) Math.ceil(p * tickNanos.length) - 1;
+      return tickNanos[Math.max(0, Math.min(rank, tickNanos.length - 1))];
+    }
+
+    long p99Nanos() {
+      return percentile(0.99);
+    }
+
+    double simulatedSeconds() {
+      return (double) tickNanos.length / TICKS_PER_SECOND;
+    }
+
+    // Octets alloués par seconde de jeu simulée
+    double allocationRate() {
+      return allocatedBytes / simulatedSeconds();
+    }
+
+    String text() {
+      return String.format(Locale.ROOT, """
+          === Test de charge UniqueCrafts ===
+          Joueurs: %d | Crafts: %d | Ticks mesurés: %d (+%d de chauffe) | Stockage: %s
+          Temps listeners par tick: p50 %.1f µs | p99 %.1f µs | max %.1f µs
+          Événements: %d (%.1f / tick) | Crafts réussis: %d | Courses: %d (violations: %d)
+          Allocation: %.2f Mo/s simulée (%.0f octets / événement)
+          Messages chat: %d (%.1f / tick, max %d sur un tick)""",
+          options.players, options.crafts, tickNanos.length, options.warmup,
+          options.journal ? "journal" : "noop",
+          percentile(0.50) / 1e3, percentile(0.99) / 1e3, tickNanos[tickNanos.length - 1] / 1e3,
+          events, (double) events / tickNanos.length, crafted, races, raceViolations,
+          allocationRate() / (1024 * 1024), events == 0 ? 0.0 : (double) allocatedBytes / events,
+          chatPackets, (double) chatPackets / tickNanos.length, maxChatPerTick);
+    }
+
+    String json() {
+      return String.format(Locale.ROOT, """
+          {
+            "players": %d,
+            "crafts": %d,
+            "ticks": %d,
+            "store": "%s",
+            "tickNanos": { "p50": %d, "p99": %d, "max": %d },
+            "events": %d,
+            "crafted": %d,
+            "races": %d,
+            "raceViolations": %d,
+            "allocatedBytes": %d,
+            "allocationBytesPerSecond": %.0f,
+            "chatPackets": %d,
+            "maxChatPacketsPerTick": %d
+          }
+          """,
+          options.players, options.crafts, tickNanos.length, options.journal ? "journal" : "noop",
+          percentile(0.50), percentile(0.99), tickNanos[tickNanos.length - 1],
+          events, crafted, races, raceViolations, allocatedBytes, allocationRate(),
+          chatPackets, maxChatPerTick);
+    }
+  }
+}
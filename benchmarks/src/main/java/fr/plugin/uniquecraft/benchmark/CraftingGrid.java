@@ -0,0 +1,164 @@
+package fr.plugin.uniquecraft.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.CraftItemEvent;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.inventory.PrepareItemCraftEvent;
+import org.bukkit.inventory.CraftingInventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.Recipe;
+import org.bukkit.inventory.RecipeChoice;
+import org.bukkit.inventory.ShapedRecipe;
+import org.bukkit.inventory.ShapelessRecipe;
+
+// Établi ouvert par un joueur simulé. MockBukkit ne fournit pas de CraftingInventory: l'inventaire et
+// sa vue sont des proxys limités à ce que lisent les événements de craft et les listeners du plugin
+// (toute autre méthode lève UnsupportedOperationException, pour qu'un appel imprévu se voie).
+public final class CraftingGrid {
+
+  // Grille et résultat d'une recette, calculés une fois hors de la mesure
+  public record Placement(Recipe recipe, ItemStack[] matrix, ItemStack result) {
+  }
+
+  private final Player player;
+  private final CraftingInventory inventory;
+  private final InventoryView view;
+  private Recipe recipe;
+  private ItemStack[] matrix = new ItemStack[9];
+  private ItemStack result;
+
+  public CraftingGrid(Player player) {
+    this.player = player;
+    this.inventory = proxy(CraftingInventory.class, this::inventory);
+    this.view = proxy(InventoryView.class, this::view);
+  }
+
+  // Objets posés dans la grille pour obtenir la recette (premier choix de chaque ingrédient)
+  public static Placement placement(Recipe recipe) {
+    ItemStack[] matrix = new ItemStack[9];
+    if (recipe instanceof ShapedRecipe shaped) {
+      String[] shape = shaped.getShape();
+      Map<Character, RecipeChoice> choices = shaped.getChoiceMap();
+      for (int row = 0; row < shape.length; row++) {
+        for (int column = 0; column < shape[row].length(); column++) {
+          RecipeChoice choice = choices.get(shape[row].charAt(column));
+          matrix[row * 3 + column] = choice == null ? null : choice.getItemStack();
+        }
+      }
+    } else if (recipe instanceof ShapelessRecipe shapeless) {
+      List<RecipeChoice> choices = shapeless.getChoiceList();
+      for (int i = 0; i < choices.size(); i++) {
+        matrix[i] = choices.get(i).getItemStack();
+      }
+    } else {
+      throw new IllegalArgumentException("Recette non gérée: " + recipe);
+    }
+    return new Placement(recipe, matrix, recipe.getResult());
+  }
+
+  // Grille remplie, résultat affiché: l'événement que le serveur lance à chaque changement de la grille
+  public PrepareItemCraftEvent prepare(Placement placement) {
+    place(placement, placement.result());
+    return new PrepareItemCraftEvent(inventory, view, false);
+  }
+
+  // Clic sur le résultat (copie: le numéro de série est posé sur l'objet pris)
+  public CraftItemEvent craft(Placement placement, boolean shiftClick) {
+    place(placement, placement.result().clone());
+    return new CraftItemEvent(placement.recipe(), view, InventoryType.SlotType.RESULT, 0,
+        shiftClick ? ClickType.SHIFT_LEFT : ClickType.LEFT,
+        shiftClick ? InventoryAction.MOVE_TO_OTHER_INVENTORY : InventoryAction.PICKUP_ALL);
+  }
+
+  // Résultat laissé par les listeners (null: craft refusé à la préparation)
+  public ItemStack result() {
+    return result;
+  }
+
+  private void place(Placement placement, ItemStack shown) {
+    recipe = placement.recipe();
+    matrix = placement.matrix();
+    result = shown;
+  }
+
+  private ItemStack slot(int index) {
+    return index == 0 ? result : index <= 9 ? matrix[index - 1] : null;
+  }
+
+  private void setSlot(int index, ItemStack stack) {
+    if (index == 0) {
+      result = stack;
+    } else if (index <= 9) {
+      matrix = matrix.clone();
+      matrix[index - 1] = stack;
+    }
+  }
+
+  private Object inventory(String name, Object[] args) {
+    return switch (name) {
+      // Copie, comme le serveur
+      case "getMatrix", "getContents" -> matrix.clone();
+      case "setMatrix" -> {
+        matrix = ((ItemStack[]) args[0]).clone();
+        yield null;
+      }
+      case "getResult" -> result;
+      case "setResult" -> {
+        result = (ItemStack) args[0];
+        yield null;
+      }
+      case "getRecipe" -> recipe;
+      case "getViewers" -> List.of(player);
+      case "getType" -> InventoryType.WORKBENCH;
+      case "getSize" -> 10;
+      case "getHolder" -> player;
+      case "getLocation" -> player.getLocation();
+      case "getItem" -> slot((Integer) args[0]);
+      case "setItem" -> {
+        setSlot((Integer) args[0], (ItemStack) args[1]);
+        yield null;
+      }
+      default -> throw new UnsupportedOperationException("CraftingInventory." + name);
+    };
+  }
+
+  private Object view(String name, Object[] args) {
+    return switch (name) {
+      case "getTopInventory" -> inventory;
+      case "getBottomInventory" -> player.getInventory();
+      case "getPlayer" -> player;
+      case "getType" -> InventoryType.WORKBENCH;
+      case "getItem" -> slot((Integer) args[0]);
+      case "setItem" -> {
+        setSlot((Integer) args[0], (ItemStack) args[1]);
+        yield null;
+      }
+      // Emplacements de l'établi (0: résultat, 1-9: grille) numérotés comme dans la vue
+      case "convertSlot" -> args[0];
+      case "countSlots" -> 10 + player.getInventory().getStorageContents().length;
+      case "getCursor" -> player.getItemOnCursor();
+      default -> throw new UnsupportedOperationException("InventoryView." + name);
+    };
+  }
+
+  private interface Handler {
+    Object invoke(String name, Object[] args);
+  }
+
+  private static <T> T proxy(Class<T> type, Handler handler) {
+    InvocationHandler invocation = (proxy, method, args) -> switch (method.getName()) {
+      case "equals" -> proxy == args[0];
+      case "hashCode" -> System.identityHashCode(proxy);
+      case "toString" -> type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+      default -> handler.invoke(method.getName(), args);
+    };
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, invocation));
+  }
+}
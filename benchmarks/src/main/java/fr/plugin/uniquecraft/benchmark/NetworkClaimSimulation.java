@@ -0,0 +1,269 @@
+package fr.plugin.uniquecraft.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import fr.plugin.uniquecraft.ClaimCoordinator;
+import fr.plugin.uniquecraft.ClaimCoordinator.Lease;
+import fr.plugin.uniquecraft.ClaimRegistry;
+import fr.plugin.uniquecraft.CraftMetrics;
+import fr.plugin.uniquecraft.InMemoryClaimCoordinator;
+import fr.plugin.uniquecraft.NetworkClaims;
+import fr.plugin.uniquecraft.SqlClaimCoordinator;
+import fr.plugin.uniquecraft.Trace;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Logger;
+
+// Plusieurs serveurs simulés dans une même JVM se disputent les mêmes crafts uniques à travers
+// un coordinateur partagé (en mémoire, ou fichier SQLite commun). Chaque nœud a son propre
+// ClaimRegistry et son NetworkClaims, comme un backend réel derrière le proxy.
+//
+//   mvn -o compile exec:java -Dexec.mainClass=fr.plugin.uniquecraft.benchmark.NetworkClaimSimulation \
+//       -Dexec.args="--nodes 3 --backend sqlite"
+//
+// Le code de sortie est 1 si un craft est réalisé plus d'une fois dans un même tour.
+public final class NetworkClaimSimulation {
+
+  private static final Logger LOGGER = Logger.getLogger("UniqueCrafts-Simulation");
+
+  private final Options options;
+  private final List<Node> nodes = new ArrayList<>();
+  private final List<HikariDataSource> dataSources = new ArrayList<>();
+  private final String[] craftIds;
+  // Crafts acceptés localement, tous nœuds confondus, pour le tour courant
+  private volatile AtomicIntegerArray wins;
+
+  private record Node(String serverId, ClaimRegistry registry, NetworkClaims network) {
+  }
+
+  private NetworkClaimSimulation(Options options) {
+    this.options = options;
+    this.craftIds = new String[options.crafts];
+    for (int i = 0; i < craftIds.length; i++) {
+      craftIds[i] = "sim_" + i;
+    }
+    InMemoryClaimCoordinator.Network shared = new InMemoryClaimCoordinator.Network();
+    for (int i = 0; i < options.nodes; i++) {
+      String serverId = "node-" + i;
+      ClaimCoordinator coordinator = options.sqlite ? sqliteNode(serverId) : shared.node(serverId);
+      ClaimRegistry registry = new ClaimRegistry(TimeUnit.SECONDS.toNanos(5));
+      // Pas de stockage local dans la simulation
+      NetworkClaims network = new NetworkClaims(coordinator, registry, craftId -> {
+      }, options.leaseMillis, LOGGER, new Trace(LOGGER, 0), new CraftMetrics());
+      nodes.add(new Node(serverId, registry, network));
+    }
+  }
+
+  private ClaimCoordinator sqliteNode(String serverId) {
+    HikariConfig hikari = new HikariConfig();
+    hikari.setPoolName("Simulation-" + serverId);
+    hikari.setJdbcUrl("jdbc:sqlite:" + new File(options.file).getAbsolutePath());
+    hikari.setMaximumPoolSize(1);
+    hikari.addDataSourceProperty("busy_timeout", "5000");
+    HikariDataSource dataSource = new HikariDataSource(hikari);
+    dataSources.add(dataSource);
+    return new SqlClaimCoordinator(dataSource, serverId, true, LOGGER);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options options = Options.parse(args);
+    if (options.sqlite) {
+      new File(options.file).getAbsoluteFile().getParentFile().mkdirs();
+      new File(options.file).delete();
+    }
+    NetworkClaimSimulation simulation = new NetworkClaimSimulation(options);
+    int exitCode;
+    try {
+      exitCode = simulation.run();
+    } finally {
+      simulation.close();
+    }
+    System.exit(exitCode);
+  }
+
+  private int run() throws IOException, InterruptedException {
+    for (Node node : nodes) {
+      node.network().load();
+    }
+    int violations = 0;
+    int timeouts = 0;
+    long start = System.nanoTime();
+    for (int round = 1; round <= options.rounds; round++) {
+      wins = new AtomicIntegerArray(craftIds.length);
+      boolean complete = playRound(round);
+      int roundViolations = 0;
+      for (int i = 0; i < craftIds.length; i++) {
+        if (wins.get(i) > 1) {
+          roundViolations++;
+          System.out.printf("Tour %d: %s réalisé %d fois !%n", round, craftIds[i], wins.get(i));
+        }
+      }
+      violations += roundViolations;
+      if (!complete) {
+        timeouts++;
+        System.out.printf("Tour %d: tous les crafts n'ont pas été réalisés à temps%n", round);
+      }
+      if (round < options.rounds && !resetAll()) {
+        timeouts++;
+        System.out.printf("Tour %d: la réinitialisation n'a pas atteint tous les nœuds%n", round);
+        break;
+      }
+    }
+    long conflicts = 0;
+    for (Node node : nodes) {
+      conflicts += node.network().conflicts();
+    }
+    System.out.println("=== Simulation réseau UniqueCrafts ===");
+    System.out.printf("Backend: %s, nœuds: %d, joueurs/nœud: %d, crafts: %d, tours: %d%n",
+        options.sqlite ? "sqlite (" + options.file + ")" : "mémoire", options.nodes, options.players,
+        options.crafts, options.rounds);
+    System.out.printf("Durée: %d ms%n", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    System.out.printf("Crafts en double: %d, conflits de token: %d, délais dépassés: %d%n", violations, conflicts,
+        timeouts);
+    return violations == 0 && conflicts == 0 && timeouts == 0 ? 0 : 1;
+  }
+
+  // Tous les joueurs de tous les nœuds tentent les crafts jusqu'à ce que chaque nœud les voie réalisés
+  private boolean playRound(int round) throws InterruptedException {
+    AtomicBoolean running = new AtomicBoolean(true);
+    ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    for (int n = 0; n < nodes.size(); n++) {
+      Node node = nodes.get(n);
+      executor.execute(() -> {
+        while (running.get()) {
+          node.network().poll();
+          sleep(options.pollMillis);
+        }
+      });
+      for (int p = 0; p < options.players; p++) {
+        UUID player = UUID.randomUUID();
+        SplittableRandom random = new SplittableRandom(options.seed + round * 10_000L + n * 100L + p);
+        executor.execute(() -> {
+          while (running.get()) {
+            attempt(node, player, random.nextInt(craftIds.length));
+            sleep(1);
+          }
+        });
+      }
+    }
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(options.timeoutSeconds);
+    boolean complete = false;
+    while (!complete && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+      complete = allNodes(true);
+    }
+    running.set(false);
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+    return complete;
+  }
+
+  // Même enchaînement que CraftListener: prepare -> lease -> reserve/commit local -> commit réseau
+  private void attempt(Node node, UUID player, int craft) {
+    String craftId = craftIds[craft];
+    if (node.registry().isClaimed(craftId) || node.network().heldElsewhere(craftId)) {
+      return;
+    }
+    node.network().prepare(craftId, player);
+    Lease lease = node.network().lease(craftId);
+    if (lease == null || !node.registry().reserve(craftId, player)) {
+      return;
+    }
+    if (node.registry().commit(craftId, player)) {
+      wins.incrementAndGet(craft);
+      node.network().commit(lease, player);
+    }
+  }
+
+  private boolean resetAll() throws InterruptedException {
+    Node first = nodes.get(0);
+    for (String craftId : craftIds) {
+      first.registry().reset(craftId);
+      first.network().reset(craftId);
+    }
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(options.timeoutSeconds);
+    while (System.currentTimeMillis() < deadline) {
+      for (Node node : nodes) {
+        node.network().poll();
+      }
+      if (allNodes(false)) {
+        return true;
+      }
+      Thread.sleep(10);
+    }
+    return false;
+  }
+
+  private boolean allNodes(boolean claimed) {
+    for (Node node : nodes) {
+      for (String craftId : craftIds) {
+        if (node.registry().isClaimed(craftId) != claimed) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void close() {
+    for (Node node : nodes) {
+      node.network().close();
+    }
+    for (HikariDataSource dataSource : dataSources) {
+      dataSource.close();
+    }
+  }
+
+  private record Options(int nodes, int players, int crafts, int rounds, long leaseMillis, long pollMillis,
+      int timeoutSeconds, long seed, boolean sqlite, String file) {
+
+    static Options parse(String[] args) {
+      int nodes = 3;
+      int players = 20;
+      int crafts = 50;
+      int rounds = 5;
+      long leaseMillis = 30_000;
+      long pollMillis = 50;
+      int timeoutSeconds = 30;
+      long seed = 42;
+      boolean sqlite = false;
+      String file = "target/network-simulation.db";
+      for (int i = 0; i < args.length; i++) {
+        String value = i + 1 < args.length ? args[i + 1] : null;
+        switch (args[i]) {
+          case "--nodes" -> nodes = Integer.parseInt(value);
+          case "--players" -> players = Integer.parseInt(value);
+          case "--crafts" -> crafts = Integer.parseInt(value);
+          case "--rounds" -> rounds = Integer.parseInt(value);
+          case "--lease-ms" -> leaseMillis = Long.parseLong(value);
+          case "--poll-ms" -> pollMillis = Long.parseLong(value);
+          case "--timeout-s" -> timeoutSeconds = Integer.parseInt(value);
+          case "--seed" -> seed = Long.parseLong(value);
+          case "--backend" -> sqlite = "sqlite".equals(value);
+          case "--file" -> file = value;
+          default -> throw new IllegalArgumentException("Option inconnue: " + args[i]);
+        }
+        i++;
+      }
+      return new Options(Math.max(1, nodes), Math.max(1, players), Math.max(1, crafts), Math.max(1, rounds),
+          leaseMillis, Math.max(1, pollMillis), timeoutSeconds, seed, sqlite, file);
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package fr.plugin.uniquecraft.benchmark;
+
+import be.seeseemelk.mockbukkit.entity.PlayerMock;
+import fr.plugin.uniquecraft.ClaimRegistry;
+import fr.plugin.uniquecraft.CraftMetrics;
+import fr.plugin.uniquecraft.RecipeIndex;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// PrepareItemCraftEvent distribué aux listeners enregistrés: recette vanilla, craft unique disponible,
+// craft unique déjà réalisé (refus regroupé par CraftFeedback)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrepareCraftBenchmark {
+
+  private BenchmarkFixture fixture;
+  private PlayerMock player;
+  private CraftingGrid grid;
+  private CraftingGrid.Placement vanilla;
+  private CraftingGrid.Placement unique;
+  private CraftingGrid.Placement claimed;
+
+  @Setup
+  public void setup() throws IOException {
+    fixture = BenchmarkFixture.start();
+    RecipeIndex index = fixture.index(fixture.compile(fixture.bundledCrafts()));
+    ClaimRegistry claims = new ClaimRegistry(TimeUnit.SECONDS.toNanos(10));
+    fixture.registerListeners(() -> index, claims, new BenchmarkFixture.NoopClaimStore(), new CraftMetrics());
+    player = fixture.addPlayer();
+    grid = new CraftingGrid(player);
+
+    vanilla = CraftingGrid.placement(BenchmarkFixture.vanillaRecipe());
+    unique = CraftingGrid.placement(index.get("epee_unique").createRecipe());
+    claimed = CraftingGrid.placement(index.get("Ultio").createRecipe());
+    claims.markClaimed("Ultio", player.getUniqueId());
+  }
+
+  @TearDown
+  public void tearDown() {
+    fixture.close();
+  }
+
+  @Benchmark
+  public boolean vanillaRecipe() {
+    return prepare(vanilla);
+  }
+
+  @Benchmark
+  public boolean uniqueRecipe() {
+    return prepare(unique);
+  }
+
+  @Benchmark
+  public boolean claimedRecipe() {
+    boolean allowed = prepare(claimed);
+    BenchmarkFixture.drainMessages(player);
+    return allowed;
+  }
+
+  // Résultat encore affiché après les listeners
+  private boolean prepare(CraftingGrid.Placement placement) {
+    fixture.call(grid.prepare(placement));
+    return grid.result() != null;
+  }
+}
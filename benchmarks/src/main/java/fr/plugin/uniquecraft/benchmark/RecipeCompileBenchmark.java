@@ -0,0 +1,58 @@
+package fr.plugin.uniquecraft.benchmark;
+
+import fr.plugin.uniquecraft.CraftDefinition;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Compilation d'une section de crafts.yml (ancien registerRecipe, hors Bukkit.addRecipe)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecipeCompileBenchmark {
+
+  private BenchmarkFixture fixture;
+  private ConfigurationSection simple;
+  private ConfigurationSection full;
+
+  @Setup
+  public void setup() {
+    fixture = BenchmarkFixture.start();
+    ConfigurationSection crafts = fixture.bundledCrafts();
+    simple = crafts.getConfigurationSection("epee_unique");
+    full = crafts.getConfigurationSection("Ultio");
+  }
+
+  @TearDown
+  public void tearDown() {
+    fixture.close();
+  }
+
+  // Matériaux seuls
+  @Benchmark
+  public CraftDefinition simpleCraft() {
+    return fixture.compiler().compile("epee_unique", simple, new ArrayList<>(0));
+  }
+
+  // Nom, lore, enchantements, attributs
+  @Benchmark
+  public CraftDefinition fullCraft() {
+    List<String> problems = new ArrayList<>(0);
+    return fixture.compiler().compile("Ultio", full, problems);
+  }
+}
@@ -0,0 +1,59 @@
+package fr.plugin.uniquecraft.benchmark;
+
+import fr.plugin.uniquecraft.CraftDefinition;
+import fr.plugin.uniquecraft.RecipeIndex;
+import java.util.concurrent.TimeUnit;
+import org.bukkit.inventory.Recipe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Identification d'une recette (ancien getCraftIdFromRecipe): vanilla vs craft unique
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecipeLookupBenchmark {
+
+  @Param({"4", "2000"})
+  public int crafts;
+
+  private BenchmarkFixture fixture;
+  private RecipeIndex index;
+  private Recipe vanilla;
+  private Recipe unique;
+
+  @Setup
+  public void setup() {
+    fixture = BenchmarkFixture.start();
+    index = fixture.index(fixture.compile(BenchmarkFixture.syntheticCrafts(crafts)));
+    vanilla = BenchmarkFixture.vanillaRecipe();
+    unique = index.definitions().iterator().next().createRecipe();
+  }
+
+  @TearDown
+  public void tearDown() {
+    fixture.close();
+  }
+
+  @Benchmark
+  public CraftDefinition vanillaRecipe() {
+    return index.find(vanilla);
+  }
+
+  @Benchmark
+  public CraftDefinition uniqueRecipe() {
+    return index.find(unique);
+  }
+}
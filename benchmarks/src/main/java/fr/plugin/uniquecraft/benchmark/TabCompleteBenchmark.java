@@ -0,0 +1,52 @@
+package fr.plugin.uniquecraft.benchmark;
+
+import fr.plugin.uniquecraft.RecipeIndex;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Complétion de /uniquecraft reset <id>, une frappe de touche (préfixe insensible à la casse)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TabCompleteBenchmark {
+
+  @Param({"4", "2000"})
+  public int crafts;
+
+  @Param({"", "craft_1", "CRAFT_1999", "zzz"})
+  public String prefix;
+
+  private BenchmarkFixture fixture;
+  private RecipeIndex index;
+
+  @Setup
+  public void setup() {
+    fixture = BenchmarkFixture.start();
+    index = fixture.index(fixture.compile(BenchmarkFixture.syntheticCrafts(crafts)));
+  }
+
+  @TearDown
+  public void tearDown() {
+    fixture.close();
+  }
+
+  @Benchmark
+  public List<String> complete() {
+    return index.complete(prefix);
+  }
+}
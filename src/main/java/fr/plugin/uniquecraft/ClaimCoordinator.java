@@ -0,0 +1,56 @@
+package fr.plugin.uniquecraft;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Coordination des crafts uniques entre plusieurs serveurs (section network: de config.yml).
+// Appels bloquants: ils ne sont jamais faits depuis un événement, voir NetworkClaims.
+public interface ClaimCoordinator {
+
+  // Droit exclusif d'un serveur de crafter craftId jusqu'à expiresAt. Le token (fencing) augmente
+  // quand le lease change de serveur ou suit un reset: un lease périmé ne peut plus être validé.
+  // player est le joueur qui a demandé le lease, puis celui qui a réalisé le craft au commit.
+  record Lease(String craftId, UUID player, long token, long expiresAt) {
+  }
+
+  enum Kind {
+    LEASED, CLAIMED, RESET
+  }
+
+  // Changement d'état publié aux autres serveurs
+  record Event(long sequence, String craftId, Kind kind, String serverId, UUID player, long token,
+      long expiresAt) {
+  }
+
+  // Identifiant de ce serveur sur le réseau
+  String serverId();
+
+  // Crafts réalisés sur l'ensemble du réseau
+  Map<String, ClaimRecord> load() throws IOException;
+
+  // Crafts remis à zéro sur le réseau depuis leur réalisation: état RESET, ou loués par un autre
+  // serveur. Un état CLAIMED local pour l'un d'eux vient d'un événement RESET manqué.
+  Set<String> released() throws IOException;
+
+  // null si le craft est déjà réalisé ou loué par un autre serveur. Un lease de ce serveur est
+  // prolongé sans changer de token.
+  Lease acquire(String craftId, UUID player, long leaseMillis) throws IOException;
+
+  // Valide le craft. false si le lease a été repris entre-temps (token périmé).
+  boolean commit(Lease lease) throws IOException;
+
+  void reset(String craftId) throws IOException;
+
+  // Événements de séquence strictement supérieure à afterSequence, dans l'ordre. Sous MySQL une
+  // séquence est attribuée à l'insertion mais visible au commit: un événement peut apparaître après
+  // un autre de séquence supérieure (voir NetworkClaims.poll).
+  List<Event> poll(long afterSequence, int limit) throws IOException;
+
+  // Dernière séquence publiée (point de départ au démarrage)
+  long headSequence() throws IOException;
+
+  void close();
+}
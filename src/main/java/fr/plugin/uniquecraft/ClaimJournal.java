@@ -0,0 +1,333 @@
+package fr.plugin.uniquecraft;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+// Journal append-only des crafts réalisés (crafted.journal) + snapshot compacté (crafted.yml).
+// Chaque claim/reset coûte un enregistrement de quelques dizaines d'octets,
+// écrit par un thread dédié et fsync par lot.
+public class ClaimJournal implements ClaimStore {
+
+  public static final byte TYPE_CLAIM = 1;
+  public static final byte TYPE_RESET = 2;
+
+  // Compaction automatique au-delà de ce nombre d'enregistrements
+  private static final int COMPACT_THRESHOLD = 1024;
+
+  // Enregistrement: [int longueur][byte type][long timestamp][long msb][long lsb][UTF craftId][int crc32]
+  private static final int HEADER_SIZE = Integer.BYTES;
+  private static final int CRC_SIZE = Integer.BYTES;
+
+  private record Entry(byte type, String craftId, UUID player, long timestamp) {
+  }
+
+  private final Path journalPath;
+  private final Path snapshotPath;
+  private final Logger logger;
+  private final ConcurrentLinkedQueue<Entry> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+  private volatile boolean closed;
+  private final ExecutorService writer;
+  private final LatencyHistogram writeLatency;
+  private final Trace trace;
+
+  // État accessible uniquement depuis le thread d'écriture (après load())
+  private final Map<String, ClaimRecord> state = new LinkedHashMap<>();
+  // Lot dont l'écriture a échoué, réécrit en tête du lot suivant
+  private final List<Entry> failed = new ArrayList<>();
+  private FileChannel channel;
+  private int recordsSinceSnapshot;
+
+  public ClaimJournal(File dataFolder, Logger logger, CraftMetrics metrics, Trace trace) {
+    this.journalPath = new File(dataFolder, "crafted.journal").toPath();
+    this.snapshotPath = new File(dataFolder, "crafted.yml").toPath();
+    this.logger = logger;
+    this.writeLatency = metrics.persistence("journal");
+    this.trace = trace;
+    this.writer = Executors.newSingleThreadExecutor(r -> {
+      Thread thread = new Thread(r, "UniqueCrafts-Journal");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  // Lit le snapshot puis rejoue le journal. Un enregistrement tronqué ou corrompu
+  // (crash en cours d'écriture) marque la fin du journal valide.
+  @Override
+  public synchronized Map<String, ClaimRecord> load() throws IOException {
+    state.clear();
+    loadSnapshot();
+
+    Files.createDirectories(journalPath.toAbsolutePath().getParent());
+    channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+
+    long validEnd = replay();
+    if (validEnd < channel.size()) {
+      logger.warning("§eJournal des crafts tronqué à " + validEnd + " octets (fin corrompue ignorée)");
+      channel.truncate(validEnd);
+      channel.force(true);
+    }
+    channel.position(validEnd);
+
+    return Collections.unmodifiableMap(new LinkedHashMap<>(state));
+  }
+
+  @Override
+  public void claim(String craftId, UUID player) {
+    append(new Entry(TYPE_CLAIM, craftId, player, System.currentTimeMillis()));
+  }
+
+  @Override
+  public void reset(String craftId) {
+    append(new Entry(TYPE_RESET, craftId, new UUID(0L, 0L), System.currentTimeMillis()));
+  }
+
+  // Demande une compaction (appel périodique, settings.save-interval)
+  @Override
+  public void compact() {
+    submit(() -> {
+      drain();
+      if (recordsSinceSnapshot > 0) {
+        writeSnapshot();
+      }
+    });
+  }
+
+  // Vide la file, compacte et ferme le journal. Bloquant, à appeler au onDisable.
+  @Override
+  public void close() {
+    compact();
+    closed = true;
+    writer.shutdown();
+    try {
+      if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+        logger.severe("§cLe journal des crafts n'a pas pu être vidé à temps !");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      if (channel != null) {
+        channel.close();
+      }
+    } catch (IOException e) {
+      logger.warning("§eErreur à la fermeture du journal: " + e.getMessage());
+    }
+  }
+
+  private void append(Entry entry) {
+    if (closed) {
+      logger.warning("§eJournal des crafts fermé, enregistrement ignoré: " + entry.craftId());
+      return;
+    }
+    pending.add(entry);
+    if (drainScheduled.compareAndSet(false, true)) {
+      submit(this::drain);
+    }
+  }
+
+  // Après close(), les demandes sont refusées proprement au lieu de lever RejectedExecutionException
+  private void submit(Runnable task) {
+    if (closed) {
+      return;
+    }
+    try {
+      writer.execute(task);
+    } catch (RejectedExecutionException e) {
+      logger.warning("§eJournal des crafts fermé, demande ignorée");
+    }
+  }
+
+  private void drain() {
+    drainScheduled.set(false);
+    List<Entry> batch = new ArrayList<>(failed);
+    failed.clear();
+    Entry entry;
+    while ((entry = pending.poll()) != null) {
+      batch.add(entry);
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    long start = System.nanoTime();
+    long batchStart = -1;
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.size() * 64);
+      for (Entry e : batch) {
+        bytes.write(encode(e));
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+      batchStart = channel.position();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    } catch (IOException e) {
+      // Un enregistrement partiel arrêterait le rejeu et ferait perdre tous les suivants: retour au
+      // début du lot, qui n'est pas appliqué et sera réécrit au prochain passage
+      logger.severe("§cErreur d'écriture du journal des crafts: " + e.getMessage());
+      rollback(batchStart);
+      failed.addAll(batch);
+      return;
+    }
+    long elapsed = System.nanoTime() - start;
+    writeLatency.record(elapsed);
+    trace.log(Trace.Category.PERSISTENCE, "Journal: {} enregistrement(s) écrit(s) en {} µs", batch.size(),
+        elapsed / 1_000);
+
+    for (Entry e : batch) {
+      apply(e);
+    }
+    recordsSinceSnapshot += batch.size();
+    if (recordsSinceSnapshot >= COMPACT_THRESHOLD) {
+      writeSnapshot();
+    }
+  }
+
+  private void rollback(long batchStart) {
+    if (batchStart < 0) {
+      return;
+    }
+    try {
+      channel.truncate(batchStart);
+      channel.position(batchStart);
+    } catch (IOException e) {
+      logger.severe("§cImpossible de retirer l'écriture partielle du journal: " + e.getMessage());
+    }
+  }
+
+  private void apply(Entry entry) {
+    if (entry.type() == TYPE_CLAIM) {
+      state.put(entry.craftId(), new ClaimRecord(entry.craftId(), entry.player(), entry.timestamp()));
+    } else if (entry.type() == TYPE_RESET) {
+      state.remove(entry.craftId());
+    }
+  }
+
+  private void writeSnapshot() {
+    YamlConfiguration snapshot = new YamlConfiguration();
+    for (ClaimRecord record : state.values()) {
+      snapshot.set("crafted." + record.craftId() + ".player", record.player().toString());
+      snapshot.set("crafted." + record.craftId() + ".time", record.timestamp());
+    }
+    try {
+      CraftsPersistence.writeAtomically(snapshotPath, snapshot.saveToString());
+      // Le snapshot contient tout l'état: le journal peut repartir de zéro
+      channel.truncate(0);
+      channel.position(0);
+      channel.force(true);
+      recordsSinceSnapshot = 0;
+    } catch (IOException e) {
+      logger.severe("§cErreur lors de la compaction du journal: " + e.getMessage());
+    }
+  }
+
+  private void loadSnapshot() {
+    if (!Files.exists(snapshotPath)) {
+      return;
+    }
+    YamlConfiguration snapshot = YamlConfiguration.loadConfiguration(snapshotPath.toFile());
+    ConfigurationSection crafted = snapshot.getConfigurationSection("crafted");
+    if (crafted == null) {
+      return;
+    }
+    for (String craftId : crafted.getKeys(false)) {
+      UUID player;
+      try {
+        player = UUID.fromString(crafted.getString(craftId + ".player", ""));
+      } catch (IllegalArgumentException e) {
+        player = new UUID(0L, 0L);
+      }
+      state.put(craftId, new ClaimRecord(craftId, player, crafted.getLong(craftId + ".time")));
+    }
+  }
+
+  private long replay() throws IOException {
+    long size = channel.size();
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    long position = 0;
+
+    while (position + HEADER_SIZE <= size) {
+      header.clear();
+      channel.read(header, position);
+      header.flip();
+      int length = header.getInt();
+      if (length <= 0 || position + HEADER_SIZE + length + CRC_SIZE > size) {
+        break;
+      }
+
+      ByteBuffer body = ByteBuffer.allocate(length + CRC_SIZE);
+      while (body.hasRemaining()) {
+        if (channel.read(body, position + HEADER_SIZE + body.position()) < 0) {
+          break;
+        }
+      }
+      body.flip();
+
+      CRC32 crc = new CRC32();
+      crc.update(body.array(), 0, length);
+      if ((int) crc.getValue() != body.getInt(length)) {
+        break;
+      }
+
+      byte type = body.get();
+      long timestamp = body.getLong();
+      UUID player = new UUID(body.getLong(), body.getLong());
+      int idLength = body.getShort() & 0xffff;
+      String craftId = new String(body.array(), body.position(), idLength, StandardCharsets.UTF_8);
+      apply(new Entry(type, craftId, player, timestamp));
+
+      recordsSinceSnapshot++;
+      position += HEADER_SIZE + length + CRC_SIZE;
+    }
+    return position;
+  }
+
+  private static byte[] encode(Entry entry) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream(48);
+    DataOutputStream out = new DataOutputStream(body);
+    out.writeByte(entry.type());
+    out.writeLong(entry.timestamp());
+    out.writeLong(entry.player().getMostSignificantBits());
+    out.writeLong(entry.player().getLeastSignificantBits());
+    byte[] id = entry.craftId().getBytes(StandardCharsets.UTF_8);
+    out.writeShort(id.length);
+    out.write(id);
+
+    byte[] bodyBytes = body.toByteArray();
+    CRC32 crc = new CRC32();
+    crc.update(bodyBytes);
+
+    ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + bodyBytes.length + CRC_SIZE);
+    record.putInt(bodyBytes.length);
+    record.put(bodyBytes);
+    record.putInt((int) crc.getValue());
+    return record.array();
+  }
+}
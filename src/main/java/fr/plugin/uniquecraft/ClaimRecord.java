@@ -0,0 +1,7 @@
+package fr.plugin.uniquecraft;
+
+import java.util.UUID;
+
+// Un craft unique réalisé: par qui et quand
+public record ClaimRecord(String craftId, UUID player, long timestamp) {
+}
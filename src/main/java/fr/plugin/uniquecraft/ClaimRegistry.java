@@ -0,0 +1,187 @@
+package fr.plugin.uniquecraft;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// État des crafts uniques: AVAILABLE (absent de la map) -> RESERVED -> CLAIMED.
+// Toutes les transitions sont des compare-and-set sur la ConcurrentHashMap,
+// un craft ne peut donc passer à CLAIMED qu'une seule fois.
+public class ClaimRegistry {
+
+  public enum Status {
+    AVAILABLE, RESERVED, CLAIMED
+  }
+
+  public record ClaimState(Status status, UUID holder, long expiresAt) {
+
+    boolean isExpired(long now) {
+      return status == Status.RESERVED && now - expiresAt >= 0;
+    }
+  }
+
+  // Passage d'un craft à CLAIMED et retour à AVAILABLE d'un craft réalisé, quelle qu'en soit l'origine
+  // (craft, chargement, réseau, reset). Appelé sur le thread de la transition, après celle-ci.
+  public interface Listener {
+    void claimed(String craftId);
+
+    void released(String craftId);
+  }
+
+  private final ConcurrentHashMap<String, ClaimState> states = new ConcurrentHashMap<>();
+  private final long reservationNanos;
+  private volatile Listener listener;
+
+  public ClaimRegistry(long reservationNanos) {
+    this.reservationNanos = reservationNanos;
+  }
+
+  public void setListener(Listener listener) {
+    this.listener = listener;
+  }
+
+  public Status status(String craftId) {
+    ClaimState state = states.get(craftId);
+    if (state == null || state.isExpired(System.nanoTime())) {
+      return Status.AVAILABLE;
+    }
+    return state.status();
+  }
+
+  public boolean isClaimed(String craftId) {
+    ClaimState state = states.get(craftId);
+    return state != null && state.status() == Status.CLAIMED;
+  }
+
+  public ClaimState state(String craftId) {
+    return states.get(craftId);
+  }
+
+  // Réserve (ou prolonge) le craft pour ce joueur. Échoue si le craft est déjà fait
+  // ou réservé par un autre joueur dont la réservation n'a pas expiré.
+  public boolean reserve(String craftId, UUID player) {
+    while (true) {
+      long now = System.nanoTime();
+      ClaimState reserved = new ClaimState(Status.RESERVED, player, now + reservationNanos);
+      ClaimState current = states.get(craftId);
+      if (current == null) {
+        if (states.putIfAbsent(craftId, reserved) == null) {
+          return true;
+        }
+        continue;
+      }
+      if (current.status() == Status.CLAIMED) {
+        return false;
+      }
+      if (!current.holder().equals(player) && !current.isExpired(now)) {
+        return false;
+      }
+      if (states.replace(craftId, current, reserved)) {
+        return true;
+      }
+    }
+  }
+
+  // Valide le craft. Seul l'appel qui fait passer l'état à CLAIMED retourne true.
+  public boolean commit(String craftId, UUID player) {
+    ClaimState claimed = new ClaimState(Status.CLAIMED, player, 0L);
+    while (true) {
+      ClaimState current = states.get(craftId);
+      if (current == null) {
+        if (states.putIfAbsent(craftId, claimed) == null) {
+          notifyClaimed(craftId);
+          return true;
+        }
+        continue;
+      }
+      if (current.status() == Status.CLAIMED) {
+        return false;
+      }
+      if (!current.holder().equals(player) && !current.isExpired(System.nanoTime())) {
+        return false;
+      }
+      if (states.replace(craftId, current, claimed)) {
+        notifyClaimed(craftId);
+        return true;
+      }
+    }
+  }
+
+  // Craft à plusieurs exemplaires (CraftQuotas): comme commit, mais la réservation est rendue au lieu
+  // de passer à CLAIMED. Retourne false si le craft est fait ou réservé par un autre joueur.
+  public boolean consume(String craftId, UUID player) {
+    while (true) {
+      ClaimState current = states.get(craftId);
+      if (current == null) {
+        return true;
+      }
+      if (current.status() == Status.CLAIMED) {
+        return false;
+      }
+      if (!current.holder().equals(player) && !current.isExpired(System.nanoTime())) {
+        return false;
+      }
+      if (states.remove(craftId, current)) {
+        return true;
+      }
+    }
+  }
+
+  // Libère une réservation de ce joueur (sans effet sur un craft déjà fait)
+  public void release(String craftId, UUID player) {
+    ClaimState current = states.get(craftId);
+    if (current != null && current.status() == Status.RESERVED && current.holder().equals(player)) {
+      states.remove(craftId, current);
+    }
+  }
+
+  // Remet un craft réalisé à disposition. Retourne false s'il n'était pas réalisé.
+  public boolean reset(String craftId) {
+    ClaimState current = states.get(craftId);
+    if (current == null || current.status() != Status.CLAIMED || !states.remove(craftId, current)) {
+      return false;
+    }
+    Listener notified = listener;
+    if (notified != null) {
+      notified.released(craftId);
+    }
+    return true;
+  }
+
+  // Chargement depuis le stockage
+  public void markClaimed(String craftId, UUID player) {
+    ClaimState previous = states.put(craftId, new ClaimState(Status.CLAIMED, player, 0L));
+    if (previous == null || previous.status() != Status.CLAIMED) {
+      notifyClaimed(craftId);
+    }
+  }
+
+  private void notifyClaimed(String craftId) {
+    Listener notified = listener;
+    if (notified != null) {
+      notified.claimed(craftId);
+    }
+  }
+
+  public List<String> claimedIds() {
+    List<String> ids = new ArrayList<>();
+    for (Map.Entry<String, ClaimState> entry : states.entrySet()) {
+      if (entry.getValue().status() == Status.CLAIMED) {
+        ids.add(entry.getKey());
+      }
+    }
+    return ids;
+  }
+
+  public int claimedCount() {
+    int count = 0;
+    for (ClaimState state : states.values()) {
+      if (state.status() == Status.CLAIMED) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
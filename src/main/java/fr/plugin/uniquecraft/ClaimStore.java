@@ -0,0 +1,24 @@
+package fr.plugin.uniquecraft;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+
+// Stockage de l'état des crafts réalisés.
+// claim/reset ne bloquent jamais: l'écriture est faite hors du thread principal.
+public interface ClaimStore {
+
+  // Lecture complète de l'état, appelée au démarrage
+  Map<String, ClaimRecord> load() throws IOException;
+
+  void claim(String craftId, UUID player);
+
+  void reset(String craftId);
+
+  // Maintenance périodique (compaction, etc.)
+  default void compact() {
+  }
+
+  // Vide les écritures en attente. Bloquant, à appeler au onDisable.
+  void close();
+}
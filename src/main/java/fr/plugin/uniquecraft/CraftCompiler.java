@@ -0,0 +1,377 @@
+package fr.plugin.uniquecraft;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+import org.bukkit.Tag;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeModifier;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
+
+// Transforme une section de crafts.yml en CraftDefinition immuable.
+public class CraftCompiler {
+
+  public static final String KEY_PREFIX = "unique_craft_";
+  // Clé PDC portée par chaque objet crafté (uniquecrafts:craft_id), lue par l'audit
+  public static final String MARKER_KEY = "craft_id";
+  // Colonne craft_id VARCHAR(64) des tables SQL (stockage et coordination réseau)
+  public static final int MAX_ID_LENGTH = 64;
+  private static final String DEFAULT_MESSAGE = "§aL'objet unique a été crafté par %player% !";
+
+  private final Plugin plugin;
+
+  public CraftCompiler(Plugin plugin) {
+    this.plugin = plugin;
+  }
+
+  // Retourne null si la section est invalide. Les erreurs et avertissements sont ajoutés
+  // à problems plutôt que logués, pour un résumé unique au chargement.
+  public CraftDefinition compile(String craftId, ConfigurationSection craft, List<String> problems) {
+    if (craftId.length() > MAX_ID_LENGTH) {
+      problems.add("Identifiant trop long (" + MAX_ID_LENGTH + " caractères au plus): " + craftId);
+      return null;
+    }
+
+    // Récupération du résultat
+    String resultMaterial = craft.getString("result.material");
+    int resultAmount = craft.getInt("result.amount", 1);
+
+    if (resultMaterial == null) {
+      problems.add("Matériau résultat manquant pour: " + craftId);
+      return null;
+    }
+
+    Material material = Material.getMaterial(resultMaterial.toUpperCase());
+    if (material == null) {
+      problems.add("Matériau inconnu: " + resultMaterial + " pour: " + craftId);
+      return null;
+    }
+
+    ItemStack result = new ItemStack(material, resultAmount);
+    ItemMeta meta = result.getItemMeta();
+
+    // Apply custom name
+    if (craft.contains("result.name")) {
+      String name = craft.getString("result.name");
+      if (name != null) {
+        meta.setDisplayName(name.replace('&', '§'));
+      }
+    }
+
+    // Apply custom lore
+    if (craft.contains("result.lore")) {
+      List<String> lore = new ArrayList<>();
+      for (String line : craft.getStringList("result.lore")) {
+        lore.add(line.replace('&', '§'));
+      }
+      meta.setLore(lore);
+    }
+
+    // Apply enchantments
+    Map<Enchantment, Integer> enchantments = new LinkedHashMap<>();
+    ConfigurationSection enchantSection = craft.getConfigurationSection("result.enchantments");
+    if (enchantSection != null) {
+      for (String enchantKey : enchantSection.getKeys(false)) {
+        Enchantment enchantment = resolveEnchantment(enchantKey);
+        if (enchantment != null) {
+          int level = enchantSection.getInt(enchantKey);
+          meta.addEnchant(enchantment, level, true);
+          enchantments.put(enchantment, level);
+        } else {
+          problems.add("Enchantement inconnu: " + enchantKey + " dans le craft " + craftId);
+        }
+      }
+    }
+
+    // Apply attributes
+    List<CraftDefinition.AttributeEntry> attributes = new ArrayList<>();
+    ConfigurationSection attributeSection = craft.getConfigurationSection("result.attributes");
+    if (attributeSection != null) {
+      for (String attrKey : attributeSection.getKeys(false)) {
+        double value = attributeSection.getDouble(attrKey);
+
+        Attribute attribute;
+        EquipmentSlot slot = EquipmentSlot.HAND;
+
+        // Map attribute names to Bukkit Attributes
+        switch (attrKey.toLowerCase()) {
+          case "attack_damage":
+          case "generic.attack_damage":
+            attribute = Attribute.GENERIC_ATTACK_DAMAGE;
+            break;
+          case "attack_speed":
+          case "generic.attack_speed":
+            attribute = Attribute.GENERIC_ATTACK_SPEED;
+            break;
+          case "max_health":
+          case "generic.max_health":
+            attribute = Attribute.GENERIC_MAX_HEALTH;
+            break;
+          case "movement_speed":
+          case "generic.movement_speed":
+            attribute = Attribute.GENERIC_MOVEMENT_SPEED;
+            slot = EquipmentSlot.FEET;
+            break;
+          case "armor":
+          case "generic.armor":
+            attribute = Attribute.GENERIC_ARMOR;
+            slot = EquipmentSlot.CHEST;
+            break;
+          case "armor_toughness":
+          case "generic.armor_toughness":
+            attribute = Attribute.GENERIC_ARMOR_TOUGHNESS;
+            slot = EquipmentSlot.CHEST;
+            break;
+          case "luck":
+          case "generic.luck":
+            attribute = Attribute.GENERIC_LUCK;
+            break;
+          case "knockback_resistance":
+          case "generic.knockback_resistance":
+            attribute = Attribute.GENERIC_KNOCKBACK_RESISTANCE;
+            slot = EquipmentSlot.CHEST;
+            break;
+          default:
+            problems.add("Attribut inconnu: " + attrKey + " dans le craft " + craftId);
+            continue;
+        }
+
+        // UUID stable: le même objet garde les mêmes modificateurs d'un redémarrage à l'autre
+        AttributeModifier modifier = new AttributeModifier(
+            generateUUID(craftId, attrKey),
+            attrKey,
+            value,
+            AttributeModifier.Operation.ADD_NUMBER,
+            slot);
+        meta.addAttributeModifier(attribute, modifier);
+        attributes.add(new CraftDefinition.AttributeEntry(attribute, modifier));
+      }
+    }
+
+    // Apply unbreakable
+    if (craft.getBoolean("result.unbreakable", false)) {
+      meta.setUnbreakable(true);
+      meta.addItemFlags(ItemFlag.HIDE_UNBREAKABLE);
+    }
+
+    // Hide enchantments and attributes by default
+    meta.addItemFlags(ItemFlag.HIDE_ENCHANTS, ItemFlag.HIDE_ATTRIBUTES);
+
+    // Marqueur du craft: tout exemplaire crafté reste identifiable, même renommé
+    meta.getPersistentDataContainer().set(new NamespacedKey(plugin, MARKER_KEY), PersistentDataType.STRING,
+        craftId);
+
+    result.setItemMeta(meta);
+
+    CraftPattern pattern = craft.getBoolean("shapeless", false)
+        ? compileShapeless(craftId, craft, problems)
+        : compileShaped(craftId, craft, problems);
+    if (pattern == null) {
+      return null;
+    }
+
+    NamespacedKey key;
+    try {
+      key = new NamespacedKey(plugin, KEY_PREFIX + craftId.toLowerCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      problems.add("Identifiant invalide pour une clé de recette: " + craftId);
+      return null;
+    }
+    // Variantes par langue facultatives: messages: { en_us: "..." }
+    Messages.Localized message = Messages.Localized.compile(craft.getString("message", DEFAULT_MESSAGE),
+        craft.getConfigurationSection("messages"), "player", "craft_id");
+
+    // Limites: un exemplaire par serveur par défaut
+    CraftDefinition.Quota quota = new CraftDefinition.Quota(Math.max(0, craft.getInt("limits.server", 1)),
+        Math.max(0, craft.getInt("limits.player", 0)), craft.getBoolean("limits.season", false));
+
+    return new CraftDefinition(craftId, key, result, pattern, message, quota, enchantments, attributes,
+        fingerprint(craft));
+  }
+
+  private CraftPattern compileShaped(String craftId, ConfigurationSection craft, List<String> problems) {
+    // Configuration de la forme
+    List<String> shape = craft.getStringList("shape");
+    if (shape.size() != 3) {
+      problems.add("La forme du craft " + craftId + " doit avoir 3 lignes!");
+      return null;
+    }
+
+    // Configuration des ingrédients
+    Map<Character, CraftIngredient> ingredients = new LinkedHashMap<>();
+    ConfigurationSection ingredientSection = craft.getConfigurationSection("ingredients");
+    if (ingredientSection != null) {
+      for (String ingredientKey : ingredientSection.getKeys(false)) {
+        char symbol = ingredientKey.charAt(0);
+        if (shape.stream().noneMatch(row -> row.indexOf(symbol) >= 0)) {
+          problems.add("Symbole " + symbol + " absent de la forme du craft " + craftId);
+          continue;
+        }
+        CraftIngredient ingredient = ingredient(craftId, craft, ingredientSection.get(ingredientKey), problems);
+        if (ingredient != null) {
+          ingredients.put(symbol, ingredient);
+        }
+      }
+    }
+    if (ingredients.isEmpty()) {
+      problems.add("Aucun ingrédient valide pour le craft " + craftId);
+      return null;
+    }
+    return CraftPattern.shaped(shape, ingredients);
+  }
+
+  // shapeless: true, ingredients: liste de 1 à 9 ingrédients, dans n'importe quelle case
+  private CraftPattern compileShapeless(String craftId, ConfigurationSection craft, List<String> problems) {
+    List<CraftIngredient> ingredients = new ArrayList<>();
+    for (Object spec : craft.getList("ingredients", List.of())) {
+      CraftIngredient ingredient = ingredient(craftId, craft, spec, problems);
+      if (ingredient != null) {
+        ingredients.add(ingredient);
+      }
+    }
+    if (ingredients.isEmpty() || ingredients.size() > 9) {
+      problems.add("Le craft sans forme " + craftId + " doit avoir de 1 à 9 ingrédients valides!");
+      return null;
+    }
+    return CraftPattern.shapeless(ingredients);
+  }
+
+  // Formes acceptées: "DIAMOND", "#minecraft:logs" (tag), "craft:<id>" (objet d'un autre craft
+  // unique, reconnu à son marqueur), ou { material: ..., name: ..., lore: [...] } (objet exact)
+  private CraftIngredient ingredient(String craftId, ConfigurationSection craft, Object spec,
+      List<String> problems) {
+    Map<?, ?> fields = spec instanceof ConfigurationSection section ? section.getValues(false)
+        : spec instanceof Map<?, ?> map ? map : null;
+    String source = fields != null ? String.valueOf(fields.get("material")) : String.valueOf(spec);
+    if (spec == null || fields != null && fields.get("material") == null) {
+      problems.add("Ingrédient sans matériau dans le craft " + craftId);
+      return null;
+    }
+    NamespacedKey markerKey = new NamespacedKey(plugin, MARKER_KEY);
+
+    Set<Material> materials = EnumSet.noneOf(Material.class);
+    String craftRef = null;
+    if (source.startsWith("#")) {
+      NamespacedKey tagKey = NamespacedKey.fromString(source.substring(1).toLowerCase(Locale.ROOT));
+      Tag<Material> tag = tagKey != null ? Bukkit.getTag(Tag.REGISTRY_ITEMS, tagKey, Material.class) : null;
+      if (tag == null || tag.getValues().isEmpty()) {
+        problems.add("Tag inconnu: " + source + " dans le craft " + craftId);
+        return null;
+      }
+      materials.addAll(tag.getValues());
+    } else if (source.startsWith("craft:")) {
+      craftRef = source.substring("craft:".length());
+      ConfigurationSection crafts = craft.getParent();
+      String refMaterial = crafts != null ? crafts.getString(craftRef + ".result.material") : null;
+      Material material = refMaterial != null ? Material.getMaterial(refMaterial.toUpperCase(Locale.ROOT)) : null;
+      if (material == null || craftRef.equals(craftId)) {
+        problems.add("Craft référencé invalide: " + craftRef + " dans le craft " + craftId);
+        return null;
+      }
+      materials.add(material);
+    } else {
+      Material material = Material.getMaterial(source.toUpperCase(Locale.ROOT));
+      if (material == null) {
+        problems.add("Matériau inconnu: " + source + " dans le craft " + craftId);
+        return null;
+      }
+      materials.add(material);
+    }
+
+    String name = null;
+    List<String> lore = null;
+    if (fields != null) {
+      if (fields.get("name") != null) {
+        name = String.valueOf(fields.get("name")).replace('&', '§');
+      }
+      if (fields.get("lore") instanceof List<?> lines) {
+        lore = new ArrayList<>(lines.size());
+        for (Object line : lines) {
+          lore.add(String.valueOf(line).replace('&', '§'));
+        }
+      }
+    }
+    return new CraftIngredient(source, materials, craftRef, markerKey, name, lore);
+  }
+
+  // Empreinte stable du contenu d'une section (clés triées), indépendante de la mise en forme du YAML.
+  // Un ingrédient craft:<id> copie le matériau résultat du craft référencé: ce matériau en fait partie,
+  // pour que le reload recompile le craft quand le résultat référencé change.
+  public static long fingerprint(ConfigurationSection craft) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    Set<String> references = new TreeSet<>();
+    for (Map.Entry<String, Object> entry : new TreeMap<>(craft.getValues(true)).entrySet()) {
+      if (entry.getValue() instanceof ConfigurationSection) {
+        continue;
+      }
+      digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) '=');
+      digest.update(String.valueOf(entry.getValue()).getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) '\n');
+      collectReferences(entry.getValue(), references);
+    }
+    ConfigurationSection crafts = craft.getParent();
+    for (String reference : references) {
+      String material = crafts != null ? crafts.getString(reference + ".result.material") : null;
+      digest.update(("craft:" + reference + "=" + material + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+    return ByteBuffer.wrap(digest.digest()).getLong();
+  }
+
+  // Identifiants des ingrédients craft:<id>, dans une valeur simple, une liste (shapeless) ou une map
+  private static void collectReferences(Object value, Set<String> references) {
+    if (value instanceof String text && text.startsWith("craft:")) {
+      references.add(text.substring("craft:".length()));
+    } else if (value instanceof Iterable<?> values) {
+      for (Object element : values) {
+        collectReferences(element, references);
+      }
+    } else if (value instanceof Map<?, ?> map) {
+      for (Object element : map.values()) {
+        collectReferences(element, references);
+      }
+    }
+  }
+
+  private static Enchantment resolveEnchantment(String name) {
+    NamespacedKey key = NamespacedKey.fromString(name.toLowerCase(Locale.ROOT));
+    Enchantment enchantment = key != null ? Registry.ENCHANTMENT.get(key) : null;
+    if (enchantment == null) {
+      // Anciens noms Bukkit (DAMAGE_ALL, ...)
+      enchantment = Enchantment.getByName(name.toUpperCase(Locale.ROOT));
+    }
+    return enchantment;
+  }
+
+  // UUID déterministe dérivé du craft et de l'attribut
+  static UUID generateUUID(String craftId, String attributeName) {
+    return UUID.nameUUIDFromBytes((craftId + "_" + attributeName).getBytes(StandardCharsets.UTF_8));
+  }
+}
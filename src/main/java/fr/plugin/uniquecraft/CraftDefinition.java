@@ -0,0 +1,103 @@
+package fr.plugin.uniquecraft;
+
+import java.util.List;
+import java.util.Map;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeModifier;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.Recipe;
+
+// Craft unique compilé depuis crafts.yml. Immuable: un reload produit de nouvelles instances.
+public final class CraftDefinition {
+
+  public record AttributeEntry(Attribute attribute, AttributeModifier modifier) {
+  }
+
+  // Limites du craft (section limits: de crafts.yml). 0: illimité. perSeason: compteurs propres
+  // à la saison courante (settings.season).
+  public record Quota(int perServer, int perPlayer, boolean perSeason) {
+
+    // Un exemplaire par serveur, sans limite par joueur: le craft unique historique
+    public static final Quota UNIQUE = new Quota(1, 0, false);
+
+    // true si les exemplaires sont comptés par CraftQuotas plutôt que par le seul état du craft
+    public boolean counted() {
+      return !equals(UNIQUE);
+    }
+  }
+
+  private final String id;
+  private final NamespacedKey key;
+  private final ItemStack result;
+  private final CraftPattern pattern;
+  private final Messages.Localized message;
+  private final Quota quota;
+  private final Map<Enchantment, Integer> enchantments;
+  private final List<AttributeEntry> attributes;
+  private final long fingerprint;
+
+  public CraftDefinition(String id, NamespacedKey key, ItemStack result, CraftPattern pattern,
+      Messages.Localized message, Quota quota, Map<Enchantment, Integer> enchantments,
+      List<AttributeEntry> attributes, long fingerprint) {
+    this.id = id;
+    this.key = key;
+    this.result = result.clone();
+    this.pattern = pattern;
+    this.message = message;
+    this.quota = quota;
+    this.enchantments = Map.copyOf(enchantments);
+    this.attributes = List.copyOf(attributes);
+    this.fingerprint = fingerprint;
+  }
+
+  public String id() {
+    return id;
+  }
+
+  public NamespacedKey key() {
+    return key;
+  }
+
+  // Copie du modèle de résultat
+  public ItemStack result() {
+    return result.clone();
+  }
+
+  public Material resultMaterial() {
+    return result.getType();
+  }
+
+  // Ingrédients et forme (ou absence de forme)
+  public CraftPattern pattern() {
+    return pattern;
+  }
+
+  // Message de broadcast compilé, placeholders %player% puis %craft_id%
+  public Messages.Localized message() {
+    return message;
+  }
+
+  public Quota quota() {
+    return quota;
+  }
+
+  public Map<Enchantment, Integer> enchantments() {
+    return enchantments;
+  }
+
+  public List<AttributeEntry> attributes() {
+    return attributes;
+  }
+
+  // Empreinte de la section crafts.yml d'origine, pour le reload incrémental
+  public long fingerprint() {
+    return fingerprint;
+  }
+
+  public Recipe createRecipe() {
+    return pattern.createRecipe(key, result());
+  }
+}
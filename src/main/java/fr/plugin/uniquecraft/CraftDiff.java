@@ -0,0 +1,87 @@
+package fr.plugin.uniquecraft;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.bukkit.NamespacedKey;
+import org.bukkit.configuration.ConfigurationSection;
+
+// Différence entre l'index actuel et un crafts.yml relu: seuls les crafts ajoutés,
+// modifiés ou supprimés touchent à la table des recettes du serveur.
+public record CraftDiff(List<CraftDefinition> definitions, List<CraftDefinition> added,
+    List<CraftDefinition> changed, List<CraftDefinition> removed, Map<String, List<String>> problems) {
+
+  // Compile uniquement les sections dont l'empreinte a changé. Peut tourner hors du thread principal.
+  public static CraftDiff compute(RecipeIndex current, ConfigurationSection crafts, CraftCompiler compiler) {
+    List<CraftDefinition> definitions = new ArrayList<>();
+    List<CraftDefinition> added = new ArrayList<>();
+    List<CraftDefinition> changed = new ArrayList<>();
+    List<CraftDefinition> removed = new ArrayList<>();
+    Map<String, List<String>> problems = new LinkedHashMap<>();
+    Set<String> seen = new HashSet<>();
+    Map<NamespacedKey, String> keys = new HashMap<>();
+
+    for (String craftId : crafts.getKeys(false)) {
+      ConfigurationSection section = crafts.getConfigurationSection(craftId);
+      if (section == null) {
+        problems.put(craftId, List.of("Section invalide pour: " + craftId));
+        continue;
+      }
+      seen.add(craftId);
+
+      CraftDefinition previous = current.get(craftId);
+      if (previous != null && previous.fingerprint() == CraftCompiler.fingerprint(section)) {
+        String owner = keys.putIfAbsent(previous.key(), craftId);
+        if (owner == null) {
+          definitions.add(previous);
+        } else {
+          problems.put(craftId, List.of(CraftLoader.duplicateKey(previous, owner)));
+          removed.add(previous);
+        }
+        continue;
+      }
+
+      List<String> craftProblems = new ArrayList<>(0);
+      CraftDefinition compiled = compiler.compile(craftId, section, craftProblems);
+      if (compiled != null) {
+        // Même clé de recette qu'un craft précédent du fichier (identifiants différant par la casse)
+        String owner = keys.putIfAbsent(compiled.key(), craftId);
+        if (owner != null) {
+          craftProblems.add(CraftLoader.duplicateKey(compiled, owner));
+          compiled = null;
+        }
+      }
+      if (!craftProblems.isEmpty()) {
+        problems.put(craftId, craftProblems);
+      }
+      if (compiled == null) {
+        // Un craft devenu invalide est retiré du serveur
+        if (previous != null) {
+          removed.add(previous);
+        }
+        continue;
+      }
+      definitions.add(compiled);
+      if (previous == null) {
+        added.add(compiled);
+      } else {
+        changed.add(compiled);
+      }
+    }
+
+    for (CraftDefinition definition : current.definitions()) {
+      if (!seen.contains(definition.id())) {
+        removed.add(definition);
+      }
+    }
+    return new CraftDiff(definitions, added, changed, removed, problems);
+  }
+
+  public boolean isEmpty() {
+    return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+  }
+}
@@ -0,0 +1,115 @@
+package fr.plugin.uniquecraft;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import net.kyori.adventure.text.Component;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+// Messages de refus de PrepareItemCraftEvent, regroupés par joueur: déplacer des objets dans la grille
+// relance l'événement plusieurs fois par tick, le même refus (même craft, même raison) n'est envoyé
+// qu'une fois par fenêtre. L'expiration est suivie par une roue temporelle avancée d'une case par tick
+// (une seule tâche globale, aucune tâche par joueur); l'état d'un joueur est libéré à l'expiration
+// ou à la déconnexion.
+public final class CraftFeedback implements Listener {
+
+  public enum Mode {
+    ACTIONBAR, CHAT
+  }
+
+  // Dernier refus envoyé à un joueur, jusqu'au tick expiresAt
+  private record Entry(UUID player, Messages.Key key, String craftId, long expiresAt) {
+  }
+
+  private final Supplier<Messages> messages;
+  private final Mode mode;
+  private final int window;
+  private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+  // Case expiresAt & mask; plus de cases que de ticks dans la fenêtre, une entrée expire donc
+  // au premier passage sur sa case
+  private final Queue<Entry>[] wheel;
+  private final int mask;
+  private final LongAdder suppressed = new LongAdder();
+  // Écrit par la tâche globale uniquement
+  private volatile long now;
+  private PluginScheduler.Task task;
+
+  @SuppressWarnings("unchecked")
+  public CraftFeedback(Supplier<Messages> messages, Mode mode, int windowTicks) {
+    this.messages = messages;
+    this.mode = mode;
+    this.window = Math.max(1, windowTicks);
+    int size = Integer.highestOneBit(window) << 1;
+    this.wheel = new Queue[size];
+    for (int i = 0; i < size; i++) {
+      wheel[i] = new ConcurrentLinkedQueue<>();
+    }
+    this.mask = size - 1;
+  }
+
+  public void start(PluginScheduler scheduler) {
+    task = scheduler.runGlobalTimer(this::advance, 1L, 1L);
+  }
+
+  public void stop() {
+    if (task != null) {
+      task.cancel();
+      task = null;
+    }
+    entries.clear();
+  }
+
+  // Envoie le refus au joueur, sauf s'il a déjà reçu le même pendant la fenêtre en cours
+  public void blocked(Player viewer, String craftId, Messages.Key key) {
+    long tick = now;
+    UUID uuid = viewer.getUniqueId();
+    Entry current = entries.get(uuid);
+    if (current != null && current.expiresAt() > tick && current.key() == key
+        && current.craftId().equals(craftId)) {
+      suppressed.increment();
+      return;
+    }
+    Entry entry = new Entry(uuid, key, craftId, tick + window);
+    entries.put(uuid, entry);
+    wheel[(int) (entry.expiresAt() & mask)].add(entry);
+    Component message = messages.get().render(viewer, key);
+    if (mode == Mode.ACTIONBAR) {
+      viewer.sendActionBar(message);
+    } else {
+      viewer.sendMessage(message);
+    }
+  }
+
+  // Refus non envoyés car déjà reçus pendant la fenêtre
+  public long suppressed() {
+    return suppressed.sum();
+  }
+
+  public int tracked() {
+    return entries.size();
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onQuit(PlayerQuitEvent event) {
+    entries.remove(event.getPlayer().getUniqueId());
+  }
+
+  private void advance() {
+    long tick = now + 1;
+    now = tick;
+    Queue<Entry> bucket = wheel[(int) (tick & mask)];
+    Entry entry;
+    while ((entry = bucket.poll()) != null) {
+      // Sans effet si le joueur a reçu un autre refus depuis, ou s'est déconnecté
+      entries.remove(entry.player(), entry);
+    }
+  }
+}
@@ -0,0 +1,414 @@
+package fr.plugin.uniquecraft;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+// Historique des crafts uniques: qui, quand, où, quel exemplaire. L'événement de craft dépose
+// l'entrée dans un tampon circulaire borné sans verrou (un compare-and-set, aucune E/S); un thread
+// dédié le vide par lots dans des segments gzip (history/segment-NNNNNN.gz, une ligne par craft)
+// qui tournent après un nombre fixe d'entrées. L'index history/index.yml donne, pour chaque craft
+// et chaque joueur, les segments où il apparaît: /uniquecraft history ne décompresse que ceux-là.
+public final class CraftHistory {
+
+  public record Entry(long time, String craftId, UUID player, String name, String world, int x, int y, int z,
+      String serial) {
+  }
+
+  private static final int BATCH = 512;
+  private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".gz";
+
+  private final Path folder;
+  private final Path indexFile;
+  private final int segmentSize;
+  private final Logger logger;
+  private final Trace trace;
+  private final LatencyHistogram writeLatency;
+  private final LongAdder dropped = new LongAdder();
+
+  // Tampon circulaire à producteurs multiples (régions Folia), consommateur unique: la séquence d'une
+  // case indique si elle est libre pour la position tail ou remplie pour la position head
+  private final Entry[] slots;
+  private final AtomicLongArray sequences;
+  private final int mask;
+  private final AtomicLong tail = new AtomicLong();
+  private long head;
+
+  // Index: clé (craft, UUID joueur) -> numéros de segment croissants. Protégé par this.
+  private final Map<String, List<Integer>> crafts = new HashMap<>();
+  private final Map<String, List<Integer>> players = new HashMap<>();
+  // Dernier nom connu (minuscules) -> UUID
+  private final Map<String, String> names = new HashMap<>();
+  private int segment;
+
+  // État du thread d'écriture
+  private Writer out;
+  private int segmentEntries;
+  private volatile boolean running;
+  private Thread writer;
+
+  // capacity: arrondie à la puissance de deux supérieure
+  public CraftHistory(Path folder, int capacity, int segmentSize, Logger logger, CraftMetrics metrics, Trace trace) {
+    this.folder = folder;
+    this.indexFile = folder.resolve("index.yml");
+    this.segmentSize = Math.max(1, segmentSize);
+    this.logger = logger;
+    this.trace = trace;
+    this.writeLatency = metrics.persistence("history");
+    int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    this.slots = new Entry[size];
+    this.sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+    this.mask = size - 1;
+  }
+
+  // Événement de craft. Ne bloque jamais: entrée perdue (et comptée) si le tampon est plein.
+  public void record(Entry entry) {
+    long position = tail.get();
+    while (true) {
+      int index = (int) position & mask;
+      long difference = sequences.get(index) - position;
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          slots[index] = entry;
+          sequences.lazySet(index, position + 1);
+          return;
+        }
+        position = tail.get();
+      } else if (difference < 0) {
+        dropped.increment();
+        return;
+      } else {
+        position = tail.get();
+      }
+    }
+  }
+
+  // Entrées perdues depuis le démarrage, tampon plein
+  public long dropped() {
+    return dropped.sum();
+  }
+
+  // Lit l'index et réindexe les segments qu'il ne couvre pas entièrement (arrêt brutal). Bloquant (onEnable).
+  public synchronized void load() {
+    try {
+      Files.createDirectories(folder);
+      int indexed = 0;
+      if (Files.exists(indexFile)) {
+        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(indexFile.toFile());
+        indexed = yaml.getInt("segment");
+        readKeys(yaml.getConfigurationSection("crafts"), crafts);
+        readKeys(yaml.getConfigurationSection("players"), players);
+        ConfigurationSection section = yaml.getConfigurationSection("names");
+        if (section != null) {
+          for (String name : section.getKeys(false)) {
+            names.put(name, section.getString(name));
+          }
+        }
+      }
+      List<Integer> existing = segments();
+      segment = existing.isEmpty() ? 0 : existing.get(existing.size() - 1);
+      for (int number : existing) {
+        if (number >= indexed) {
+          for (Entry entry : read(number)) {
+            index(entry, number);
+          }
+        }
+      }
+      if (segment > indexed) {
+        writeIndex();
+      }
+    } catch (IOException e) {
+      logger.severe("§cErreur lors de la lecture de l'historique des crafts: " + e.getMessage());
+    }
+  }
+
+  public synchronized void start() {
+    if (writer != null) {
+      return;
+    }
+    running = true;
+    writer = new Thread(this::drain, "UniqueCrafts-History");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  // Entrées d'un craft (identifiant exact) ou d'un joueur (nom ou UUID), de la plus récente à la plus
+  // ancienne, au plus limit. Décompresse les segments concernés: hors du thread principal uniquement.
+  public List<Entry> query(String target, int limit) {
+    String craftKey = null;
+    String playerKey = null;
+    List<Integer> candidates;
+    synchronized (this) {
+      if (crafts.containsKey(target)) {
+        craftKey = target;
+        candidates = new ArrayList<>(crafts.get(target));
+      } else {
+        playerKey = names.getOrDefault(target.toLowerCase(Locale.ROOT), target.toLowerCase(Locale.ROOT));
+        candidates = new ArrayList<>(players.getOrDefault(playerKey, List.of()));
+      }
+    }
+    List<Entry> found = new ArrayList<>();
+    for (int i = candidates.size() - 1; i >= 0 && found.size() < limit; i--) {
+      List<Entry> matching = new ArrayList<>();
+      for (Entry entry : read(candidates.get(i))) {
+        if (craftKey != null ? entry.craftId().equals(craftKey) : entry.player().toString().equals(playerKey)) {
+          matching.add(entry);
+        }
+      }
+      Collections.reverse(matching);
+      found.addAll(matching.subList(0, Math.min(matching.size(), limit - found.size())));
+    }
+    return found;
+  }
+
+  // Écrit les entrées restantes et ferme le segment courant. Bloquant, à appeler au onDisable.
+  public void close() {
+    Thread thread;
+    synchronized (this) {
+      thread = writer;
+      writer = null;
+      running = false;
+    }
+    if (thread != null) {
+      LockSupport.unpark(thread);
+      try {
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void drain() {
+    List<Entry> batch = new ArrayList<>(BATCH);
+    while (true) {
+      boolean stopping = !running;
+      Entry entry;
+      while (batch.size() < BATCH && (entry = poll()) != null) {
+        batch.add(entry);
+      }
+      if (!batch.isEmpty()) {
+        write(batch);
+        batch.clear();
+      } else if (stopping) {
+        break;
+      } else {
+        LockSupport.parkNanos(IDLE_NANOS);
+      }
+    }
+    closeSegment();
+  }
+
+  private Entry poll() {
+    int index = (int) head & mask;
+    if (sequences.get(index) != head + 1) {
+      return null;
+    }
+    Entry entry = slots[index];
+    slots[index] = null;
+    sequences.lazySet(index, head + slots.length);
+    head++;
+    return entry;
+  }
+
+  // Thread d'écriture: les lignes du lot, puis un vidage gzip (SYNC_FLUSH) qui rend le lot lisible
+  // sans fermer le segment
+  private void write(List<Entry> batch) {
+    long start = System.nanoTime();
+    boolean indexChanged = false;
+    try {
+      for (Entry entry : batch) {
+        if (out == null) {
+          openSegment();
+        }
+        out.write(format(entry));
+        synchronized (this) {
+          indexChanged |= index(entry, segment);
+        }
+        if (++segmentEntries >= segmentSize) {
+          closeSegment();
+        }
+      }
+      if (out != null) {
+        out.flush();
+      }
+    } catch (IOException e) {
+      logger.severe("§cErreur lors de l'écriture de l'historique des crafts: " + e.getMessage());
+      closeSegment();
+    }
+    if (indexChanged) {
+      synchronized (this) {
+        writeIndex();
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    writeLatency.record(elapsed);
+    trace.log(Trace.Category.PERSISTENCE, "Historique: {} entrée(s) écrite(s), segment {}", batch.size(), segment);
+  }
+
+  private void openSegment() throws IOException {
+    int number;
+    synchronized (this) {
+      number = ++segment;
+    }
+    out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(
+        segmentFile(number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), 8192, true),
+        StandardCharsets.UTF_8));
+    segmentEntries = 0;
+  }
+
+  private void closeSegment() {
+    if (out == null) {
+      return;
+    }
+    try {
+      out.close();
+    } catch (IOException e) {
+      logger.severe("§cErreur lors de la fermeture d'un segment d'historique: " + e.getMessage());
+    }
+    out = null;
+  }
+
+  // Sous le verrou. Retourne true si l'index a changé.
+  private boolean index(Entry entry, int number) {
+    boolean changed = addSegment(crafts, entry.craftId(), number);
+    changed |= addSegment(players, entry.player().toString(), number);
+    return !entry.player().toString().equals(names.put(entry.name().toLowerCase(Locale.ROOT),
+        entry.player().toString())) | changed;
+  }
+
+  private static boolean addSegment(Map<String, List<Integer>> keys, String key, int number) {
+    List<Integer> segments = keys.computeIfAbsent(key, k -> new ArrayList<>());
+    if (!segments.isEmpty() && segments.get(segments.size() - 1) >= number) {
+      return false;
+    }
+    segments.add(number);
+    return true;
+  }
+
+  // Sous le verrou
+  private void writeIndex() {
+    YamlConfiguration yaml = new YamlConfiguration();
+    yaml.set("segment", segment);
+    for (Map.Entry<String, List<Integer>> entry : crafts.entrySet()) {
+      yaml.set("crafts." + entry.getKey(), entry.getValue());
+    }
+    for (Map.Entry<String, List<Integer>> entry : players.entrySet()) {
+      yaml.set("players." + entry.getKey(), entry.getValue());
+    }
+    for (Map.Entry<String, String> entry : names.entrySet()) {
+      yaml.set("names." + entry.getKey(), entry.getValue());
+    }
+    try {
+      CraftsPersistence.writeAtomically(indexFile, yaml.saveToString());
+    } catch (IOException e) {
+      logger.severe("§cErreur lors de la sauvegarde de l'index de l'historique: " + e.getMessage());
+    }
+  }
+
+  private static void readKeys(ConfigurationSection section, Map<String, List<Integer>> keys) {
+    if (section == null) {
+      return;
+    }
+    for (String key : section.getKeys(false)) {
+      keys.put(key, new ArrayList<>(section.getIntegerList(key)));
+    }
+  }
+
+  private List<Integer> segments() throws IOException {
+    List<Integer> numbers = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        try {
+          numbers.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+              name.length() - SEGMENT_SUFFIX.length())));
+        } catch (NumberFormatException e) {
+          // Fichier étranger au format des segments
+        }
+      }
+    }
+    numbers.sort(null);
+    return numbers;
+  }
+
+  private Path segmentFile(int number) {
+    return folder.resolve(String.format(Locale.ROOT, "%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+  }
+
+  // Segment en cours d'écriture ou interrompu par un arrêt brutal: lu jusqu'au dernier lot vidé
+  private List<Entry> read(int number) {
+    List<Entry> entries = new ArrayList<>();
+    Path file = segmentFile(number);
+    if (!Files.exists(file)) {
+      return entries;
+    }
+    // Décompression complète avant découpage: sur un segment non terminé, la fin de flux arrive en
+    // exception et un lecteur de lignes perdrait ce qu'il avait en tampon
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+      in.transferTo(bytes);
+    } catch (EOFException e) {
+      // Segment non terminé: les lots déjà vidés restent lisibles
+    } catch (IOException e) {
+      logger.warning("§eSegment d'historique illisible " + file.getFileName() + ": " + e.getMessage());
+    }
+    for (String line : bytes.toString(StandardCharsets.UTF_8).split("\n")) {
+      Entry entry = parse(line);
+      if (entry != null) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  private static String format(Entry entry) {
+    return entry.time() + "\t" + entry.craftId() + "\t" + entry.player() + "\t" + entry.name() + "\t"
+        + entry.world() + "\t" + entry.x() + "\t" + entry.y() + "\t" + entry.z() + "\t" + entry.serial() + "\n";
+  }
+
+  // null pour une ligne incomplète ou illisible
+  private static Entry parse(String line) {
+    String[] fields = line.split("\t", -1);
+    if (fields.length != 9) {
+      return null;
+    }
+    try {
+      return new Entry(Long.parseLong(fields[0]), fields[1], UUID.fromString(fields[2]), fields[3], fields[4],
+          Integer.parseInt(fields[5]), Integer.parseInt(fields[6]), Integer.parseInt(fields[7]), fields[8]);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package fr.plugin.uniquecraft;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.RecipeChoice;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataType;
+
+// Ingrédient d'un craft: matériau, tag (#minecraft:logs), objet d'un autre craft unique (craft:<id>)
+// ou objet exact (matériau + nom/lore). Le serveur ne compare que les matériaux (MaterialChoice);
+// la comparaison de l'ItemMeta est faite par RecipeIndex, seulement pour les grilles candidates.
+public final class CraftIngredient {
+
+  private final String source;
+  private final Set<Material> materials;
+  // Identifiant du craft attendu dans le marqueur PDC, null si indifférent
+  private final String craftRef;
+  private final NamespacedKey markerKey;
+  private final String name;
+  private final List<String> lore;
+
+  // materials: non vide
+  public CraftIngredient(String source, Set<Material> materials, String craftRef, NamespacedKey markerKey,
+      String name, List<String> lore) {
+    this.source = source;
+    this.materials = Collections.unmodifiableSet(EnumSet.copyOf(materials));
+    this.craftRef = craftRef;
+    this.markerKey = markerKey;
+    this.name = name;
+    this.lore = lore == null ? null : List.copyOf(lore);
+  }
+
+  // Texte d'origine dans crafts.yml
+  public String source() {
+    return source;
+  }
+
+  public Set<Material> materials() {
+    return materials;
+  }
+
+  // Craft attendu dans le marqueur (craft:<id>), nom et lore exacts: null si indifférent
+  public String craftRef() {
+    return craftRef;
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public List<String> lore() {
+    return lore;
+  }
+
+  // true si l'ItemMeta doit être comparée en plus du matériau
+  public boolean exact() {
+    return craftRef != null || name != null || lore != null;
+  }
+
+  public boolean accepts(Material material) {
+    return materials.contains(material);
+  }
+
+  // Comparaison complète, ItemMeta comprise
+  public boolean matches(ItemStack stack) {
+    if (stack == null || !accepts(stack.getType())) {
+      return false;
+    }
+    if (!exact()) {
+      return true;
+    }
+    if (!stack.hasItemMeta()) {
+      return false;
+    }
+    ItemMeta meta = stack.getItemMeta();
+    if (craftRef != null && !craftRef.equals(meta.getPersistentDataContainer().get(markerKey,
+        PersistentDataType.STRING))) {
+      return false;
+    }
+    if (name != null && !(meta.hasDisplayName() && name.equals(meta.getDisplayName()))) {
+      return false;
+    }
+    return lore == null || lore.equals(meta.getLore());
+  }
+
+  public RecipeChoice choice() {
+    return new RecipeChoice.MaterialChoice(new ArrayList<>(materials));
+  }
+
+  // Clé des matériaux acceptés, indépendante de l'ordre: deux crafts de même clé se confondent pour le serveur
+  String materialKey() {
+    List<String> names = new ArrayList<>(materials.size());
+    for (Material material : materials) {
+      names.add(material.name());
+    }
+    names.sort(null);
+    return String.join("/", names);
+  }
+}
@@ -0,0 +1,308 @@
+package fr.plugin.uniquecraft;
+
+import fr.plugin.uniquecraft.Trace.Category;
+import java.util.List;
+import java.util.function.Supplier;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.CraftItemEvent;
+import org.bukkit.event.inventory.PrepareItemCraftEvent;
+import org.bukkit.inventory.CraftingInventory;
+import org.bukkit.inventory.Recipe;
+
+// Événements de craft. La logique de décision est exposée séparément des événements
+// (allowPrepare / allowCraft) pour être mesurable sans serveur complet.
+public class CraftListener implements Listener {
+
+  private final Trace trace;
+  private final Supplier<RecipeIndex> recipes;
+  private final ClaimRegistry claimRegistry;
+  private final ClaimStore claimStore;
+  private final PluginScheduler scheduler;
+  private final CraftMetrics metrics;
+  private final Supplier<Messages> messages;
+  // null: refus envoyés dans le chat à chaque événement, sans regroupement
+  private final CraftFeedback feedback;
+  // null: limites désactivées (tous les crafts sont uniques)
+  private final CraftQuotas quotas;
+  // null: serveur isolé, sans coordination réseau
+  private final NetworkClaims network;
+
+  public CraftListener(Trace trace, Supplier<RecipeIndex> recipes, ClaimRegistry claimRegistry,
+      ClaimStore claimStore, PluginScheduler scheduler, CraftMetrics metrics, Supplier<Messages> messages,
+      CraftFeedback feedback, CraftQuotas quotas, NetworkClaims network) {
+    this.trace = trace;
+    this.recipes = recipes;
+    this.claimRegistry = claimRegistry;
+    this.claimStore = claimStore;
+    this.scheduler = scheduler;
+    this.metrics = metrics;
+    this.messages = messages;
+    this.feedback = feedback;
+    this.quotas = quotas;
+    this.network = network;
+  }
+
+  @EventHandler
+  public void onPrepareCraft(PrepareItemCraftEvent event) {
+    long start = System.nanoTime();
+    try {
+      Recipe recipe = event.getRecipe();
+      if (recipe == null)
+        return;
+
+      // Vérifier si c'est une de nos recettes uniques
+      RecipeIndex index = recipes.get();
+      CraftDefinition matched = index.find(recipe);
+      if (matched == null)
+        return;
+
+      // Ingrédients exacts ou recette partagée: départager à partir de la grille
+      CraftingInventory inventory = event.getInventory();
+      CraftDefinition definition = index.resolve(matched, inventory.getMatrix());
+      if (definition == null) {
+        trace.log(Category.PREPARE, "Grille refusée: ingrédients exacts de {} absents", matched.id());
+        inventory.setResult(null);
+        return;
+      }
+      if (definition != matched) {
+        inventory.setResult(definition.result());
+      }
+
+      List<HumanEntity> viewers = event.getViewers();
+      Player viewer = !viewers.isEmpty() && viewers.get(0) instanceof Player player ? player : null;
+      if (!allowPrepare(definition, viewer, viewers)) {
+        inventory.setResult(null);
+      }
+    } finally {
+      metrics.recordPrepare(System.nanoTime() - start);
+    }
+  }
+
+  // Retourne false si le résultat doit être retiré de la grille
+  public boolean allowPrepare(CraftDefinition definition, Player viewer) {
+    return allowPrepare(definition, viewer, viewer == null ? List.of() : List.of(viewer));
+  }
+
+  // viewer: joueur pour qui le craft est réservé; viewers: tous ceux qui voient la grille, prévenus d'un refus
+  private boolean allowPrepare(CraftDefinition definition, Player viewer, List<? extends HumanEntity> viewers) {
+    String craftId = definition.id();
+    trace.log(Category.PREPARE, "Craft détecté: {}", craftId);
+    metrics.prepared(craftId);
+
+    // Vérifier si cet objet a déjà été crafté globalement
+    if (claimRegistry.isClaimed(craftId)) {
+      metrics.blocked(craftId, CraftMetrics.Blocked.CLAIMED);
+      blocked(viewers, craftId, Messages.Key.CRAFT_ALREADY_EXISTS);
+      trace.log(Category.PREPARE, "Craft bloqué: {} déjà fait par serveur", craftId);
+      return false;
+    }
+
+    // Limites par joueur (crafts à plusieurs exemplaires)
+    boolean counted = quotas != null && definition.quota().counted();
+    if (counted && viewer != null && !allowQuota(definition, viewer, viewers)) {
+      return false;
+    }
+    // Un craft à plusieurs exemplaires n'est exclusif (réservation, lease réseau) que pour son
+    // dernier exemplaire: les autres sont comptés par serveur
+    boolean exclusive = !counted || lastCopy(definition);
+
+    // Lease en cours sur un autre serveur (cache local, aucun appel distant)
+    if (exclusive && network != null && network.heldElsewhere(craftId)) {
+      metrics.blocked(craftId, CraftMetrics.Blocked.NETWORK);
+      blocked(viewers, craftId, Messages.Key.CRAFT_NETWORK_BUSY);
+      trace.log(Category.PREPARE, "Craft bloqué: {} loué par un autre serveur", craftId);
+      return false;
+    }
+
+    // Réserver le craft pour le joueur qui prépare la grille
+    if (exclusive && viewer != null && !claimRegistry.reserve(craftId, viewer.getUniqueId())) {
+      metrics.blocked(craftId, CraftMetrics.Blocked.RESERVED);
+      blocked(viewers, craftId, Messages.Key.CRAFT_RESERVED);
+      trace.log(Category.PREPARE, "Craft bloqué: {} réservé par un autre joueur", craftId);
+      return false;
+    }
+    if (exclusive && network != null && viewer != null) {
+      network.prepare(craftId, viewer.getUniqueId());
+    }
+    trace.log(Category.PREPARE, "Craft autorisé: {} pas encore fait", craftId);
+    return true;
+  }
+
+  private boolean allowQuota(CraftDefinition definition, Player viewer, List<? extends HumanEntity> viewers) {
+    CraftQuotas.Result result = quotas.check(definition, viewer.getUniqueId());
+    if (result == CraftQuotas.Result.ACCEPTED || result == CraftQuotas.Result.LAST) {
+      return true;
+    }
+    metrics.blocked(definition.id(), CraftMetrics.Blocked.QUOTA);
+    blocked(viewers, definition.id(), refusal(result));
+    trace.log(Category.PREPARE, "Craft bloqué: {} ({})", definition.id(), result);
+    return false;
+  }
+
+  // Raison du résultat vide, pour chaque joueur qui voit la grille
+  private void blocked(List<? extends HumanEntity> viewers, String craftId, Messages.Key key) {
+    for (HumanEntity viewer : viewers) {
+      if (!(viewer instanceof Player player)) {
+        continue;
+      }
+      if (feedback != null) {
+        feedback.blocked(player, craftId, key);
+      } else {
+        messages.get().send(player, key);
+      }
+    }
+  }
+
+  private static Messages.Key refusal(CraftQuotas.Result result) {
+    return switch (result) {
+      case PLAYER_LIMIT -> Messages.Key.CRAFT_QUOTA_PLAYER;
+      case NOT_LOADED -> Messages.Key.CRAFT_QUOTA_PENDING;
+      case LEASE_REQUIRED -> Messages.Key.CRAFT_NETWORK_PENDING;
+      default -> Messages.Key.CRAFT_ALREADY_EXISTS;
+    };
+  }
+
+  private boolean lastCopy(CraftDefinition definition) {
+    int perServer = definition.quota().perServer();
+    return perServer > 0 && quotas.serverCount(definition) + 1 >= perServer;
+  }
+
+  @EventHandler
+  public void onCraftItem(CraftItemEvent event) {
+    long start = System.nanoTime();
+    try {
+      if (event.getWhoClicked() instanceof Player) {
+        Player player = (Player) event.getWhoClicked();
+        Recipe recipe = event.getRecipe();
+
+        if (recipe == null)
+          return;
+
+        RecipeIndex index = recipes.get();
+        CraftDefinition matched = index.find(recipe);
+        if (matched == null)
+          return;
+
+        CraftDefinition definition = index.resolve(matched, event.getInventory().getMatrix());
+        if (definition == null) {
+          event.setCancelled(true);
+          return;
+        }
+
+        if (!allowCraft(definition, player, event.isShiftClick())) {
+          event.setCancelled(true);
+        }
+      }
+    } finally {
+      metrics.recordCraft(System.nanoTime() - start);
+    }
+  }
+
+  // Décision complète de onCraftItem. Retourne false si l'événement doit être annulé.
+  public boolean allowCraft(CraftDefinition definition, Player player, boolean shiftClick) {
+    // Le shift-clic craft autant d'exemplaires que la grille le permet
+    if (shiftClick) {
+      metrics.blocked(definition.id(), CraftMetrics.Blocked.SHIFT_CLICK);
+      trace.log(Category.CRAFT, "Shift-clic refusé: {} par {}", definition.id(), player.getName());
+      messages.get().send(player, Messages.Key.CRAFT_SHIFT_CLICK);
+      return false;
+    }
+    return craft(definition, player);
+  }
+
+  // Valide le craft pour ce joueur. Retourne false si le craft doit être annulé.
+  public boolean craft(CraftDefinition definition, Player player) {
+    String craftId = definition.id();
+    trace.log(Category.CRAFT, "Tentative de craft: {} par {}", craftId, player.getName());
+
+    // En réseau, le craft exige un lease confirmé (demandé à la préparation de la grille), sauf les
+    // exemplaires d'un craft à limites avant le dernier
+    boolean counted = quotas != null && definition.quota().counted();
+    ClaimCoordinator.Lease lease = null;
+    if (network != null && (!counted || lastCopy(definition))) {
+      lease = network.lease(craftId);
+      if (lease == null) {
+        network.prepare(craftId, player.getUniqueId());
+        metrics.blocked(craftId, CraftMetrics.Blocked.NETWORK);
+        messages.get().send(player, Messages.Key.CRAFT_NETWORK_PENDING);
+        trace.log(Category.CRAFT, "Craft différé: {} sans lease réseau", craftId);
+        return false;
+      }
+    }
+
+    if (counted) {
+      return craftCounted(definition, player, lease);
+    }
+
+    // Valider la réservation: un seul appel peut passer le craft à CLAIMED
+    if (!claimRegistry.commit(craftId, player.getUniqueId())) {
+      metrics.blocked(craftId, CraftMetrics.Blocked.COMMIT);
+      messages.get().send(player, Messages.Key.CRAFT_ALREADY_EXISTS);
+      trace.log(Category.CRAFT, "Craft annulé: {} déjà fait ou réservé", craftId);
+      return false;
+    }
+
+    // Enregistrer dans le journal (écriture hors thread principal)
+    claimStore.claim(craftId, player.getUniqueId());
+    if (lease != null) {
+      network.commit(lease, player.getUniqueId());
+    }
+    crafted(definition, player);
+    return true;
+  }
+
+  // Craft à plusieurs exemplaires: la réservation éventuelle est rendue, l'exemplaire est compté
+  // par CraftQuotas; seul le dernier exemplaire du serveur fait passer le craft à CLAIMED (et valide
+  // le lease réseau, pris pour lui seul).
+  private boolean craftCounted(CraftDefinition definition, Player player, ClaimCoordinator.Lease lease) {
+    String craftId = definition.id();
+    if (!claimRegistry.consume(craftId, player.getUniqueId())) {
+      metrics.blocked(craftId, CraftMetrics.Blocked.COMMIT);
+      messages.get().send(player, Messages.Key.CRAFT_RESERVED);
+      trace.log(Category.CRAFT, "Craft annulé: {} déjà fait ou réservé", craftId);
+      return false;
+    }
+    // Sans lease, le dernier exemplaire n'est pas compté (atteint entre la vérification et ici)
+    CraftQuotas.Result result = quotas.record(definition, player.getUniqueId(), network == null || lease != null);
+    switch (result) {
+      case ACCEPTED -> {
+      }
+      case LAST -> {
+        claimRegistry.markClaimed(craftId, player.getUniqueId());
+        claimStore.claim(craftId, player.getUniqueId());
+        if (lease != null) {
+          network.commit(lease, player.getUniqueId());
+        }
+      }
+      case LEASE_REQUIRED -> {
+        network.prepare(craftId, player.getUniqueId());
+        metrics.blocked(craftId, CraftMetrics.Blocked.NETWORK);
+        messages.get().send(player, refusal(result));
+        trace.log(Category.CRAFT, "Craft différé: {} dernier exemplaire sans lease réseau", craftId);
+        return false;
+      }
+      default -> {
+        metrics.blocked(craftId, CraftMetrics.Blocked.QUOTA);
+        messages.get().send(player, refusal(result));
+        trace.log(Category.CRAFT, "Craft annulé: {} ({})", craftId, result);
+        return false;
+      }
+    }
+    crafted(definition, player);
+    return true;
+  }
+
+  private void crafted(CraftDefinition definition, Player player) {
+    String craftId = definition.id();
+    metrics.crafted(craftId);
+
+    // Annonce rendue une fois par langue présente, envoyée en un seul broadcast
+    Messages current = messages.get();
+    current.broadcast(definition.message(), scheduler, player.getName(), craftId);
+    current.send(player, Messages.Key.CRAFT_SUCCESS);
+    trace.log(Category.CRAFT, "Craft réussi: {} par {}", craftId, player.getName());
+  }
+}
@@ -0,0 +1,89 @@
+package fr.plugin.uniquecraft;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.bukkit.NamespacedKey;
+import org.bukkit.configuration.ConfigurationSection;
+
+// Chargement en masse de crafts.yml: les sections sont validées et compilées en parallèle
+// (pool fork-join commun), les problèmes sont regroupés pour un seul résumé.
+public final class CraftLoader {
+
+  public record Result(List<CraftDefinition> definitions, Map<String, List<String>> problems,
+      int invalid, long compileNanos) {
+  }
+
+  private record Compiled(String craftId, CraftDefinition definition, List<String> problems) {
+  }
+
+  private CraftLoader() {
+  }
+
+  public static Result compileAll(ConfigurationSection crafts, CraftCompiler compiler) {
+    long start = System.nanoTime();
+    List<String> ids = new ArrayList<>(crafts.getKeys(false));
+
+    // Lecture seule de la configuration: sûre en parallèle. L'ordre du fichier est conservé.
+    List<Compiled> compiled = ids.parallelStream()
+        .map(craftId -> {
+          List<String> problems = new ArrayList<>(0);
+          ConfigurationSection section = crafts.getConfigurationSection(craftId);
+          if (section == null) {
+            problems.add("Section invalide pour: " + craftId);
+            return new Compiled(craftId, null, problems);
+          }
+          try {
+            return new Compiled(craftId, compiler.compile(craftId, section, problems), problems);
+          } catch (RuntimeException e) {
+            problems.add("Erreur inattendue: " + e);
+            return new Compiled(craftId, null, problems);
+          }
+        })
+        .toList();
+
+    List<CraftDefinition> definitions = new ArrayList<>(compiled.size());
+    Map<String, List<String>> problems = new LinkedHashMap<>();
+    // La clé de recette est en minuscules: "Ultio" et "ultio" se disputeraient la même recette
+    Map<NamespacedKey, String> keys = new HashMap<>();
+    int invalid = 0;
+    for (Compiled entry : compiled) {
+      CraftDefinition definition = entry.definition();
+      if (definition != null) {
+        String owner = keys.putIfAbsent(definition.key(), entry.craftId());
+        if (owner != null) {
+          entry.problems().add(duplicateKey(definition, owner));
+          definition = null;
+        }
+      }
+      if (definition != null) {
+        definitions.add(definition);
+      } else {
+        invalid++;
+      }
+      if (!entry.problems().isEmpty()) {
+        problems.put(entry.craftId(), entry.problems());
+      }
+    }
+    return new Result(definitions, Collections.unmodifiableMap(problems), invalid, System.nanoTime() - start);
+  }
+
+  static String duplicateKey(CraftDefinition definition, String owner) {
+    return "Clé de recette " + definition.key() + " déjà utilisée par le craft " + owner + ", craft ignoré";
+  }
+
+  // Résumé multi-lignes des problèmes, pour un seul appel au logger
+  public static String summarize(Map<String, List<String>> problems) {
+    StringBuilder summary = new StringBuilder();
+    for (Map.Entry<String, List<String>> entry : problems.entrySet()) {
+      summary.append("\n  ").append(entry.getKey()).append(':');
+      for (String problem : entry.getValue()) {
+        summary.append("\n    - ").append(problem);
+      }
+    }
+    return summary.toString();
+  }
+}
@@ -0,0 +1,214 @@
+package fr.plugin.uniquecraft;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Compteurs et histogrammes du plugin. Les chemins chauds ne font que des incréments de
+// LongAdder; les totaux sont calculés à la demande (/uniquecraft stats, endpoint Prometheus).
+public final class CraftMetrics {
+
+  // Raisons pour lesquelles un craft unique est refusé
+  public enum Blocked {
+    CLAIMED, RESERVED, SHIFT_CLICK, COMMIT, NETWORK, QUOTA
+  }
+
+  // Compteurs d'un craft unique, conservés d'un reload à l'autre
+  public static final class CraftCounters {
+    private final LongAdder prepared = new LongAdder();
+    private final LongAdder crafted = new LongAdder();
+    private final LongAdder[] blocked = new LongAdder[Blocked.values().length];
+
+    private CraftCounters() {
+      for (int i = 0; i < blocked.length; i++) {
+        blocked[i] = new LongAdder();
+      }
+    }
+
+    public long prepared() {
+      return prepared.sum();
+    }
+
+    public long crafted() {
+      return crafted.sum();
+    }
+
+    public long blocked(Blocked reason) {
+      return blocked[reason.ordinal()].sum();
+    }
+
+    public long blocked() {
+      long total = 0;
+      for (LongAdder adder : blocked) {
+        total += adder.sum();
+      }
+      return total;
+    }
+  }
+
+  private final LatencyHistogram prepareLatency = new LatencyHistogram();
+  private final LatencyHistogram craftLatency = new LatencyHistogram();
+  private final LatencyHistogram registerLatency = new LatencyHistogram();
+  private final Map<String, LatencyHistogram> persistenceLatency = new ConcurrentHashMap<>();
+  private final Map<String, CraftCounters> crafts = new ConcurrentHashMap<>();
+
+  // Durée d'un onPrepareCraft (toutes recettes confondues)
+  public void recordPrepare(long nanos) {
+    prepareLatency.record(nanos);
+  }
+
+  // Durée d'un onCraftItem (toutes recettes confondues)
+  public void recordCraft(long nanos) {
+    craftLatency.record(nanos);
+  }
+
+  // Durée d'un enregistrement groupé de recettes (chargement ou reload)
+  public void recordRegister(long nanos) {
+    registerLatency.record(nanos);
+  }
+
+  // Histogramme d'écriture d'un stockage: crafts_yml, journal, database, network
+  public LatencyHistogram persistence(String store) {
+    LatencyHistogram histogram = persistenceLatency.get(store);
+    return histogram != null ? histogram : persistenceLatency.computeIfAbsent(store, s -> new LatencyHistogram());
+  }
+
+  public void prepared(String craftId) {
+    counters(craftId).prepared.increment();
+  }
+
+  public void crafted(String craftId) {
+    counters(craftId).crafted.increment();
+  }
+
+  public void blocked(String craftId, Blocked reason) {
+    counters(craftId).blocked[reason.ordinal()].increment();
+  }
+
+  public CraftCounters counters(String craftId) {
+    CraftCounters counters = crafts.get(craftId);
+    return counters != null ? counters : crafts.computeIfAbsent(craftId, id -> new CraftCounters());
+  }
+
+  // Résumé lisible pour /uniquecraft stats
+  public List<String> summary() {
+    List<String> lines = new ArrayList<>();
+    lines.add("§6=== Statistiques UniqueCrafts ===");
+    lines.add(latencyLine("PrepareCraft", prepareLatency));
+    lines.add(latencyLine("CraftItem", craftLatency));
+    lines.add(latencyLine("Enregistrement recettes", registerLatency));
+    for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(persistenceLatency).entrySet()) {
+      lines.add(latencyLine("Écriture " + entry.getKey(), entry.getValue()));
+    }
+    if (!crafts.isEmpty()) {
+      lines.add("§6Par craft (préparés / bloqués / réalisés):");
+      for (Map.Entry<String, CraftCounters> entry : new TreeMap<>(crafts).entrySet()) {
+        CraftCounters counters = entry.getValue();
+        lines.add("§7- " + entry.getKey() + ": " + counters.prepared() + " / " + counters.blocked() + " / "
+            + counters.crafted());
+      }
+    }
+    return lines;
+  }
+
+  private static String latencyLine(String name, LatencyHistogram histogram) {
+    long[] counts = histogram.snapshot();
+    long count = 0;
+    for (long c : counts) {
+      count += c;
+    }
+    if (count == 0) {
+      return "§e" + name + ": §7aucune mesure";
+    }
+    return String.format(Locale.ROOT, "§e%s: §f%d §7(moy. %s, p50 ≤ %s, p99 ≤ %s)", name, count,
+        formatNanos(histogram.sumNanos() / count), formatNanos(LatencyHistogram.quantile(counts, 0.50)),
+        formatNanos(LatencyHistogram.quantile(counts, 0.99)));
+  }
+
+  private static String formatNanos(long nanos) {
+    if (nanos == Long.MAX_VALUE) {
+      return "+Inf";
+    }
+    if (nanos < 1_000_000L) {
+      return String.format(Locale.ROOT, "%.1f µs", nanos / 1_000.0);
+    }
+    return String.format(Locale.ROOT, "%.1f ms", nanos / 1_000_000.0);
+  }
+
+  // Format texte Prometheus (version 0.0.4)
+  public String prometheus() {
+    StringBuilder out = new StringBuilder(4096);
+    histogram(out, "uniquecrafts_prepare_seconds", "Durée de onPrepareCraft", Map.of("", prepareLatency));
+    histogram(out, "uniquecrafts_craft_seconds", "Durée de onCraftItem", Map.of("", craftLatency));
+    histogram(out, "uniquecrafts_register_seconds", "Durée d'enregistrement des recettes",
+        Map.of("", registerLatency));
+    Map<String, LatencyHistogram> persistence = new TreeMap<>();
+    for (Map.Entry<String, LatencyHistogram> entry : persistenceLatency.entrySet()) {
+      persistence.put("store=\"" + escape(entry.getKey()) + "\"", entry.getValue());
+    }
+    histogram(out, "uniquecrafts_persistence_seconds", "Durée des écritures de persistance", persistence);
+
+    Map<String, CraftCounters> sorted = new TreeMap<>(crafts);
+    out.append("# HELP uniquecrafts_prepared_total Grilles préparées par craft unique\n");
+    out.append("# TYPE uniquecrafts_prepared_total counter\n");
+    for (Map.Entry<String, CraftCounters> entry : sorted.entrySet()) {
+      sample(out, "uniquecrafts_prepared_total", "craft=\"" + escape(entry.getKey()) + "\"",
+          entry.getValue().prepared());
+    }
+    out.append("# HELP uniquecrafts_crafted_total Crafts uniques réalisés\n");
+    out.append("# TYPE uniquecrafts_crafted_total counter\n");
+    for (Map.Entry<String, CraftCounters> entry : sorted.entrySet()) {
+      sample(out, "uniquecrafts_crafted_total", "craft=\"" + escape(entry.getKey()) + "\"",
+          entry.getValue().crafted());
+    }
+    out.append("# HELP uniquecrafts_blocked_total Crafts uniques refusés, par raison\n");
+    out.append("# TYPE uniquecrafts_blocked_total counter\n");
+    for (Map.Entry<String, CraftCounters> entry : sorted.entrySet()) {
+      for (Blocked reason : Blocked.values()) {
+        sample(out, "uniquecrafts_blocked_total", "craft=\"" + escape(entry.getKey()) + "\",reason=\""
+            + reason.name().toLowerCase(Locale.ROOT) + "\"", entry.getValue().blocked(reason));
+      }
+    }
+    return out.toString();
+  }
+
+  private static void histogram(StringBuilder out, String name, String help, Map<String, LatencyHistogram> series) {
+    out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    out.append("# TYPE ").append(name).append(" histogram\n");
+    for (Map.Entry<String, LatencyHistogram> entry : series.entrySet()) {
+      String labels = entry.getKey();
+      String prefix = labels.isEmpty() ? "" : labels + ",";
+      long[] counts = entry.getValue().snapshot();
+      long cumulative = 0;
+      for (int i = 0; i < counts.length; i++) {
+        cumulative += counts[i];
+        String le = i < LatencyHistogram.BOUNDS_NANOS.length
+            ? Double.toString(LatencyHistogram.BOUNDS_NANOS[i] / 1e9)
+            : "+Inf";
+        sample(out, name + "_bucket", prefix + "le=\"" + le + "\"", cumulative);
+      }
+      out.append(name).append("_sum");
+      if (!labels.isEmpty()) {
+        out.append('{').append(labels).append('}');
+      }
+      out.append(' ').append(entry.getValue().sumNanos() / 1e9).append('\n');
+      sample(out, name + "_count", labels, cumulative);
+    }
+  }
+
+  private static void sample(StringBuilder out, String name, String labels, long value) {
+    out.append(name);
+    if (!labels.isEmpty()) {
+      out.append('{').append(labels).append('}');
+    }
+    out.append(' ').append(value).append('\n');
+  }
+
+  private static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+}
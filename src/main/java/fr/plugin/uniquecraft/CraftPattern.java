@@ -0,0 +1,283 @@
+package fr.plugin.uniquecraft;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.Recipe;
+import org.bukkit.inventory.ShapedRecipe;
+import org.bukkit.inventory.ShapelessRecipe;
+
+// Disposition des ingrédients d'un craft (avec forme, ou sans forme), et sa comparaison à une grille
+// de craft. L'empreinte de forme (cadre occupé et cases remplies) sert de clé à RecipeIndex; la
+// comparaison se fait en deux passes: matériaux seuls, puis ItemMeta pour les ingrédients exacts.
+public final class CraftPattern {
+
+  // Grille de craft lue une seule fois, sans lire l'ItemMeta: cadre occupé, empreinte, objets présents
+  static final class Grid {
+    private final ItemStack[] matrix;
+    private final int side;
+    private final int top;
+    private final int left;
+    private final int width;
+    private final int height;
+    final long shapeKey;
+    final ItemStack[] items;
+
+    Grid(ItemStack[] matrix) {
+      this.matrix = matrix;
+      this.side = matrix.length <= 4 ? 2 : 3;
+      int minRow = side;
+      int maxRow = -1;
+      int minCol = side;
+      int maxCol = -1;
+      int count = 0;
+      for (int i = 0; i < matrix.length; i++) {
+        if (present(matrix[i])) {
+          int row = i / side;
+          int col = i % side;
+          minRow = Math.min(minRow, row);
+          maxRow = Math.max(maxRow, row);
+          minCol = Math.min(minCol, col);
+          maxCol = Math.max(maxCol, col);
+          count++;
+        }
+      }
+      this.items = new ItemStack[count];
+      if (count == 0) {
+        this.top = 0;
+        this.left = 0;
+        this.width = 0;
+        this.height = 0;
+        this.shapeKey = key(0, 0, 0);
+        return;
+      }
+      this.top = minRow;
+      this.left = minCol;
+      this.width = maxCol - minCol + 1;
+      this.height = maxRow - minRow + 1;
+      int mask = 0;
+      int next = 0;
+      for (int row = 0; row < height; row++) {
+        for (int col = 0; col < width; col++) {
+          ItemStack stack = at(row, col);
+          if (present(stack)) {
+            mask |= 1 << (row * width + col);
+            items[next++] = stack;
+          }
+        }
+      }
+      this.shapeKey = key(width, height, mask);
+    }
+
+    ItemStack at(int row, int col) {
+      return matrix[(top + row) * side + left + col];
+    }
+
+    private static boolean present(ItemStack stack) {
+      return stack != null && !stack.getType().isAir();
+    }
+  }
+
+  private final List<String> shape;
+  private final Map<Character, CraftIngredient> ingredients;
+  // Forme réduite au cadre occupé, ligne par ligne (null: case vide); null pour un craft sans forme
+  private final CraftIngredient[] cells;
+  private final int width;
+  private final int height;
+  private final long shapeKey;
+  private final long mirroredKey;
+  private final List<CraftIngredient> shapeless;
+  private final boolean exact;
+  private final String materialKey;
+
+  private CraftPattern(List<String> shape, Map<Character, CraftIngredient> ingredients,
+      List<CraftIngredient> shapeless) {
+    this.shape = List.copyOf(shape);
+    this.ingredients = Map.copyOf(ingredients);
+    this.shapeless = List.copyOf(shapeless);
+    boolean anyExact = false;
+    for (CraftIngredient ingredient : this.ingredients.values()) {
+      anyExact |= ingredient.exact();
+    }
+    for (CraftIngredient ingredient : this.shapeless) {
+      anyExact |= ingredient.exact();
+    }
+    this.exact = anyExact;
+
+    if (shape.isEmpty()) {
+      this.cells = null;
+      this.width = 0;
+      this.height = 0;
+      this.shapeKey = 0;
+      this.mirroredKey = 0;
+      List<String> keys = new ArrayList<>(this.shapeless.size());
+      for (CraftIngredient ingredient : this.shapeless) {
+        keys.add(ingredient.materialKey());
+      }
+      keys.sort(null);
+      this.materialKey = "L" + keys;
+      return;
+    }
+
+    int minRow = Integer.MAX_VALUE;
+    int maxRow = -1;
+    int minCol = Integer.MAX_VALUE;
+    int maxCol = -1;
+    for (int row = 0; row < shape.size(); row++) {
+      String line = shape.get(row);
+      for (int col = 0; col < line.length(); col++) {
+        if (this.ingredients.containsKey(line.charAt(col))) {
+          minRow = Math.min(minRow, row);
+          maxRow = Math.max(maxRow, row);
+          minCol = Math.min(minCol, col);
+          maxCol = Math.max(maxCol, col);
+        }
+      }
+    }
+    this.width = maxRow < 0 ? 0 : maxCol - minCol + 1;
+    this.height = maxRow < 0 ? 0 : maxRow - minRow + 1;
+    this.cells = new CraftIngredient[width * height];
+    int mask = 0;
+    int mirrored = 0;
+    for (int row = 0; row < height; row++) {
+      String line = shape.get(minRow + row);
+      for (int col = 0; col < width; col++) {
+        int index = minCol + col;
+        CraftIngredient ingredient = index < line.length() ? this.ingredients.get(line.charAt(index)) : null;
+        cells[row * width + col] = ingredient;
+        if (ingredient != null) {
+          mask |= 1 << (row * width + col);
+          mirrored |= 1 << (row * width + width - 1 - col);
+        }
+      }
+    }
+    this.shapeKey = key(width, height, mask);
+    this.mirroredKey = key(width, height, mirrored);
+    String direct = cellKey(false);
+    String reversed = cellKey(true);
+    this.materialKey = direct.compareTo(reversed) <= 0 ? direct : reversed;
+  }
+
+  public static CraftPattern shaped(List<String> shape, Map<Character, CraftIngredient> ingredients) {
+    return new CraftPattern(shape, ingredients, List.of());
+  }
+
+  public static CraftPattern shapeless(List<CraftIngredient> ingredients) {
+    return new CraftPattern(List.of(), Map.of(), ingredients);
+  }
+
+  public boolean isShapeless() {
+    return cells == null;
+  }
+
+  // Forme telle que déclarée dans crafts.yml (vide pour un craft sans forme)
+  public List<String> shape() {
+    return shape;
+  }
+
+  public Map<Character, CraftIngredient> ingredients() {
+    return ingredients;
+  }
+
+  public List<CraftIngredient> shapelessIngredients() {
+    return shapeless;
+  }
+
+  // true si au moins un ingrédient exige une comparaison de l'ItemMeta
+  public boolean exact() {
+    return exact;
+  }
+
+  // Empreintes de forme sous lesquelles RecipeIndex range ce craft (la recette avec forme accepte le miroir)
+  long shapeKey() {
+    return shapeKey;
+  }
+
+  long mirroredKey() {
+    return mirroredKey;
+  }
+
+  int itemCount() {
+    return shapeless.size();
+  }
+
+  // Disposition des matériaux telle que le serveur la voit: deux crafts de même clé ont la même recette
+  String materialKey() {
+    return materialKey;
+  }
+
+  // deep: false compare les matériaux seuls, true compare aussi l'ItemMeta des ingrédients exacts
+  boolean matches(Grid grid, boolean deep) {
+    if (cells == null) {
+      return grid.items.length == shapeless.size() && assign(grid.items, 0, new boolean[shapeless.size()], deep);
+    }
+    return (grid.shapeKey == shapeKey && matchesCells(grid, false, deep))
+        || (grid.shapeKey == mirroredKey && matchesCells(grid, true, deep));
+  }
+
+  private boolean matchesCells(Grid grid, boolean mirror, boolean deep) {
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        CraftIngredient ingredient = cells[row * width + (mirror ? width - 1 - col : col)];
+        if (ingredient != null && !accepts(ingredient, grid.at(row, col), deep)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  // Affectation des objets aux ingrédients d'un craft sans forme (au plus 9: recherche exhaustive)
+  private boolean assign(ItemStack[] items, int index, boolean[] used, boolean deep) {
+    if (index == items.length) {
+      return true;
+    }
+    for (int i = 0; i < used.length; i++) {
+      if (!used[i] && accepts(shapeless.get(i), items[index], deep)) {
+        used[i] = true;
+        if (assign(items, index + 1, used, deep)) {
+          return true;
+        }
+        used[i] = false;
+      }
+    }
+    return false;
+  }
+
+  private static boolean accepts(CraftIngredient ingredient, ItemStack stack, boolean deep) {
+    return deep ? ingredient.matches(stack) : ingredient.accepts(stack.getType());
+  }
+
+  public Recipe createRecipe(NamespacedKey key, ItemStack result) {
+    if (cells == null) {
+      ShapelessRecipe recipe = new ShapelessRecipe(key, result);
+      for (CraftIngredient ingredient : shapeless) {
+        recipe.addIngredient(ingredient.choice());
+      }
+      return recipe;
+    }
+    ShapedRecipe recipe = new ShapedRecipe(key, result);
+    recipe.shape(shape.toArray(new String[0]));
+    for (Map.Entry<Character, CraftIngredient> ingredient : ingredients.entrySet()) {
+      recipe.setIngredient(ingredient.getKey(), ingredient.getValue().choice());
+    }
+    return recipe;
+  }
+
+  private String cellKey(boolean mirror) {
+    StringBuilder key = new StringBuilder("S").append(width).append('x').append(height);
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        CraftIngredient ingredient = cells[row * width + (mirror ? width - 1 - col : col)];
+        key.append('|').append(ingredient == null ? "" : ingredient.materialKey());
+      }
+    }
+    return key.toString();
+  }
+
+  static long key(int width, int height, int mask) {
+    return (long) width << 40 | (long) height << 32 | mask;
+  }
+}
@@ -0,0 +1,129 @@
+package fr.plugin.uniquecraft;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import org.bukkit.inventory.meta.ItemMeta;
+
+// Filtres et pagination de /uniquecraft list et /uniquecraft debug crafts:
+//   [page] [statut:disponible|réservé|crafté] [matériau:<texte>] [nom:<texte>|<texte>]
+// Un mot sans préfixe cherche dans l'identifiant et le nom affiché. Exécuté hors du thread principal.
+final class CraftQuery {
+
+  static final int PAGE_SIZE = 10;
+
+  record Page(List<CraftDefinition> items, int page, int pages, int total) {
+  }
+
+  private final int page;
+  private final ClaimRegistry.Status status;
+  private final String material;
+  private final List<String> names;
+
+  private CraftQuery(int page, ClaimRegistry.Status status, String material, List<String> names) {
+    this.page = page;
+    this.status = status;
+    this.material = material;
+    this.names = names;
+  }
+
+  // args[from..]: arguments de la commande après la sous-commande. IllegalArgumentException si invalide.
+  static CraftQuery parse(String[] args, int from) {
+    int page = 1;
+    ClaimRegistry.Status status = null;
+    String material = null;
+    List<String> names = new ArrayList<>();
+    for (int i = from; i < args.length; i++) {
+      String arg = args[i].toLowerCase(Locale.ROOT);
+      int colon = arg.indexOf(':');
+      String filter = colon < 0 ? "" : arg.substring(0, colon);
+      String value = arg.substring(colon + 1);
+      switch (filter) {
+        case "statut", "status" -> status = parseStatus(value);
+        case "matériau", "materiau", "material" -> material = value;
+        case "nom", "name" -> names.add(value);
+        default -> {
+          if (colon < 0 && !arg.isEmpty() && arg.chars().allMatch(Character::isDigit)) {
+            page = arg.length() > 6 ? Integer.MAX_VALUE : Math.max(1, Integer.parseInt(arg));
+          } else {
+            names.add(arg);
+          }
+        }
+      }
+    }
+    return new CraftQuery(page, status, material, names);
+  }
+
+  private static ClaimRegistry.Status parseStatus(String value) {
+    return switch (value) {
+      case "disponible", "available" -> ClaimRegistry.Status.AVAILABLE;
+      case "réservé", "reserve", "reserved" -> ClaimRegistry.Status.RESERVED;
+      case "crafté", "crafte", "claimed" -> ClaimRegistry.Status.CLAIMED;
+      default -> throw new IllegalArgumentException("Statut inconnu: " + value + " (disponible, réservé, crafté)");
+    };
+  }
+
+  // crafts: dans l'ordre d'affichage (RecipeIndex.sorted)
+  Page run(List<CraftDefinition> crafts, Function<String, ClaimRegistry.Status> statuses) {
+    List<CraftDefinition> matching = new ArrayList<>();
+    for (CraftDefinition definition : crafts) {
+      if (matches(definition, statuses)) {
+        matching.add(definition);
+      }
+    }
+    int pages = Math.max(1, (matching.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+    int current = Math.min(page, pages);
+    int start = (current - 1) * PAGE_SIZE;
+    List<CraftDefinition> items = matching.subList(start, Math.min(matching.size(), start + PAGE_SIZE));
+    return new Page(List.copyOf(items), current, pages, matching.size());
+  }
+
+  // Critère textuel à recopier dans l'indication de page suivante
+  String filters() {
+    StringBuilder out = new StringBuilder();
+    if (status != null) {
+      out.append(" statut:").append(switch (status) {
+        case AVAILABLE -> "disponible";
+        case RESERVED -> "réservé";
+        case CLAIMED -> "crafté";
+      });
+    }
+    if (material != null) {
+      out.append(" matériau:").append(material);
+    }
+    for (String name : names) {
+      out.append(" nom:").append(name);
+    }
+    return out.toString();
+  }
+
+  private boolean matches(CraftDefinition definition, Function<String, ClaimRegistry.Status> statuses) {
+    if (material != null
+        && !definition.resultMaterial().name().toLowerCase(Locale.ROOT).contains(material)) {
+      return false;
+    }
+    if (status != null && statuses.apply(definition.id()) != status) {
+      return false;
+    }
+    if (names.isEmpty()) {
+      return true;
+    }
+    String id = definition.id().toLowerCase(Locale.ROOT);
+    String displayName = null;
+    for (String name : names) {
+      if (id.contains(name)) {
+        continue;
+      }
+      if (displayName == null) {
+        ItemMeta meta = definition.result().getItemMeta();
+        displayName = meta != null && meta.hasDisplayName()
+            ? NbtScanner.stripColors(meta.getDisplayName()).toLowerCase(Locale.ROOT) : "";
+      }
+      if (!displayName.contains(name)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,453 @@
+package fr.plugin.uniquecraft;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+// Compteurs des crafts à limites (CraftDefinition.Quota): exemplaires par serveur et par joueur,
+// pour la période courante de chaque craft (génération, incrémentée par /uniquecraft reset, et
+// saison pour les crafts limites.season). Les identifiants de craft sont internés en int; seuls les
+// joueurs connectés sont en mémoire (PlayerQuotaTable), chargés à la connexion et libérés au départ.
+//
+// Fichiers: quotas/server.yml (compteurs serveur), quotas/players/<2 car.>/<uuid>.dat (un joueur),
+// écrits par un thread dédié, toujours dans l'ordre des modifications.
+public final class CraftQuotas {
+
+  // LEASE_REQUIRED: ce serait le dernier exemplaire, qui exige un lease réseau (rien n'est compté)
+  public enum Result {
+    ACCEPTED, LAST, SERVER_LIMIT, PLAYER_LIMIT, NOT_LOADED, LEASE_REQUIRED
+  }
+
+  private static final int MAGIC = 0x55435154;
+  private static final int VERSION = 1;
+  private static final long LOAD_TIMEOUT_SECONDS = 5;
+
+  private final Path serverFile;
+  private final Path playersFolder;
+  private final Logger logger;
+  private final Trace trace;
+  private final LatencyHistogram writeLatency;
+  private final ExecutorService writer;
+  private final AtomicBoolean serverWriteScheduled = new AtomicBoolean(false);
+
+  // Tout l'état ci-dessous est protégé par this
+  private String season;
+  private final Map<String, Integer> interned = new HashMap<>();
+  private String[] names = new String[64];
+  private int[] generation = new int[64];
+  // Saison des compteurs ("" pour un craft non saisonnier)
+  private String[] countedSeason = new String[64];
+  private int[] serverCount = new int[64];
+  // Tampon de période en mémoire: change à chaque reset ou changement de saison, ce qui invalide
+  // les compteurs des joueurs chargés sans les parcourir
+  private int[] period = new int[64];
+  // Craft présent dans server.yml (compté au moins une fois)
+  private boolean[] known = new boolean[64];
+  private int nextPeriod;
+  private final PlayerQuotaTable players = new PlayerQuotaTable(256);
+  // Dernier chargement demandé par joueur: un chargement terminé après le départ du joueur, ou
+  // remplacé par un plus récent, n'est pas publié dans players
+  private final Map<UUID, Long> loading = new HashMap<>();
+  private long nextLoad;
+
+  public CraftQuotas(File dataFolder, String season, Logger logger, CraftMetrics metrics, Trace trace) {
+    File folder = new File(dataFolder, "quotas");
+    this.serverFile = new File(folder, "server.yml").toPath();
+    this.playersFolder = new File(folder, "players").toPath();
+    this.season = season;
+    this.logger = logger;
+    this.trace = trace;
+    this.writeLatency = metrics.persistence("quotas");
+    this.writer = Executors.newSingleThreadExecutor(r -> {
+      Thread thread = new Thread(r, "UniqueCrafts-Quotas");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  // Lit les compteurs serveur. Bloquant (onEnable).
+  public synchronized void load() throws IOException {
+    if (!Files.exists(serverFile)) {
+      return;
+    }
+    YamlConfiguration yaml = new YamlConfiguration();
+    try {
+      yaml.loadFromString(Files.readString(serverFile));
+    } catch (org.bukkit.configuration.InvalidConfigurationException e) {
+      throw new IOException("quotas/server.yml illisible: " + e.getMessage(), e);
+    }
+    ConfigurationSection crafts = yaml.getConfigurationSection("crafts");
+    if (crafts == null) {
+      return;
+    }
+    for (String craftId : crafts.getKeys(false)) {
+      int craft = intern(craftId);
+      generation[craft] = crafts.getInt(craftId + ".generation");
+      countedSeason[craft] = crafts.getString(craftId + ".season", "");
+      serverCount[craft] = crafts.getInt(craftId + ".count");
+      known[craft] = true;
+    }
+  }
+
+  // Saison courante (settings.season), au chargement et au reload
+  public synchronized void setSeason(String season) {
+    this.season = season;
+  }
+
+  public synchronized String season() {
+    return season;
+  }
+
+  // Vérifie les limites sans rien enregistrer
+  public synchronized Result check(CraftDefinition definition, UUID player) {
+    return evaluate(definition, player, false, true);
+  }
+
+  // Compte un exemplaire crafté par ce joueur si les limites le permettent (vérification et
+  // incrément atomiques). LAST: c'était le dernier exemplaire du serveur pour la période.
+  // lastAllowed faux: le dernier exemplaire est refusé (LEASE_REQUIRED) au lieu d'être compté.
+  public Result record(CraftDefinition definition, UUID player, boolean lastAllowed) {
+    Result result;
+    byte[] playerData = null;
+    synchronized (this) {
+      result = evaluate(definition, player, true, lastAllowed);
+      if (result != Result.ACCEPTED && result != Result.LAST) {
+        return result;
+      }
+      int[] counters = players.get(player.getMostSignificantBits(), player.getLeastSignificantBits());
+      if (counters != null) {
+        playerData = encode(counters);
+      }
+    }
+    if (playerData != null) {
+      byte[] data = playerData;
+      writer.execute(() -> write(playerFile(player), data));
+    }
+    scheduleServerWrite();
+    trace.log(Trace.Category.CRAFT, "Quota {} -> {}", definition.id(), result);
+    return result;
+  }
+
+  // Toutes les limites du serveur sont atteintes pour la période courante
+  public synchronized boolean exhausted(CraftDefinition definition) {
+    int craft = align(definition);
+    int limit = definition.quota().perServer();
+    return limit > 0 && serverCount[craft] >= limit;
+  }
+
+  public synchronized int serverCount(CraftDefinition definition) {
+    return serverCount[align(definition)];
+  }
+
+  // Craft déjà réalisé avant l'ajout de limites: il compte pour un exemplaire
+  public void adopt(CraftDefinition definition) {
+    synchronized (this) {
+      int craft = align(definition);
+      if (known[craft]) {
+        return;
+      }
+      known[craft] = true;
+      serverCount[craft] = Math.max(serverCount[craft], 1);
+    }
+    scheduleServerWrite();
+  }
+
+  // Nouvelle génération: compteurs serveur et joueurs remis à zéro. Retourne false si rien n'était compté.
+  public boolean reset(String craftId) {
+    synchronized (this) {
+      Integer craft = interned.get(craftId);
+      if (craft == null || serverCount[craft] == 0 && !known[craft]) {
+        return false;
+      }
+      generation[craft]++;
+      serverCount[craft] = 0;
+      period[craft] = ++nextPeriod;
+    }
+    scheduleServerWrite();
+    return true;
+  }
+
+  public synchronized boolean loaded(UUID player) {
+    return players.get(player.getMostSignificantBits(), player.getLeastSignificantBits()) != null;
+  }
+
+  public synchronized int loadedPlayers() {
+    return players.size();
+  }
+
+  // Chargement à la connexion (AsyncPlayerPreLoginEvent): attend les écritures en attente de ce
+  // joueur, puis lit son fichier. Bloquant, hors du thread principal uniquement.
+  public void loadPlayer(UUID player) {
+    try {
+      loadPlayerAsync(player).get(LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException e) {
+      logger.warning("§eQuotas de " + player + " non chargés à la connexion: " + e);
+    }
+  }
+
+  public Future<?> loadPlayerAsync(UUID player) {
+    long ticket;
+    synchronized (this) {
+      ticket = ++nextLoad;
+      loading.put(player, ticket);
+    }
+    return writer.submit(() -> read(player, ticket));
+  }
+
+  // Départ du joueur: les écritures déjà planifiées portent son dernier état, un chargement encore
+  // en file est abandonné
+  public synchronized void unloadPlayer(UUID player) {
+    loading.remove(player);
+    players.remove(player.getMostSignificantBits(), player.getLeastSignificantBits());
+  }
+
+  // Termine les écritures en attente. Bloquant, à appeler au onDisable.
+  public void close() {
+    scheduleServerWrite();
+    writer.shutdown();
+    try {
+      if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+        logger.severe("§cLes quotas n'ont pas pu être sauvegardés à temps !");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private Result evaluate(CraftDefinition definition, UUID player, boolean record, boolean lastAllowed) {
+    CraftDefinition.Quota quota = definition.quota();
+    int craft = align(definition);
+    if (quota.perServer() > 0 && serverCount[craft] >= quota.perServer()) {
+      return Result.SERVER_LIMIT;
+    }
+    long high = player.getMostSignificantBits();
+    long low = player.getLeastSignificantBits();
+    int[] counters = players.get(high, low);
+    if (quota.perPlayer() > 0) {
+      if (counters == null) {
+        return Result.NOT_LOADED;
+      }
+      if (count(counters, craft) >= quota.perPlayer()) {
+        return Result.PLAYER_LIMIT;
+      }
+    }
+    if (!record) {
+      return Result.ACCEPTED;
+    }
+    if (!lastAllowed && quota.perServer() > 0 && serverCount[craft] + 1 >= quota.perServer()) {
+      return Result.LEASE_REQUIRED;
+    }
+    serverCount[craft]++;
+    known[craft] = true;
+    if (counters != null) {
+      players.put(high, low, increment(counters, craft));
+    }
+    return quota.perServer() > 0 && serverCount[craft] >= quota.perServer() ? Result.LAST : Result.ACCEPTED;
+  }
+
+  // Aligne la période du craft sur ses règles: passer d'une saison à l'autre (ou activer/désactiver
+  // limits.season) repart de zéro
+  private int align(CraftDefinition definition) {
+    int craft = intern(definition.id());
+    String expected = definition.quota().perSeason() ? season : "";
+    if (!expected.equals(countedSeason[craft])) {
+      countedSeason[craft] = expected;
+      serverCount[craft] = 0;
+      period[craft] = ++nextPeriod;
+      scheduleServerWrite();
+    }
+    return craft;
+  }
+
+  private int intern(String craftId) {
+    Integer existing = interned.get(craftId);
+    if (existing != null) {
+      return existing;
+    }
+    int craft = interned.size();
+    if (craft == names.length) {
+      int capacity = craft << 1;
+      names = Arrays.copyOf(names, capacity);
+      generation = Arrays.copyOf(generation, capacity);
+      countedSeason = Arrays.copyOf(countedSeason, capacity);
+      serverCount = Arrays.copyOf(serverCount, capacity);
+      period = Arrays.copyOf(period, capacity);
+      known = Arrays.copyOf(known, capacity);
+    }
+    names[craft] = craftId;
+    countedSeason[craft] = "";
+    interned.put(craftId, craft);
+    return craft;
+  }
+
+  // Compteurs d'un joueur: triplets [craft, période, nombre]; un triplet d'une autre période vaut 0
+  private int count(int[] counters, int craft) {
+    for (int i = 0; i < counters.length; i += 3) {
+      if (counters[i] == craft) {
+        return counters[i + 1] == period[craft] ? counters[i + 2] : 0;
+      }
+    }
+    return 0;
+  }
+
+  private int[] increment(int[] counters, int craft) {
+    for (int i = 0; i < counters.length; i += 3) {
+      if (counters[i] == craft) {
+        int current = counters[i + 1] == period[craft] ? counters[i + 2] : 0;
+        counters[i + 1] = period[craft];
+        counters[i + 2] = current + 1;
+        return counters;
+      }
+    }
+    int[] grown = Arrays.copyOf(counters, counters.length + 3);
+    grown[counters.length] = craft;
+    grown[counters.length + 1] = period[craft];
+    grown[counters.length + 2] = 1;
+    return grown;
+  }
+
+  // Thread d'écriture: lit le fichier du joueur et ne garde que les compteurs de la période courante
+  private void read(UUID player, long ticket) {
+    byte[] data;
+    try {
+      Path file = playerFile(player);
+      data = Files.exists(file) ? Files.readAllBytes(file) : null;
+    } catch (IOException e) {
+      logger.warning("§eQuotas de " + player + " illisibles: " + e.getMessage());
+      data = null;
+    }
+    synchronized (this) {
+      if (!loading.remove(player, ticket)) {
+        trace.log(Trace.Category.LOAD, "Quotas de {} non publiés (joueur parti ou chargement remplacé)", player);
+        return;
+      }
+      long high = player.getMostSignificantBits();
+      long low = player.getLeastSignificantBits();
+      if (players.get(high, low) != null) {
+        return;
+      }
+      players.put(high, low, data == null ? new int[0] : decode(player, data));
+    }
+  }
+
+  private int[] decode(UUID player, byte[] data) {
+    int[] counters = new int[0];
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("en-tête inconnu");
+      }
+      int entries = in.readInt();
+      counters = new int[entries * 3];
+      int next = 0;
+      for (int i = 0; i < entries; i++) {
+        String craftId = in.readUTF();
+        int craftGeneration = in.readInt();
+        String craftSeason = in.readUTF();
+        int count = in.readInt();
+        int craft = intern(craftId);
+        if (craftGeneration == generation[craft] && craftSeason.equals(countedSeason[craft])) {
+          counters[next++] = craft;
+          counters[next++] = period[craft];
+          counters[next++] = count;
+        }
+      }
+      return Arrays.copyOf(counters, next);
+    } catch (IOException e) {
+      logger.warning("§eQuotas de " + player + " illisibles: " + e.getMessage());
+      return new int[0];
+    }
+  }
+
+  // Sous le verrou: seuls les compteurs de la période courante sont conservés
+  private byte[] encode(int[] counters) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + counters.length * 12);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      int entries = 0;
+      for (int i = 0; i < counters.length; i += 3) {
+        if (counters[i + 1] == period[counters[i]]) {
+          entries++;
+        }
+      }
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(entries);
+      for (int i = 0; i < counters.length; i += 3) {
+        int craft = counters[i];
+        if (counters[i + 1] == period[craft]) {
+          out.writeUTF(names[craft]);
+          out.writeInt(generation[craft]);
+          out.writeUTF(countedSeason[craft]);
+          out.writeInt(counters[i + 2]);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private void scheduleServerWrite() {
+    if (serverWriteScheduled.compareAndSet(false, true)) {
+      try {
+        writer.execute(this::writeServer);
+      } catch (java.util.concurrent.RejectedExecutionException e) {
+        // Fermeture en cours: la dernière écriture planifiée contient déjà l'état
+        serverWriteScheduled.set(false);
+      }
+    }
+  }
+
+  private void writeServer() {
+    serverWriteScheduled.set(false);
+    YamlConfiguration yaml = new YamlConfiguration();
+    synchronized (this) {
+      for (Map.Entry<String, Integer> entry : interned.entrySet()) {
+        int craft = entry.getValue();
+        if (!known[craft]) {
+          continue;
+        }
+        String path = "crafts." + entry.getKey();
+        yaml.set(path + ".generation", generation[craft]);
+        yaml.set(path + ".season", countedSeason[craft]);
+        yaml.set(path + ".count", serverCount[craft]);
+      }
+    }
+    write(serverFile, yaml.saveToString().getBytes(java.nio.charset.StandardCharsets.UTF_8));
+  }
+
+  private void write(Path file, byte[] data) {
+    long start = System.nanoTime();
+    try {
+      CraftsPersistence.writeAtomically(file, data);
+    } catch (IOException e) {
+      logger.severe("§cErreur lors de la sauvegarde des quotas (" + file.getFileName() + "): " + e.getMessage());
+    }
+    writeLatency.record(System.nanoTime() - start);
+  }
+
+  private Path playerFile(UUID player) {
+    String id = player.toString();
+    return playersFolder.resolve(id.substring(0, 2)).resolve(id + ".dat");
+  }
+}
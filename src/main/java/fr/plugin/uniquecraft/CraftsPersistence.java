@@ -0,0 +1,148 @@
+package fr.plugin.uniquecraft;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.java.JavaPlugin;
+
+// Sauvegarde différée (write-behind) de crafts.yml.
+// Le thread principal modifie la config en mémoire et marque l'état "dirty",
+// un flusher asynchrone écrit le fichier toutes les settings.save-interval secondes.
+// Le fichier n'est jamais écrit avant d'être relu par un reload: les valeurs modifiées par le plugin
+// sont réappliquées sur la config relue (setConfig), les modifications de l'admin sont conservées.
+public class CraftsPersistence {
+
+  private final JavaPlugin plugin;
+  private final File file;
+  private final Object configLock = new Object();
+  private final Object ioLock = new Object();
+  private final AtomicBoolean dirty = new AtomicBoolean(false);
+  // Écritures réussies, pour savoir si le fichier a changé depuis une lecture
+  private final AtomicLong writes = new AtomicLong();
+  // Valeurs posées par set(), sous configLock
+  private final Map<String, Object> overrides = new LinkedHashMap<>();
+  private final LatencyHistogram writeLatency;
+  private final Trace trace;
+
+  private FileConfiguration config;
+  private PluginScheduler.Task flushTask;
+
+  public CraftsPersistence(JavaPlugin plugin, File file, FileConfiguration config, CraftMetrics metrics,
+      Trace trace) {
+    this.plugin = plugin;
+    this.file = file;
+    this.config = config;
+    this.writeLatency = metrics.persistence("crafts_yml");
+    this.trace = trace;
+  }
+
+  public void start(PluginScheduler scheduler, long intervalSeconds) {
+    long periodTicks = Math.max(1L, intervalSeconds) * 20L;
+    flushTask = scheduler.runAsyncTimer(this::flush, periodTicks, periodTicks);
+  }
+
+  // Numéro de la dernière écriture, à relever avant de relire crafts.yml
+  public long writes() {
+    return writes.get();
+  }
+
+  // Remplace la config suivie par le fichier relu (reload). Les valeurs posées par set() y sont
+  // réappliquées; si le fichier a été écrit depuis sa lecture (writesAtRead), il est réécrit avec
+  // la config relue au prochain passage.
+  public void setConfig(FileConfiguration config, long writesAtRead) {
+    boolean changed = writes.get() != writesAtRead;
+    synchronized (configLock) {
+      for (Map.Entry<String, Object> override : overrides.entrySet()) {
+        if (!Objects.equals(config.get(override.getKey()), override.getValue())) {
+          config.set(override.getKey(), override.getValue());
+          changed = true;
+        }
+      }
+      this.config = config;
+    }
+    if (changed) {
+      dirty.set(true);
+    }
+  }
+
+  // Modification en mémoire uniquement, aucune I/O
+  public void set(String path, Object value) {
+    synchronized (configLock) {
+      config.set(path, value);
+      overrides.put(path, value);
+    }
+    dirty.set(true);
+  }
+
+  public boolean isDirty() {
+    return dirty.get();
+  }
+
+  // Écrit le fichier si nécessaire. Appelé par le flusher asynchrone, ou au onDisable.
+  // Snapshot et écriture sous le même verrou: deux flush concurrents écrivent dans l'ordre de leurs
+  // snapshots, le dernier fichier écrit est toujours le plus récent.
+  public void flush() {
+    synchronized (ioLock) {
+      if (!dirty.getAndSet(false)) {
+        return;
+      }
+
+      long start = System.nanoTime();
+      String data;
+      synchronized (configLock) {
+        data = config.saveToString();
+      }
+      try {
+        writeAtomically(file.toPath(), data);
+        writes.incrementAndGet();
+      } catch (IOException e) {
+        // On réessaiera au prochain passage
+        dirty.set(true);
+        plugin.getLogger().severe("§cErreur lors de la sauvegarde des crafts: " + e.getMessage());
+      }
+      long elapsed = System.nanoTime() - start;
+      writeLatency.record(elapsed);
+      trace.log(Trace.Category.PERSISTENCE, "crafts.yml écrit ({} octets, {} µs)", data.length(),
+          elapsed / 1_000);
+    }
+  }
+
+  // Arrête le flusher et garantit une dernière écriture
+  public void shutdown() {
+    if (flushTask != null) {
+      flushTask.cancel();
+      flushTask = null;
+    }
+    flush();
+  }
+
+  static void writeAtomically(Path target, String data) throws IOException {
+    writeAtomically(target, data.getBytes(StandardCharsets.UTF_8));
+  }
+
+  static void writeAtomically(Path target, byte[] data) throws IOException {
+    Path parent = target.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    Path temp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+    try {
+      Files.write(temp, data);
+      try {
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package fr.plugin.uniquecraft;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Coordinateur en mémoire: plusieurs "serveurs" d'une même JVM partagent un Network.
+// Sert de substitut au backend SQL pour les simulations et les tests.
+public final class InMemoryClaimCoordinator implements ClaimCoordinator {
+
+  // État partagé entre les nœuds simulés
+  public static final class Network {
+
+    private record Row(String serverId, UUID player, long token, Kind state, long leaseUntil, long claimedAt) {
+    }
+
+    private final Map<String, Row> rows = new HashMap<>();
+    private final List<Event> events = new ArrayList<>();
+
+    public ClaimCoordinator node(String serverId) {
+      return new InMemoryClaimCoordinator(this, serverId);
+    }
+
+    private synchronized void publish(String craftId, Kind kind, String serverId, UUID player, long token,
+        long expiresAt) {
+      events.add(new Event(events.size() + 1L, craftId, kind, serverId, player, token, expiresAt));
+    }
+  }
+
+  private final Network network;
+  private final String serverId;
+
+  private InMemoryClaimCoordinator(Network network, String serverId) {
+    this.network = network;
+    this.serverId = serverId;
+  }
+
+  @Override
+  public String serverId() {
+    return serverId;
+  }
+
+  @Override
+  public Map<String, ClaimRecord> load() {
+    synchronized (network) {
+      Map<String, ClaimRecord> claims = new LinkedHashMap<>();
+      for (Map.Entry<String, Network.Row> entry : network.rows.entrySet()) {
+        Network.Row row = entry.getValue();
+        if (row.state() == Kind.CLAIMED) {
+          claims.put(entry.getKey(), new ClaimRecord(entry.getKey(), row.player(), row.claimedAt()));
+        }
+      }
+      return Collections.unmodifiableMap(claims);
+    }
+  }
+
+  @Override
+  public Set<String> released() {
+    synchronized (network) {
+      Set<String> released = new HashSet<>();
+      for (Map.Entry<String, Network.Row> entry : network.rows.entrySet()) {
+        Network.Row row = entry.getValue();
+        if (row.state() == Kind.RESET || row.state() == Kind.LEASED && !row.serverId().equals(serverId)) {
+          released.add(entry.getKey());
+        }
+      }
+      return released;
+    }
+  }
+
+  @Override
+  public Lease acquire(String craftId, UUID player, long leaseMillis) {
+    synchronized (network) {
+      long now = System.currentTimeMillis();
+      Network.Row row = network.rows.get(craftId);
+      if (row != null) {
+        if (row.state() == Kind.CLAIMED) {
+          return null;
+        }
+        if (row.state() == Kind.LEASED && row.leaseUntil() >= now && !row.serverId().equals(serverId)) {
+          return null;
+        }
+      }
+      boolean renewal = row != null && row.state() == Kind.LEASED && row.serverId().equals(serverId);
+      long token = row == null ? 1L : renewal ? row.token() : row.token() + 1L;
+      long expiresAt = now + leaseMillis;
+      network.rows.put(craftId, new Network.Row(serverId, player, token, Kind.LEASED, expiresAt, 0L));
+      network.publish(craftId, Kind.LEASED, serverId, player, token, expiresAt);
+      return new Lease(craftId, player, token, expiresAt);
+    }
+  }
+
+  @Override
+  public boolean commit(Lease lease) {
+    synchronized (network) {
+      Network.Row row = network.rows.get(lease.craftId());
+      if (row == null || row.state() != Kind.LEASED || row.token() != lease.token()
+          || !row.serverId().equals(serverId)) {
+        return false;
+      }
+      long now = System.currentTimeMillis();
+      network.rows.put(lease.craftId(),
+          new Network.Row(serverId, lease.player(), lease.token(), Kind.CLAIMED, 0L, now));
+      network.publish(lease.craftId(), Kind.CLAIMED, serverId, lease.player(), lease.token(), 0L);
+      return true;
+    }
+  }
+
+  @Override
+  public void reset(String craftId) {
+    synchronized (network) {
+      Network.Row row = network.rows.get(craftId);
+      long token = row == null ? 0L : row.token();
+      network.rows.put(craftId, new Network.Row(serverId, new UUID(0L, 0L), token, Kind.RESET, 0L, 0L));
+      network.publish(craftId, Kind.RESET, serverId, new UUID(0L, 0L), token, 0L);
+    }
+  }
+
+  @Override
+  public List<Event> poll(long afterSequence, int limit) {
+    synchronized (network) {
+      int from = (int) Math.min(afterSequence, network.events.size());
+      int to = Math.min(network.events.size(), from + limit);
+      return List.copyOf(network.events.subList(from, to));
+    }
+  }
+
+  @Override
+  public long headSequence() {
+    synchronized (network) {
+      return network.events.size();
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+}
@@ -0,0 +1,632 @@
+package fr.plugin.uniquecraft;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+// Audit hors ligne des objets uniques déjà présents dans le monde (/uniquecraft audit).
+// Les fichiers région (.mca, blocs et entités) et playerdata (.dat) sont lus sur le disque,
+// en mémoire mappée, par un petit pool de threads de basse priorité: aucun chunk n'est chargé
+// dans le serveur. La lecture est limitée en débit et suspendue quand le tick est chargé.
+// Chaque fichier terminé est noté dans audit/state.txt: un audit interrompu reprend où il s'était arrêté.
+public final class ItemAudit {
+
+  // Objet attendu pour un craft: matériau (minecraft:...), nom et lore sans codes couleur
+  public record Signature(String craftId, String material, String name, List<String> lore) {
+  }
+
+  // Fichier à analyser, taille et clé d'état relevées au parcours
+  private record Candidate(Path path, long size, String key) {
+  }
+
+  public record Finding(String craftId, String file, String location, String itemId, int count, boolean marked) {
+  }
+
+  public record Report(List<Finding> findings, Map<String, Integer> totals, int files, long bytes,
+      int unreadable, long nanos, Path path) {
+
+    // Crafts présents en plus d'un exemplaire
+    public List<String> duplicates() {
+      List<String> duplicates = new ArrayList<>();
+      for (Map.Entry<String, Integer> entry : totals.entrySet()) {
+        if (entry.getValue() > 1) {
+          duplicates.add(entry.getKey());
+        }
+      }
+      return duplicates;
+    }
+  }
+
+  private static final int SECTOR = 4096;
+  private static final long BUSY_PAUSE_MILLIS = 50L;
+
+  private final Path stateDir;
+  private final Logger logger;
+  private final String markerKey;
+  private final int threads;
+  private final long maxBytesPerSecond;
+  private final BooleanSupplier serverBusy;
+  private final AtomicBoolean running = new AtomicBoolean(false);
+  private final AtomicBoolean cancelled = new AtomicBoolean(false);
+  private final AtomicInteger filesDone = new AtomicInteger();
+  private final AtomicInteger unreadable = new AtomicInteger();
+  private final AtomicLong bytesRead = new AtomicLong();
+  private volatile int filesTotal;
+  private volatile ExecutorService pool;
+  private BufferedWriter stateWriter;
+  private BufferedWriter findingsWriter;
+  private long throttleNanos;
+
+  // serverBusy est appelé depuis les threads d'audit: il ne doit lire que des valeurs thread-safe
+  public ItemAudit(File dataFolder, Logger logger, String markerKey, int threads, long maxBytesPerSecond,
+      BooleanSupplier serverBusy) {
+    this.stateDir = new File(dataFolder, "audit").toPath();
+    this.logger = logger;
+    this.markerKey = markerKey;
+    this.threads = Math.max(1, threads);
+    this.maxBytesPerSecond = maxBytesPerSecond;
+    this.serverBusy = serverBusy;
+  }
+
+  public boolean running() {
+    return running.get();
+  }
+
+  // Audit interrompu (arrêt du serveur ou /uniquecraft audit stop)
+  public boolean hasUnfinished() {
+    return Files.exists(stateDir.resolve("state.txt"));
+  }
+
+  // Progression lisible pour /uniquecraft audit status
+  public String status() {
+    return String.format(Locale.ROOT, "%d/%d fichiers, %.1f Mo lus, %d illisibles", filesDone.get(), filesTotal,
+        bytesRead.get() / 1_048_576.0, unreadable.get());
+  }
+
+  // Démarre (ou reprend si resume) l'audit des dossiers de mondes. Le parcours des mondes et la reprise
+  // de la progression se font sur le pool d'audit, pas sur l'appelant (thread principal). onComplete est
+  // appelé depuis un thread d'audit, jamais si l'audit est arrêté. Retourne false si un audit est déjà
+  // en cours.
+  public boolean start(List<Path> worldFolders, Collection<Signature> signatures, boolean resume,
+      Consumer<Report> onComplete) throws IOException {
+    if (!running.compareAndSet(false, true)) {
+      return false;
+    }
+    try {
+      Files.createDirectories(stateDir);
+    } catch (IOException | RuntimeException e) {
+      running.set(false);
+      throw e;
+    }
+    Path state = stateDir.resolve("state.txt");
+    Path findingsFile = stateDir.resolve("findings.tsv");
+    cancelled.set(false);
+    filesTotal = 0;
+    filesDone.set(0);
+    unreadable.set(0);
+    bytesRead.set(0);
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "UniqueCrafts-Audit");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    });
+    pool = executor;
+    long start = System.nanoTime();
+    CompletableFuture.supplyAsync(() -> {
+      try {
+        return prepare(worldFolders, resume, state, findingsFile);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, executor).thenCompose(todo -> {
+      AtomicInteger next = new AtomicInteger();
+      CompletableFuture<?>[] workers = new CompletableFuture<?>[threads];
+      for (int i = 0; i < threads; i++) {
+        workers[i] = CompletableFuture.runAsync(() -> {
+          Matcher matcher = new Matcher(signatures);
+          NbtScanner scanner = new NbtScanner(markerKey);
+          int index;
+          while (!cancelled.get() && (index = next.getAndIncrement()) < todo.size()) {
+            scanFile(todo.get(index), scanner, matcher);
+          }
+        }, executor);
+      }
+      return CompletableFuture.allOf(workers);
+    }).whenComplete((ignored, error) -> {
+      try {
+        closeWriters();
+        if (error != null) {
+          Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+          logger.severe("§cErreur pendant l'audit: " + cause);
+        } else if (!cancelled.get()) {
+          Report report = finish(state, findingsFile, System.nanoTime() - start);
+          onComplete.accept(report);
+        }
+      } catch (IOException e) {
+        logger.severe("§cÉcriture du rapport d'audit impossible: " + e.getMessage());
+      } finally {
+        executor.shutdown();
+        pool = null;
+        running.set(false);
+      }
+    });
+    return true;
+  }
+
+  // Thread d'audit: liste les fichiers (taille et date lues une fois, pendant le parcours), écarte ceux
+  // déjà analysés et ouvre les fichiers de progression. Retourne les fichiers à analyser.
+  private List<Candidate> prepare(List<Path> worldFolders, boolean resume, Path state, Path findingsFile)
+      throws IOException {
+    if (!resume) {
+      Files.deleteIfExists(state);
+      Files.deleteIfExists(findingsFile);
+    }
+    List<Candidate> files = new ArrayList<>();
+    for (Path folder : worldFolders) {
+      collectFiles(folder, files);
+    }
+    files.sort(Comparator.comparingLong(Candidate::size).reversed());
+    Set<String> keys = new HashSet<>();
+    for (Candidate file : files) {
+      keys.add(file.key());
+    }
+    // Seuls les fichiers inchangés depuis leur analyse sont repris: un fichier modifié ou supprimé
+    // depuis est refait, ses anciens résultats sont écartés
+    Set<String> done = readState(state);
+    done.retainAll(keys);
+    List<String> previous = keptFindings(findingsFile, done);
+    if (previous == null) {
+      // Résultats d'une version précédente, sans clé d'état: audit repris depuis le début
+      done.clear();
+      previous = List.of();
+    }
+    // Réécrit la progression et les résultats sans les fichiers à refaire
+    Files.write(state, done, StandardCharsets.UTF_8);
+    Files.write(findingsFile, previous, StandardCharsets.UTF_8);
+    List<Candidate> todo = new ArrayList<>();
+    for (Candidate file : files) {
+      if (!done.contains(file.key())) {
+        todo.add(file);
+      }
+    }
+
+    filesTotal = files.size();
+    filesDone.set(files.size() - todo.size());
+    synchronized (this) {
+      throttleNanos = System.nanoTime();
+      stateWriter = Files.newBufferedWriter(state, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND);
+      findingsWriter = Files.newBufferedWriter(findingsFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND);
+    }
+    if (todo.size() < files.size()) {
+      logger.info("§eReprise de l'audit: " + (files.size() - todo.size()) + "/" + files.size()
+          + " fichiers déjà analysés");
+    }
+    return todo;
+  }
+
+  // Arrête l'audit après les fichiers en cours de lecture; la progression est conservée
+  public void stop() {
+    cancelled.set(true);
+    ExecutorService executor = pool;
+    if (executor != null) {
+      try {
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void scanFile(Candidate candidate, NbtScanner scanner, Matcher matcher) {
+    Path file = candidate.path();
+    String name = file.getFileName().toString();
+    List<Finding> findings = new ArrayList<>();
+    String origin = describe(file);
+    // Clé relevée au parcours, avant la lecture: un fichier modifié depuis sera refait à la reprise
+    String key = candidate.key();
+    try {
+      if (name.endsWith(".mca")) {
+        scanRegion(file, origin, scanner, matcher, findings);
+      } else {
+        waitForServer();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+          MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+          throttle(buffer.remaining());
+          try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+              new GZIPInputStream(new ByteBufferInputStream(buffer))))) {
+            matcher.match(scanner.scan(in), origin, findings);
+          }
+        }
+      }
+      if (!cancelled.get()) {
+        complete(key, findings);
+      }
+    } catch (IOException | RuntimeException e) {
+      unreadable.incrementAndGet();
+      logger.warning("§eFichier illisible pendant l'audit: " + origin + " (" + e.getMessage() + ")");
+      if (!cancelled.get()) {
+        complete(key, findings);
+      }
+    }
+  }
+
+  // Format région: 1024 entrées (offset en secteurs de 4 Kio, taille), puis données compressées
+  private void scanRegion(Path file, String origin, NbtScanner scanner, Matcher matcher, List<Finding> findings)
+      throws IOException {
+    int[] region = regionCoords(file.getFileName().toString());
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < 2 * SECTOR) {
+        return;
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      for (int i = 0; i < 1024 && !cancelled.get(); i++) {
+        int entry = buffer.getInt(i * 4);
+        long offset = (long) (entry >>> 8) * SECTOR;
+        if (offset == 0) {
+          continue;
+        }
+        int chunkX = region[0] * 32 + (i & 31);
+        int chunkZ = region[1] * 32 + (i >> 5);
+        String where = origin + " chunk " + chunkX + "," + chunkZ;
+        if (offset + 5 > size) {
+          unreadable.incrementAndGet();
+          continue;
+        }
+        int length = buffer.getInt((int) offset);
+        byte compression = buffer.get((int) offset + 4);
+        if (length <= 0 || offset + 4 + length > size) {
+          unreadable.incrementAndGet();
+          continue;
+        }
+        waitForServer();
+        try (InputStream raw = chunkStream(file, buffer, (int) offset + 5, length - 1, compression, chunkX,
+            chunkZ)) {
+          if (raw == null) {
+            unreadable.incrementAndGet();
+            continue;
+          }
+          matcher.match(scanner.scan(new DataInputStream(new BufferedInputStream(raw))), where, findings);
+        } catch (IOException e) {
+          unreadable.incrementAndGet();
+          logger.warning("§eChunk illisible pendant l'audit: " + where + " (" + e.getMessage() + ")");
+        }
+      }
+    }
+  }
+
+  // null si la compression n'est pas gérée (LZ4, format personnalisé)
+  private InputStream chunkStream(Path file, ByteBuffer buffer, int position, int length, byte compression,
+      int chunkX, int chunkZ) throws IOException {
+    InputStream source;
+    if ((compression & 0x80) != 0) {
+      // Chunk trop gros pour la région: fichier c.<x>.<z>.mcc à côté
+      Path external = file.resolveSibling("c." + chunkX + "." + chunkZ + ".mcc");
+      throttle(Files.size(external));
+      source = new BufferedInputStream(Files.newInputStream(external));
+    } else {
+      throttle(length);
+      source = new ByteBufferInputStream(buffer.slice(position, length));
+    }
+    return switch (compression & 0x7F) {
+      case 1 -> new GZIPInputStream(source);
+      case 2 -> new InflaterInputStream(source);
+      case 3 -> source;
+      default -> {
+        source.close();
+        yield null;
+      }
+    };
+  }
+
+  // Attend que le tick redescende sous le seuil configuré
+  private void waitForServer() {
+    while (!cancelled.get() && serverBusy.getAsBoolean()) {
+      try {
+        Thread.sleep(BUSY_PAUSE_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  // Débit de lecture partagé par tous les threads d'audit
+  private void throttle(long bytes) {
+    bytesRead.addAndGet(bytes);
+    if (maxBytesPerSecond <= 0) {
+      return;
+    }
+    long wait;
+    synchronized (this) {
+      long now = System.nanoTime();
+      throttleNanos = Math.max(throttleNanos, now) + bytes * 1_000_000_000L / maxBytesPerSecond;
+      wait = throttleNanos - now;
+    }
+    if (wait > 0) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(wait);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  // Résultats du fichier puis marque de fin: un fichier sans marque est refait à la reprise
+  private synchronized void complete(String key, List<Finding> findings) {
+    try {
+      for (Finding finding : findings) {
+        findingsWriter.write(key + "\t" + encode(finding));
+        findingsWriter.newLine();
+      }
+      findingsWriter.flush();
+      stateWriter.write(key);
+      stateWriter.newLine();
+      stateWriter.flush();
+      filesDone.incrementAndGet();
+    } catch (IOException e) {
+      logger.warning("§eÉcriture de la progression de l'audit impossible: " + e.getMessage());
+    }
+  }
+
+  private synchronized void closeWriters() {
+    try {
+      if (stateWriter != null) {
+        stateWriter.close();
+      }
+      if (findingsWriter != null) {
+        findingsWriter.close();
+      }
+    } catch (IOException e) {
+      logger.warning("§eFermeture des fichiers d'audit impossible: " + e.getMessage());
+    } finally {
+      stateWriter = null;
+      findingsWriter = null;
+    }
+  }
+
+  private Report finish(Path state, Path findingsFile, long nanos) throws IOException {
+    List<Finding> findings = readFindings(findingsFile);
+    Map<String, Integer> totals = new TreeMap<>();
+    for (Finding finding : findings) {
+      totals.merge(finding.craftId(), finding.count(), Integer::sum);
+    }
+    String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    Path path = stateDir.resolve("report-" + stamp + ".txt");
+    Report report = new Report(List.copyOf(findings), totals, filesTotal, bytesRead.get(), unreadable.get(), nanos,
+        path);
+
+    List<String> lines = new ArrayList<>();
+    lines.add("# Audit UniqueCrafts " + stamp);
+    lines.add("# " + status());
+    lines.add("# marked = objet portant le tag " + markerKey + ", sinon reconnu par matériau/nom/lore");
+    for (Map.Entry<String, Integer> entry : totals.entrySet()) {
+      lines.add("");
+      lines.add(entry.getKey() + ": " + entry.getValue() + " exemplaire(s)" + (entry.getValue() > 1 ? " DOUBLON" : ""));
+      for (Finding finding : findings) {
+        if (finding.craftId().equals(entry.getKey())) {
+          lines.add("  " + finding.count() + "x " + finding.itemId() + (finding.marked() ? " [marked] " : " ")
+              + finding.location());
+        }
+      }
+    }
+    Files.write(path, lines, StandardCharsets.UTF_8);
+    Files.deleteIfExists(state);
+    Files.deleteIfExists(findingsFile);
+    return report;
+  }
+
+  private static void collectFiles(Path worldFolder, List<Candidate> files) throws IOException {
+    if (!Files.isDirectory(worldFolder)) {
+      return;
+    }
+    // region/ et entities/ du monde et des dimensions (DIM-1, DIM1), playerdata/ du monde principal
+    Files.walkFileTree(worldFolder, Set.of(), 3, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) {
+        if (!attributes.isRegularFile() || path.getParent() == null) {
+          return FileVisitResult.CONTINUE;
+        }
+        String parent = path.getParent().getFileName().toString();
+        String name = path.getFileName().toString();
+        if ((parent.equals("region") || parent.equals("entities")) && name.endsWith(".mca")
+            || parent.equals("playerdata") && name.endsWith(".dat")) {
+          files.add(new Candidate(path, attributes.size(), stateKey(path, attributes)));
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      // Fichier supprimé ou illisible pendant le parcours (sauvegarde du monde en cours)
+      @Override
+      public FileVisitResult visitFileFailed(Path path, IOException e) {
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private static int[] regionCoords(String name) {
+    String[] parts = name.split("\\.");
+    try {
+      return new int[] {Integer.parseInt(parts[1]), Integer.parseInt(parts[2])};
+    } catch (RuntimeException e) {
+      return new int[] {0, 0};
+    }
+  }
+
+  // monde/dossier/fichier
+  private static String describe(Path file) {
+    int count = file.getNameCount();
+    return file.subpath(Math.max(0, count - 3), count).toString().replace(File.separatorChar, '/');
+  }
+
+  // Chemin, taille et date: un fichier modifié depuis est analysé à nouveau
+  private static String stateKey(Path file, BasicFileAttributes attributes) {
+    return file.toAbsolutePath() + "\t" + attributes.size() + "\t" + attributes.lastModifiedTime().toMillis();
+  }
+
+  private static Set<String> readState(Path state) throws IOException {
+    Set<String> done = new HashSet<>();
+    if (Files.exists(state)) {
+      done.addAll(Files.readAllLines(state, StandardCharsets.UTF_8));
+    }
+    return done;
+  }
+
+  // Chaque ligne de résultat commence par la clé d'état (chemin, taille, date) de son fichier
+  private static List<Finding> readFindings(Path findingsFile) throws IOException {
+    List<Finding> findings = new ArrayList<>();
+    if (!Files.exists(findingsFile)) {
+      return findings;
+    }
+    for (String line : Files.readAllLines(findingsFile, StandardCharsets.UTF_8)) {
+      String[] parts = line.split("\t", 9);
+      if (parts.length < 9) {
+        continue;
+      }
+      findings.add(new Finding(parts[3], parts[4], parts[8], parts[6], Integer.parseInt(parts[7]),
+          Boolean.parseBoolean(parts[5])));
+    }
+    return findings;
+  }
+
+  // Lignes de résultat des fichiers terminés (clé d'état exacte); null si le fichier vient d'une
+  // version sans clé d'état
+  private static List<String> keptFindings(Path findingsFile, Set<String> done) throws IOException {
+    List<String> kept = new ArrayList<>();
+    if (!Files.exists(findingsFile)) {
+      return kept;
+    }
+    for (String line : Files.readAllLines(findingsFile, StandardCharsets.UTF_8)) {
+      if (line.isEmpty()) {
+        continue;
+      }
+      String[] parts = line.split("\t", 9);
+      if (parts.length < 9) {
+        return null;
+      }
+      if (done.contains(parts[0] + "\t" + parts[1] + "\t" + parts[2])) {
+        kept.add(line);
+      }
+    }
+    return kept;
+  }
+
+  private static String encode(Finding finding) {
+    return finding.craftId() + "\t" + finding.file() + "\t" + finding.marked() + "\t" + finding.itemId() + "\t"
+        + finding.count() + "\t" + finding.location().replace('\t', ' ').replace('\n', ' ');
+  }
+
+  // Rapproche les objets trouvés des crafts: tag PDC d'abord, sinon matériau + nom (+ lore)
+  private static final class Matcher {
+    private final Map<String, List<Signature>> byName = new HashMap<>();
+
+    Matcher(Collection<Signature> signatures) {
+      for (Signature signature : signatures) {
+        if (signature.name() != null && !signature.name().isEmpty()) {
+          byName.computeIfAbsent(signature.name(), n -> new ArrayList<>(1)).add(signature);
+        }
+      }
+    }
+
+    void match(List<NbtScanner.Hit> hits, String where, List<Finding> findings) {
+      String file = where.contains(" chunk ") ? where.substring(0, where.indexOf(" chunk ")) : where;
+      for (NbtScanner.Hit hit : hits) {
+        String location = where + " " + hit.location();
+        if (hit.marker() != null) {
+          findings.add(new Finding(hit.marker(), file, location, hit.itemId(), hit.count(), true));
+          continue;
+        }
+        List<Signature> candidates = byName.get(hit.name());
+        if (candidates == null) {
+          continue;
+        }
+        for (Signature signature : candidates) {
+          if (signature.material().equals(hit.itemId())
+              && (signature.lore().isEmpty() || signature.lore().equals(hit.lore()))) {
+            findings.add(new Finding(signature.craftId(), file, location, hit.itemId(), hit.count(), false));
+            break;
+          }
+        }
+      }
+    }
+  }
+
+  // Lecture d'un ByteBuffer (fichier mappé) sans copie préalable
+  private static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public long skip(long n) {
+      int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package fr.plugin.uniquecraft;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+// Dernière position connue de chaque exemplaire d'objet unique (numéro de série PDC), tenue à jour
+// par ItemLocatorListener. Lecture en O(1) par craft pour /uniquecraft locate; sauvegarde
+// asynchrone dans locations.yml quand l'index a changé.
+public final class ItemLocator {
+
+  public enum Kind {
+    PLAYER, ENDER_CHEST, CONTAINER, ENTITY, GROUND, LOST
+  }
+
+  // name: joueur, type de conteneur ou d'entité; player: détenteur pour PLAYER et ENDER_CHEST
+  public record Holder(String craftId, String serial, Kind kind, String name, UUID player, String world, int x,
+      int y, int z, long updatedAt) {
+  }
+
+  private final Path file;
+  private final Logger logger;
+  private final Trace trace;
+  private final LatencyHistogram writeLatency;
+  private final Map<String, Holder> bySerial = new ConcurrentHashMap<>();
+  private final Map<String, Map<String, Holder>> byCraft = new ConcurrentHashMap<>();
+  private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+  public ItemLocator(Path file, Logger logger, CraftMetrics metrics, Trace trace) {
+    this.file = file;
+    this.logger = logger;
+    this.trace = trace;
+    this.writeLatency = metrics.persistence("locations");
+  }
+
+  public void update(Holder holder) {
+    Holder previous = bySerial.put(holder.serial(), holder);
+    if (previous != null && !previous.craftId().equals(holder.craftId())) {
+      remove(previous.craftId(), previous.serial());
+    }
+    byCraft.computeIfAbsent(holder.craftId(), id -> new ConcurrentHashMap<>()).put(holder.serial(), holder);
+    dirty.set(true);
+  }
+
+  // Exemplaires connus d'un craft (plusieurs en cas de doublon)
+  public List<Holder> locate(String craftId) {
+    Map<String, Holder> holders = byCraft.get(craftId);
+    return holders == null ? List.of() : new ArrayList<>(holders.values());
+  }
+
+  public int size() {
+    return bySerial.size();
+  }
+
+  private void remove(String craftId, String serial) {
+    Map<String, Holder> holders = byCraft.get(craftId);
+    if (holders != null) {
+      holders.remove(serial);
+    }
+  }
+
+  // Bloquant: au onEnable, avant l'enregistrement des événements
+  public void load() {
+    if (!Files.exists(file)) {
+      return;
+    }
+    YamlConfiguration yaml = YamlConfiguration.loadConfiguration(file.toFile());
+    ConfigurationSection items = yaml.getConfigurationSection("items");
+    if (items == null) {
+      return;
+    }
+    for (String serial : items.getKeys(false)) {
+      ConfigurationSection item = items.getConfigurationSection(serial);
+      if (item == null) {
+        continue;
+      }
+      try {
+        String player = item.getString("player");
+        update(new Holder(item.getString("craft", ""), serial, Kind.valueOf(item.getString("kind", "LOST")),
+            item.getString("name", ""), player == null ? null : UUID.fromString(player), item.getString("world", ""),
+            item.getInt("x"), item.getInt("y"), item.getInt("z"), item.getLong("updated")));
+      } catch (IllegalArgumentException e) {
+        logger.warning("§ePosition illisible pour l'objet " + serial + " dans " + file.getFileName());
+      }
+    }
+    dirty.set(false);
+  }
+
+  // Écrit l'index s'il a changé depuis la dernière sauvegarde (timer asynchrone et onDisable)
+  public void checkpoint() {
+    if (!dirty.compareAndSet(true, false)) {
+      return;
+    }
+    long start = System.nanoTime();
+    YamlConfiguration yaml = new YamlConfiguration();
+    List<Holder> holders = new ArrayList<>(bySerial.values());
+    for (Holder holder : holders) {
+      String path = "items." + holder.serial();
+      yaml.set(path + ".craft", holder.craftId());
+      yaml.set(path + ".kind", holder.kind().name());
+      yaml.set(path + ".name", holder.name());
+      if (holder.player() != null) {
+        yaml.set(path + ".player", holder.player().toString());
+      }
+      yaml.set(path + ".world", holder.world());
+      yaml.set(path + ".x", holder.x());
+      yaml.set(path + ".y", holder.y());
+      yaml.set(path + ".z", holder.z());
+      yaml.set(path + ".updated", holder.updatedAt());
+    }
+    try {
+      CraftsPersistence.writeAtomically(file, yaml.saveToString());
+    } catch (IOException e) {
+      // On réessaiera au prochain passage
+      dirty.set(true);
+      logger.severe("§cErreur lors de la sauvegarde des positions d'objets: " + e.getMessage());
+    }
+    long elapsed = System.nanoTime() - start;
+    writeLatency.record(elapsed);
+    trace.log(Trace.Category.PERSISTENCE, "locations.yml écrit ({} objets, {} µs)", holders.size(),
+        elapsed / 1_000);
+  }
+}
@@ -0,0 +1,224 @@
+package fr.plugin.uniquecraft;
+
+import fr.plugin.uniquecraft.ItemLocator.Holder;
+import fr.plugin.uniquecraft.ItemLocator.Kind;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.Supplier;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockDropItemEvent;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.entity.ItemDespawnEvent;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.inventory.CraftItemEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.inventory.InventoryPickupItemEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+// Tient ItemLocator à jour à partir des événements qui déplacent un objet. Chaque gestionnaire
+// écarte d'abord les objets dont le matériau n'est le résultat d'aucun craft unique: le coût
+// pour les objets ordinaires est une recherche dans un EnumSet, sans lecture de l'ItemMeta.
+public class ItemLocatorListener implements Listener {
+
+  // Clé PDC du numéro de série (uniquecrafts:serial), posée au craft
+  public static final String SERIAL_KEY = "serial";
+
+  private final ItemLocator locator;
+  private final Supplier<RecipeIndex> recipes;
+  private final NamespacedKey markerKey;
+  private final NamespacedKey serialKey;
+  private final PluginScheduler scheduler;
+  private final CraftHistory history;
+
+  public ItemLocatorListener(ItemLocator locator, Supplier<RecipeIndex> recipes, NamespacedKey markerKey,
+      NamespacedKey serialKey, PluginScheduler scheduler, CraftHistory history) {
+    this.locator = locator;
+    this.recipes = recipes;
+    this.markerKey = markerKey;
+    this.serialKey = serialKey;
+    this.scheduler = scheduler;
+    this.history = history;
+  }
+
+  // Numérote l'exemplaire produit par un craft unique accepté (CraftListener passe avant). Un autre
+  // plugin peut encore annuler le craft: l'historique attend onCraftRecorded.
+  @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+  public void onCraftItem(CraftItemEvent event) {
+    if (!(event.getWhoClicked() instanceof Player) || event.getRecipe() == null) {
+      return;
+    }
+    CraftDefinition matched = recipes.get().find(event.getRecipe());
+    CraftDefinition definition = matched == null ? null
+        : recipes.get().resolve(matched, event.getInventory().getMatrix());
+    ItemStack result = event.getCurrentItem();
+    if (definition == null || result == null || !result.hasItemMeta()) {
+      return;
+    }
+    ItemMeta meta = result.getItemMeta();
+    meta.getPersistentDataContainer().set(serialKey, PersistentDataType.STRING, UUID.randomUUID().toString());
+    result.setItemMeta(meta);
+    event.setCurrentItem(result);
+  }
+
+  // Craft définitivement accepté: l'exemplaire numéroté entre dans l'historique et le localisateur
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onCraftRecorded(CraftItemEvent event) {
+    ItemStack result = event.getCurrentItem();
+    if (!(event.getWhoClicked() instanceof Player player) || !candidate(result) || !result.hasItemMeta()) {
+      return;
+    }
+    PersistentDataContainer data = result.getItemMeta().getPersistentDataContainer();
+    String serial = data.get(serialKey, PersistentDataType.STRING);
+    String craftId = data.get(markerKey, PersistentDataType.STRING);
+    if (serial == null || craftId == null) {
+      return;
+    }
+    Holder crafted = holder(craftId, serial, Kind.PLAYER, player.getName(), player.getUniqueId(),
+        player.getLocation());
+    locator.update(crafted);
+    history.record(new CraftHistory.Entry(crafted.updatedAt(), crafted.craftId(), crafted.player(), crafted.name(),
+        crafted.world(), crafted.x(), crafted.y(), crafted.z(), serial));
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onPickup(EntityPickupItemEvent event) {
+    Entity entity = event.getEntity();
+    if (entity instanceof Player player) {
+      track(event.getItem().getItemStack(), Kind.PLAYER, player.getName(), player.getUniqueId(),
+          player.getLocation());
+    } else {
+      track(event.getItem().getItemStack(), Kind.ENTITY, entity.getType().getKey().toString(), null,
+          entity.getLocation());
+    }
+  }
+
+  // Entonnoir ou wagonnet qui aspire un objet au sol
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onInventoryPickup(InventoryPickupItemEvent event) {
+    trackIn(event.getItem().getItemStack(), event.getInventory());
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onDrop(PlayerDropItemEvent event) {
+    Item item = event.getItemDrop();
+    track(item.getItemStack(), Kind.GROUND, "lâché par " + event.getPlayer().getName(), null, item.getLocation());
+  }
+
+  // Transferts automatiques (entonnoirs, droppers)
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onMove(InventoryMoveItemEvent event) {
+    trackIn(event.getItem(), event.getDestination());
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onDeath(PlayerDeathEvent event) {
+    Player player = event.getEntity();
+    for (ItemStack drop : event.getDrops()) {
+      track(drop, Kind.GROUND, "mort de " + player.getName(), null, player.getLocation());
+    }
+  }
+
+  // Conteneur cassé: son contenu tombe au sol
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onBlockDrop(BlockDropItemEvent event) {
+    for (Item item : event.getItems()) {
+      track(item.getItemStack(), Kind.GROUND, event.getBlockState().getType().getKey().toString(), null,
+          item.getLocation());
+    }
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onDespawn(ItemDespawnEvent event) {
+    track(event.getEntity().getItemStack(), Kind.LOST, "disparu au sol", null, event.getLocation());
+  }
+
+  // Clics: la destination n'est connue qu'une fois le clic appliqué, on relit donc les deux
+  // inventaires au tick suivant, seulement si un objet unique est sous le curseur ou le clic
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onClick(InventoryClickEvent event) {
+    HumanEntity clicker = event.getWhoClicked();
+    boolean involved = candidate(event.getCurrentItem()) || candidate(event.getCursor());
+    if (!involved && event.getHotbarButton() >= 0) {
+      involved = candidate(clicker.getInventory().getItem(event.getHotbarButton()));
+    }
+    if (involved && clicker instanceof Player player) {
+      Inventory top = event.getView().getTopInventory();
+      scheduler.runForPlayerLater(player, () -> resolve(player, top), 1L);
+    }
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onDrag(InventoryDragEvent event) {
+    if (candidate(event.getOldCursor()) && event.getWhoClicked() instanceof Player player) {
+      Inventory top = event.getView().getTopInventory();
+      scheduler.runForPlayerLater(player, () -> resolve(player, top), 1L);
+    }
+  }
+
+  private void resolve(Player player, Inventory top) {
+    if (top.getType() != InventoryType.CRAFTING && top.getType() != InventoryType.WORKBENCH) {
+      for (ItemStack stack : top.getContents()) {
+        trackIn(stack, top, player);
+      }
+    }
+    for (ItemStack stack : player.getInventory().getContents()) {
+      track(stack, Kind.PLAYER, player.getName(), player.getUniqueId(), player.getLocation());
+    }
+    track(player.getItemOnCursor(), Kind.PLAYER, player.getName(), player.getUniqueId(), player.getLocation());
+  }
+
+  private void trackIn(ItemStack stack, Inventory inventory) {
+    trackIn(stack, inventory, null);
+  }
+
+  private void trackIn(ItemStack stack, Inventory inventory, Player viewer) {
+    if (inventory.getType() == InventoryType.ENDER_CHEST && viewer != null) {
+      track(stack, Kind.ENDER_CHEST, viewer.getName(), viewer.getUniqueId(), viewer.getLocation());
+    } else if (inventory.getType() == InventoryType.PLAYER && inventory.getHolder() instanceof Player owner) {
+      track(stack, Kind.PLAYER, owner.getName(), owner.getUniqueId(), owner.getLocation());
+    } else {
+      track(stack, Kind.CONTAINER, inventory.getType().name().toLowerCase(Locale.ROOT), null, inventory.getLocation());
+    }
+  }
+
+  private void track(ItemStack stack, Kind kind, String name, UUID player, Location location) {
+    if (!candidate(stack) || !stack.hasItemMeta()) {
+      return;
+    }
+    PersistentDataContainer data = stack.getItemMeta().getPersistentDataContainer();
+    String serial = data.get(serialKey, PersistentDataType.STRING);
+    String craftId = data.get(markerKey, PersistentDataType.STRING);
+    if (serial != null && craftId != null) {
+      locator.update(holder(craftId, serial, kind, name, player, location));
+    }
+  }
+
+  private boolean candidate(ItemStack stack) {
+    return stack != null && recipes.get().isResultMaterial(stack.getType());
+  }
+
+  private static Holder holder(String craftId, String serial, Kind kind, String name, UUID player,
+      Location location) {
+    if (location == null || location.getWorld() == null) {
+      return new Holder(craftId, serial, kind, name, player, "", 0, 0, 0, System.currentTimeMillis());
+    }
+    return new Holder(craftId, serial, kind, name, player, location.getWorld().getName(), location.getBlockX(),
+        location.getBlockY(), location.getBlockZ(), System.currentTimeMillis());
+  }
+}
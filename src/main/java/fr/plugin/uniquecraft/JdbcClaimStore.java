@@ -0,0 +1,329 @@
+package fr.plugin.uniquecraft;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+import org.bukkit.configuration.ConfigurationSection;
+
+// Stockage des crafts réalisés en base SQLite ou MySQL (section database: de config.yml).
+// Les requêtes sont exécutées sur des threads virtuels, par lots, jamais sur le thread principal.
+// Même la connexion du pool et la lecture initiale: load() attend leur fin, au plus LOAD_TIMEOUT_SECONDS.
+public class JdbcClaimStore implements ClaimStore {
+
+  private static final String TABLE = "uniquecrafts_claims";
+  static final long LOAD_TIMEOUT_SECONDS = 30;
+  // Nouvel essai d'un lot en échec, délai doublé à chaque échec
+  static final long RETRY_MIN_MILLIS = 1_000;
+  static final long RETRY_MAX_MILLIS = 60_000;
+
+  private record Operation(String craftId, UUID player, long timestamp, boolean claim) {
+  }
+
+  // Ouverture du pool, exécutée par load() sur un thread virtuel
+  private final Callable<DataSource> opener;
+  private volatile DataSource dataSource;
+  private final Logger logger;
+  private final LatencyHistogram writeLatency;
+  private final Trace trace;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final ConcurrentLinkedQueue<Operation> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean draining = new AtomicBoolean(false);
+  private final Object writeLock = new Object();
+  // Lot en échec, rejoué avant les opérations plus récentes
+  private final Map<String, Operation> retry = new LinkedHashMap<>();
+  private final AtomicBoolean retryScheduled = new AtomicBoolean(false);
+  // Ouvert par close(): interrompt l'attente d'un nouvel essai
+  private final CountDownLatch closing = new CountDownLatch(1);
+  // Sous writeLock
+  private long retryDelay = RETRY_MIN_MILLIS;
+
+  // Pool construit à partir de la section database: de config.yml. HikariDataSource se connecte dès sa
+  // construction: elle a lieu dans load(), hors du thread principal.
+  public static JdbcClaimStore fromConfig(ConfigurationSection database, File dataFolder, Logger logger,
+      CraftMetrics metrics, Trace trace) {
+    String name = database.getString("name", "uniquecrafts");
+    HikariConfig hikari = hikariConfig(database, new File(dataFolder, name + ".db"));
+    return new JdbcClaimStore(() -> new HikariDataSource(hikari), logger, metrics, trace);
+  }
+
+  // Configuration de pool commune (stockage local et coordination réseau)
+  static HikariConfig hikariConfig(ConfigurationSection database, File sqliteFile) {
+    String type = database.getString("type", "sqlite").toLowerCase();
+    String name = database.getString("name", "uniquecrafts");
+
+    HikariConfig hikari = new HikariConfig();
+    hikari.setPoolName("UniqueCrafts-" + type);
+    switch (type) {
+      case "mysql":
+        hikari.setJdbcUrl("jdbc:mysql://" + database.getString("host", "localhost") + ":"
+            + database.getInt("port", 3306) + "/" + name);
+        hikari.setUsername(database.getString("username", "root"));
+        hikari.setPassword(database.getString("password", ""));
+        hikari.setMaximumPoolSize(4);
+        hikari.addDataSourceProperty("rewriteBatchedStatements", "true");
+        hikari.addDataSourceProperty("cachePrepStmts", "true");
+        break;
+      case "sqlite":
+        hikari.setJdbcUrl("jdbc:sqlite:" + sqliteFile.getAbsolutePath());
+        // SQLite n'accepte qu'un écrivain à la fois
+        hikari.setMaximumPoolSize(1);
+        // Fichier éventuellement partagé par plusieurs serveurs: attendre le verrou plutôt qu'échouer
+        hikari.addDataSourceProperty("busy_timeout", "5000");
+        break;
+      default:
+        throw new IllegalArgumentException("Type de base de données inconnu: " + type);
+    }
+    return hikari;
+  }
+
+  // Le DataSource peut être n'importe quel pool (ex: H2 en mode MySQL)
+  JdbcClaimStore(DataSource dataSource, Logger logger, CraftMetrics metrics, Trace trace) {
+    this(() -> dataSource, logger, metrics, trace);
+  }
+
+  private JdbcClaimStore(Callable<DataSource> opener, Logger logger, CraftMetrics metrics, Trace trace) {
+    this.opener = opener;
+    this.logger = logger;
+    this.writeLatency = metrics.persistence("database");
+    this.trace = trace;
+  }
+
+  // Connexion, création de la table et lecture complète sur un thread virtuel. L'appelant (onEnable)
+  // attend le résultat avant d'enregistrer les événements, au plus LOAD_TIMEOUT_SECONDS.
+  @Override
+  public Map<String, ClaimRecord> load() throws IOException {
+    Future<Map<String, ClaimRecord>> loading = executor.submit(this::read);
+    try {
+      return loading.get(LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (TimeoutException e) {
+      loading.cancel(true);
+      throw new IOException("Base injoignable après " + LOAD_TIMEOUT_SECONDS + " s", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException io) {
+        throw io;
+      }
+      throw new IOException("Connexion à la base impossible: " + e.getCause().getMessage(), e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      loading.cancel(true);
+      throw new IOException("Lecture de la table " + TABLE + " interrompue", e);
+    }
+  }
+
+  private Map<String, ClaimRecord> read() throws Exception {
+    if (dataSource == null) {
+      dataSource = opener.call();
+    }
+    Map<String, ClaimRecord> claims = new LinkedHashMap<>();
+    try (Connection connection = dataSource.getConnection()) {
+      try (Statement statement = connection.createStatement()) {
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + TABLE + " ("
+            + "craft_id VARCHAR(64) NOT NULL PRIMARY KEY, "
+            + "player CHAR(36) NOT NULL, "
+            + "claimed_at BIGINT NOT NULL)");
+      }
+      try (Statement statement = connection.createStatement();
+          ResultSet rs = statement.executeQuery("SELECT craft_id, player, claimed_at FROM " + TABLE)) {
+        while (rs.next()) {
+          String craftId = rs.getString(1);
+          claims.put(craftId, new ClaimRecord(craftId, UUID.fromString(rs.getString(2)), rs.getLong(3)));
+        }
+      }
+    } catch (SQLException | IllegalArgumentException e) {
+      throw new IOException("Lecture de la table " + TABLE + " impossible", e);
+    }
+    return Collections.unmodifiableMap(claims);
+  }
+
+  @Override
+  public void claim(String craftId, UUID player) {
+    enqueue(new Operation(craftId, player, System.currentTimeMillis(), true));
+  }
+
+  @Override
+  public void reset(String craftId) {
+    enqueue(new Operation(craftId, null, System.currentTimeMillis(), false));
+  }
+
+  @Override
+  public void close() {
+    closing.countDown();
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        logger.severe("§cLes écritures en base n'ont pas pu être terminées à temps !");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (dataSource == null) {
+      return;
+    }
+    // Dernières écritures restées dans la file
+    flushPending();
+    if (dataSource instanceof AutoCloseable closeable) {
+      try {
+        closeable.close();
+      } catch (Exception e) {
+        logger.warning("§eErreur à la fermeture du pool: " + e.getMessage());
+      }
+    }
+  }
+
+  private void enqueue(Operation operation) {
+    pending.add(operation);
+    if (draining.compareAndSet(false, true)) {
+      executor.execute(() -> {
+        draining.set(false);
+        flushPending();
+      });
+    }
+  }
+
+  // Regroupe les opérations en attente: seule la dernière par craft compte.
+  private void flushPending() {
+    synchronized (writeLock) {
+      Map<String, Operation> batch = new LinkedHashMap<>(retry);
+      retry.clear();
+      Operation operation;
+      while ((operation = pending.poll()) != null) {
+        batch.put(operation.craftId(), operation);
+      }
+      if (batch.isEmpty()) {
+        return;
+      }
+
+      int size = batch.size();
+      long start = System.nanoTime();
+      try (Connection connection = dataSource.getConnection()) {
+        try {
+          write(connection, batch.values());
+        } catch (SQLException e) {
+          if (!rejected(e)) {
+            throw e;
+          }
+          // Opération refusée par la base (donnée invalide, contrainte): rejouée seule, elle ne bloque pas
+          // le reste du lot ni les écritures suivantes
+          writeEach(connection, batch);
+        }
+        retryDelay = RETRY_MIN_MILLIS;
+      } catch (SQLException e) {
+        // Le lot (ou ce qu'il en reste) sera retenté après un délai, ou avant la prochaine écriture si elle
+        // arrive plus tôt
+        retry.putAll(batch);
+        logger.severe("§cErreur d'écriture en base des crafts: " + e.getMessage());
+        scheduleRetry(retryDelay);
+        retryDelay = Math.min(retryDelay * 2, RETRY_MAX_MILLIS);
+      }
+      long elapsed = System.nanoTime() - start;
+      writeLatency.record(elapsed);
+      trace.log(Trace.Category.PERSISTENCE, "Base: {} opération(s) écrite(s) en {} µs", size, elapsed / 1_000);
+    }
+  }
+
+  // Une transaction pour toutes les opérations
+  private static void write(Connection connection, Collection<Operation> operations) throws SQLException {
+    connection.setAutoCommit(false);
+    try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + TABLE + " WHERE craft_id = ?");
+        PreparedStatement insert = connection.prepareStatement(
+            "INSERT INTO " + TABLE + " (craft_id, player, claimed_at) VALUES (?, ?, ?)")) {
+      for (Operation op : operations) {
+        delete.setString(1, op.craftId());
+        delete.addBatch();
+        if (op.claim()) {
+          insert.setString(1, op.craftId());
+          insert.setString(2, op.player().toString());
+          insert.setLong(3, op.timestamp());
+          insert.addBatch();
+        }
+      }
+      delete.executeBatch();
+      insert.executeBatch();
+      connection.commit();
+    } catch (SQLException e) {
+      connection.rollback();
+      throw e;
+    }
+  }
+
+  // Une transaction par opération: une opération refusée est abandonnée, les opérations écrites ou
+  // abandonnées quittent le lot. Une autre erreur (connexion) laisse le reste du lot à retenter.
+  private void writeEach(Connection connection, Map<String, Operation> batch) throws SQLException {
+    Iterator<Operation> operations = batch.values().iterator();
+    while (operations.hasNext()) {
+      Operation op = operations.next();
+      try {
+        write(connection, List.of(op));
+      } catch (SQLException e) {
+        if (!rejected(e)) {
+          throw e;
+        }
+        logger.severe("§cCraft " + op.craftId() + " refusé par la base, opération abandonnée: " + e.getMessage());
+      }
+      operations.remove();
+    }
+  }
+
+  // Erreur liée aux données (SQLSTATE 22) ou à une contrainte (23): la retenter échouerait de nouveau
+  private static boolean rejected(SQLException e) {
+    for (SQLException current = e; current != null; current = current.getNextException()) {
+      String state = current.getSQLState();
+      if (current instanceof SQLDataException || current instanceof SQLIntegrityConstraintViolationException
+          || state != null && (state.startsWith("22") || state.startsWith("23"))) {
+        return true;
+      }
+      if (current.getCause() instanceof SQLException cause && rejected(cause)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Serveur calme après une panne de la base: le lot en échec n'attend pas la prochaine écriture
+  private void scheduleRetry(long delayMillis) {
+    if (closing.getCount() == 0 || !retryScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    executor.execute(() -> {
+      try {
+        // close() fait lui-même la dernière tentative
+        if (closing.await(delayMillis, TimeUnit.MILLISECONDS)) {
+          return;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      retryScheduled.set(false);
+      trace.log(Trace.Category.PERSISTENCE, "Base: nouvel essai après {} ms", delayMillis);
+      flushPending();
+    });
+  }
+}
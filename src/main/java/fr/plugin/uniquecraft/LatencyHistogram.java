@@ -0,0 +1,73 @@
+package fr.plugin.uniquecraft;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Histogramme de latence à seaux fixes, sans verrou: un LongAdder par seau.
+// L'enregistrement ne fait aucune allocation; l'agrégation n'a lieu qu'à la lecture.
+public final class LatencyHistogram {
+
+  // Bornes supérieures des seaux, en nanosecondes (le dernier seau est +Inf)
+  static final long[] BOUNDS_NANOS = {
+      1_000L, 2_500L, 5_000L, 10_000L, 25_000L, 50_000L, 100_000L, 250_000L, 500_000L,
+      1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L,
+      100_000_000L, 250_000_000L, 500_000_000L, 1_000_000_000L };
+
+  private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+  private final LongAdder sumNanos = new LongAdder();
+
+  public LatencyHistogram() {
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  public void record(long nanos) {
+    int bucket = 0;
+    while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket]) {
+      bucket++;
+    }
+    buckets[bucket].increment();
+    sumNanos.add(nanos);
+  }
+
+  // Nombre de valeurs par seau (non cumulé)
+  public long[] snapshot() {
+    long[] counts = new long[buckets.length];
+    for (int i = 0; i < buckets.length; i++) {
+      counts[i] = buckets[i].sum();
+    }
+    return counts;
+  }
+
+  public long count() {
+    long count = 0;
+    for (LongAdder bucket : buckets) {
+      count += bucket.sum();
+    }
+    return count;
+  }
+
+  public long sumNanos() {
+    return sumNanos.sum();
+  }
+
+  // Borne supérieure du seau contenant le quantile q (Long.MAX_VALUE pour +Inf, 0 si vide)
+  public static long quantile(long[] counts, double q) {
+    long total = 0;
+    for (long count : counts) {
+      total += count;
+    }
+    if (total == 0) {
+      return 0L;
+    }
+    long rank = (long) Math.ceil(q * total);
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return i < BOUNDS_NANOS.length ? BOUNDS_NANOS[i] : Long.MAX_VALUE;
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+}
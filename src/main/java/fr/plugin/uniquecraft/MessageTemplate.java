@@ -0,0 +1,109 @@
+package fr.plugin.uniquecraft;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+
+// Message compilé une fois au chargement: segments littéraux et placeholders (%player%, ...)
+// résolus par position. Le rendu concatène les segments et produit un composant Adventure;
+// un message sans placeholder est rendu une seule fois, à la compilation.
+public final class MessageTemplate {
+
+  private static final LegacyComponentSerializer LEGACY = LegacyComponentSerializer.legacySection();
+
+  // literals[i] précède la valeur du placeholder slots[i]; le dernier littéral termine le message
+  private final String[] literals;
+  private final int[] slots;
+  private final int length;
+  private final Component constant;
+
+  private MessageTemplate(String[] literals, int[] slots) {
+    this.literals = literals;
+    this.slots = slots;
+    int total = 0;
+    for (String literal : literals) {
+      total += literal.length();
+    }
+    this.length = total;
+    this.constant = slots.length == 0 ? LEGACY.deserialize(literals[0]) : null;
+  }
+
+  // names: placeholders reconnus, dans l'ordre des valeurs passées à render. Un %inconnu% reste tel quel.
+  // Les codes couleur en & (crafts.yml) sont convertis en §.
+  public static MessageTemplate compile(String source, String... names) {
+    String text = translateColors(source == null ? "" : source);
+    List<String> literals = new ArrayList<>();
+    List<Integer> slots = new ArrayList<>();
+    StringBuilder literal = new StringBuilder();
+    int i = 0;
+    while (i < text.length()) {
+      char c = text.charAt(i);
+      int end = c == '%' ? text.indexOf('%', i + 1) : -1;
+      int slot = end < 0 ? -1 : indexOf(names, text.substring(i + 1, end));
+      if (slot < 0) {
+        literal.append(c);
+        i++;
+        continue;
+      }
+      literals.add(literal.toString());
+      literal.setLength(0);
+      slots.add(slot);
+      i = end + 1;
+    }
+    literals.add(literal.toString());
+    int[] slotArray = new int[slots.size()];
+    for (int s = 0; s < slotArray.length; s++) {
+      slotArray[s] = slots.get(s);
+    }
+    return new MessageTemplate(literals.toArray(new String[0]), slotArray);
+  }
+
+  public boolean constant() {
+    return constant != null;
+  }
+
+  // values: une valeur par placeholder déclaré à la compilation
+  public Component render(String... values) {
+    if (constant != null) {
+      return constant;
+    }
+    return LEGACY.deserialize(text(values));
+  }
+
+  // Texte § rendu, pour les journaux et les destinataires sans composants
+  public String text(String... values) {
+    if (constant != null) {
+      return literals[0];
+    }
+    StringBuilder out = new StringBuilder(length + 16 * slots.length);
+    for (int i = 0; i < slots.length; i++) {
+      out.append(literals[i]);
+      int slot = slots[i];
+      out.append(slot < values.length && values[slot] != null ? values[slot] : "");
+    }
+    return out.append(literals[slots.length]).toString();
+  }
+
+  private static int indexOf(String[] names, String name) {
+    for (int i = 0; i < names.length; i++) {
+      if (names[i].equals(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static String translateColors(String text) {
+    if (text.indexOf('&') < 0) {
+      return text;
+    }
+    char[] chars = text.toCharArray();
+    for (int i = 0; i < chars.length - 1; i++) {
+      if (chars[i] == '&' && "0123456789abcdefklmnorABCDEFKLMNOR".indexOf(chars[i + 1]) >= 0) {
+        chars[i] = '§';
+      }
+    }
+    return new String(chars);
+  }
+}
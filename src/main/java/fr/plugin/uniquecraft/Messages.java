@@ -0,0 +1,185 @@
+package fr.plugin.uniquecraft;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+// Messages du plugin (section messages: de config.yml), compilés au chargement et déclinés
+// par langue du client (messages.locales.<langue>). Immuable: un reload produit une nouvelle instance.
+public final class Messages {
+
+  public enum Key {
+    CRAFT_SUCCESS("craft-success", "§aVous avez crafté un objet unique !"),
+    CRAFT_ALREADY_EXISTS("craft-already-exists", "§cCet objet a déjà été crafté sur le serveur !"),
+    CRAFT_RESERVED("craft-reserved", "§cCet objet est en cours de craft par un autre joueur !"),
+    CRAFT_NETWORK_BUSY("craft-network-busy", "§cCet objet est en cours de craft sur un autre serveur !"),
+    CRAFT_NETWORK_PENDING("craft-network-pending",
+        "§eVérification du craft sur le réseau, réessayez dans un instant."),
+    CRAFT_SHIFT_CLICK("craft-shift-click", "§cUtilisez un clic simple pour crafter un objet unique."),
+    CRAFT_QUOTA_PLAYER("craft-quota-player", "§cVous avez atteint votre limite pour cet objet !"),
+    CRAFT_QUOTA_PENDING("craft-quota-pending", "§eChargement de vos crafts en cours, réessayez dans un instant."),
+    CRAFT_RESET("craft-reset", "§aCraft %craft_id% réinitialisé !", "craft_id"),
+    RELOAD_SUCCESS("reload-success", "§aConfiguration rechargée !");
+
+    private final String path;
+    private final String fallback;
+    private final String[] placeholders;
+
+    Key(String path, String fallback, String... placeholders) {
+      this.path = path;
+      this.fallback = fallback;
+      this.placeholders = placeholders;
+    }
+  }
+
+  // Un message et ses variantes par langue ("en_us", ou seulement la langue: "en").
+  // La variante retenue pour chaque Locale de client est mise en cache.
+  public static final class Localized {
+
+    // Textes d'origine, conservés pour le cache des recettes compilées (RecipeCache)
+    private final String source;
+    private final Map<String, String> texts;
+    private final MessageTemplate fallback;
+    private final Map<String, MessageTemplate> variants;
+    private final Map<Locale, MessageTemplate> resolved = new ConcurrentHashMap<>();
+
+    private Localized(String source, Map<String, String> texts, String... placeholders) {
+      this.source = source == null ? "" : source;
+      this.texts = Map.copyOf(texts);
+      this.fallback = MessageTemplate.compile(this.source, placeholders);
+      Map<String, MessageTemplate> compiled = new HashMap<>();
+      for (Map.Entry<String, String> text : this.texts.entrySet()) {
+        compiled.put(normalize(text.getKey()), MessageTemplate.compile(text.getValue(), placeholders));
+      }
+      this.variants = Map.copyOf(compiled);
+    }
+
+    // variants: section { en_us: "...", de: "..." }, peut être null
+    public static Localized compile(String source, ConfigurationSection variants, String... placeholders) {
+      Map<String, String> texts = new HashMap<>();
+      if (variants != null) {
+        for (String tag : variants.getKeys(false)) {
+          String text = variants.getString(tag);
+          if (text != null) {
+            texts.put(tag, text);
+          }
+        }
+      }
+      return new Localized(source, texts, placeholders);
+    }
+
+    // variants: langue -> texte, tels que lus par source() et texts()
+    public static Localized compile(String source, Map<String, String> variants, String... placeholders) {
+      return new Localized(source, variants, placeholders);
+    }
+
+    public String source() {
+      return source;
+    }
+
+    public Map<String, String> texts() {
+      return texts;
+    }
+
+    public boolean localized() {
+      return !variants.isEmpty();
+    }
+
+    public MessageTemplate fallback() {
+      return fallback;
+    }
+
+    public MessageTemplate forLocale(Locale locale) {
+      if (variants.isEmpty() || locale == null) {
+        return fallback;
+      }
+      return resolved.computeIfAbsent(locale, this::resolve);
+    }
+
+    private MessageTemplate resolve(Locale locale) {
+      MessageTemplate exact = variants.get(normalize(locale.toString()));
+      if (exact != null) {
+        return exact;
+      }
+      return variants.getOrDefault(normalize(locale.getLanguage()), fallback);
+    }
+
+    private static String normalize(String tag) {
+      return tag.toLowerCase(Locale.ROOT).replace('-', '_');
+    }
+  }
+
+  private static final Messages DEFAULTS = load(null, true);
+
+  private final Map<Key, Localized> messages;
+  private final boolean broadcast;
+
+  private Messages(Map<Key, Localized> messages, boolean broadcast) {
+    this.messages = messages;
+    this.broadcast = broadcast;
+  }
+
+  // Textes français intégrés, broadcast actif
+  public static Messages defaults() {
+    return DEFAULTS;
+  }
+
+  // section: messages: de config.yml (null: textes intégrés); broadcast: settings.broadcast-messages
+  public static Messages load(ConfigurationSection section, boolean broadcast) {
+    ConfigurationSection locales = section == null ? null : section.getConfigurationSection("locales");
+    Map<Key, Localized> messages = new EnumMap<>(Key.class);
+    for (Key key : Key.values()) {
+      String source = section == null ? key.fallback : section.getString(key.path, key.fallback);
+      Map<String, String> variants = new HashMap<>();
+      if (locales != null) {
+        for (String tag : locales.getKeys(false)) {
+          String text = locales.getString(tag + "." + key.path);
+          if (text != null) {
+            variants.put(tag, text);
+          }
+        }
+      }
+      messages.put(key, new Localized(source, variants, key.placeholders));
+    }
+    return new Messages(messages, broadcast);
+  }
+
+  // Composant dans la langue du destinataire (langue par défaut pour la console)
+  public Component render(CommandSender sender, Key key, String... values) {
+    Locale locale = sender instanceof Player player ? player.locale() : null;
+    return messages.get(key).forLocale(locale).render(values);
+  }
+
+  public void send(CommandSender sender, Key key, String... values) {
+    sender.sendMessage(render(sender, key, values));
+  }
+
+  // Annonce à tous les joueurs: un rendu par variante de langue effectivement présente,
+  // puis un envoi groupé par variante (un seul envoi sans variantes).
+  public void broadcast(Localized message, PluginScheduler scheduler, String... values) {
+    if (!broadcast) {
+      return;
+    }
+    if (!message.localized()) {
+      scheduler.broadcast(message.fallback().render(values));
+      return;
+    }
+    Map<MessageTemplate, List<Player>> groups = new IdentityHashMap<>();
+    for (Player player : Bukkit.getOnlinePlayers()) {
+      groups.computeIfAbsent(message.forLocale(player.locale()), template -> new ArrayList<>()).add(player);
+    }
+    for (Map.Entry<MessageTemplate, List<Player>> group : groups.entrySet()) {
+      scheduler.sendTo(group.getValue(), group.getKey().render(values));
+    }
+  }
+}
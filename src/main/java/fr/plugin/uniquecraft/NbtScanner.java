@@ -0,0 +1,385 @@
+package fr.plugin.uniquecraft;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Décodage NBT en flux: l'arbre n'est jamais construit. Seuls les objets portant un marqueur
+// UniqueCrafts (tag PDC) ou un nom personnalisé sont retenus, avec leur position. Les tableaux
+// (sections de blocs, heightmaps) et les chaînes sans intérêt sont sautés sans allocation.
+//
+// Formats d'objet reconnus: composants 1.20.5+ (components/minecraft:custom_name, minecraft:lore,
+// minecraft:custom_data/PublicBukkitValues) et anciens tags (tag/display, tag/PublicBukkitValues).
+final class NbtScanner {
+
+  // Objet candidat trouvé dans un fichier
+  record Hit(String itemId, int count, String marker, String name, List<String> lore, String location) {
+  }
+
+  private static final int MAX_DEPTH = 512;
+
+  private static final byte END = 0;
+  private static final byte BYTE = 1;
+  private static final byte SHORT = 2;
+  private static final byte INT = 3;
+  private static final byte LONG = 4;
+  private static final byte FLOAT = 5;
+  private static final byte DOUBLE = 6;
+  private static final byte BYTE_ARRAY = 7;
+  private static final byte STRING = 8;
+  private static final byte LIST = 9;
+  private static final byte COMPOUND = 10;
+  private static final byte INT_ARRAY = 11;
+  private static final byte LONG_ARRAY = 12;
+
+  // Compound ou liste en cours de lecture. Les frames d'un objet retenu restent référencées
+  // jusqu'à la fin de la racine pour résoudre sa position (x/y/z ou Pos lus après les objets).
+  private static final class Frame {
+    final Frame parent;
+    final String name;
+    String id;
+    int count = 1;
+    boolean hasCount;
+    String marker;
+    String customName;
+    List<String> lore;
+    int x;
+    int y;
+    int z;
+    boolean hasBlockPos;
+    double[] pos;
+
+    Frame(Frame parent, String name) {
+      this.parent = parent;
+      this.name = name;
+    }
+  }
+
+  private final String markerKey;
+  private final List<Frame> pending = new ArrayList<>();
+
+  // markerKey: clé PDC complète, ex. "uniquecrafts:craft_id"
+  NbtScanner(String markerKey) {
+    this.markerKey = markerKey;
+  }
+
+  // Lit une racine NBT (compound nommé) et retourne les objets candidats qu'elle contient
+  List<Hit> scan(DataInput in) throws IOException {
+    pending.clear();
+    byte type = in.readByte();
+    if (type != COMPOUND) {
+      throw new IOException("Racine NBT inattendue: " + type);
+    }
+    skipString(in);
+    readCompound(in, new Frame(null, ""), 0);
+
+    List<Hit> hits = new ArrayList<>(pending.size());
+    for (Frame item : pending) {
+      hits.add(new Hit(item.id, item.count, item.marker, item.customName,
+          item.lore == null ? List.of() : List.copyOf(item.lore), location(item)));
+    }
+    pending.clear();
+    return hits;
+  }
+
+  private void readCompound(DataInput in, Frame frame, int depth) throws IOException {
+    if (depth > MAX_DEPTH) {
+      throw new IOException("NBT trop profond");
+    }
+    while (true) {
+      byte type = in.readByte();
+      if (type == END) {
+        break;
+      }
+      String key = in.readUTF();
+      switch (type) {
+        case BYTE -> {
+          byte value = in.readByte();
+          if (key.equals("Count")) {
+            frame.count = value;
+            frame.hasCount = true;
+          }
+        }
+        case INT -> {
+          int value = in.readInt();
+          switch (key) {
+            case "count", "Count" -> {
+              frame.count = value;
+              frame.hasCount = true;
+            }
+            case "x" -> {
+              frame.x = value;
+              frame.hasBlockPos = true;
+            }
+            case "y" -> frame.y = value;
+            case "z" -> frame.z = value;
+            default -> {
+            }
+          }
+        }
+        case STRING -> readString(in, frame, key);
+        case LIST -> readList(in, new Frame(frame, key), depth + 1);
+        case COMPOUND -> readCompound(in, new Frame(frame, key), depth + 1);
+        default -> skipPayload(in, type, depth);
+      }
+    }
+    close(frame);
+  }
+
+  private void readList(DataInput in, Frame list, int depth) throws IOException {
+    if (depth > MAX_DEPTH) {
+      throw new IOException("NBT trop profond");
+    }
+    byte type = in.readByte();
+    int length = in.readInt();
+    switch (type) {
+      case COMPOUND -> {
+        for (int i = 0; i < length; i++) {
+          readCompound(in, new Frame(list, list.name + "[" + i + "]"), depth + 1);
+        }
+      }
+      case STRING -> {
+        for (int i = 0; i < length; i++) {
+          readString(in, list, null);
+        }
+      }
+      case DOUBLE -> {
+        // Pos des entités et des joueurs
+        if (list.name.equals("Pos") && length == 3 && list.parent != null) {
+          list.parent.pos = new double[] {in.readDouble(), in.readDouble(), in.readDouble()};
+        } else {
+          skipFully(in, length * 8L);
+        }
+      }
+      case LIST -> {
+        for (int i = 0; i < length; i++) {
+          readList(in, new Frame(list, list.name + "[" + i + "]"), depth + 1);
+        }
+      }
+      default -> {
+        for (int i = 0; i < length; i++) {
+          skipPayload(in, type, depth);
+        }
+      }
+    }
+  }
+
+  // key est null pour un élément de liste
+  private void readString(DataInput in, Frame frame, String key) throws IOException {
+    Frame item = null;
+    int field = 0;
+    if (key == null) {
+      // Lore: liste de lignes (texte JSON ou ancien format)
+      if (frame.name.equals("minecraft:lore") && is(frame.parent, "components")) {
+        item = frame.parent.parent;
+        field = 3;
+      } else if (frame.name.equals("Lore") && is(frame.parent, "display") && is(frame.parent.parent, "tag")) {
+        item = frame.parent.parent.parent;
+        field = 3;
+      }
+    } else if (key.equals("id")) {
+      frame.id = in.readUTF();
+      return;
+    } else if (key.equals(markerKey) && frame.name.equals("PublicBukkitValues")) {
+      if (is(frame.parent, "minecraft:custom_data")) {
+        item = frame.parent.parent != null ? frame.parent.parent.parent : null;
+        field = 1;
+      } else if (is(frame.parent, "tag")) {
+        item = frame.parent.parent;
+        field = 1;
+      }
+    } else if (key.equals("minecraft:custom_name") && frame.name.equals("components")) {
+      item = frame.parent;
+      field = 2;
+    } else if (key.equals("Name") && frame.name.equals("display") && is(frame.parent, "tag")) {
+      item = frame.parent.parent;
+      field = 2;
+    }
+    if (item == null) {
+      skipString(in);
+      return;
+    }
+    String value = in.readUTF();
+    switch (field) {
+      case 1 -> item.marker = value;
+      case 2 -> item.customName = plainText(value);
+      default -> {
+        if (item.lore == null) {
+          item.lore = new ArrayList<>(4);
+        }
+        item.lore.add(plainText(value));
+      }
+    }
+  }
+
+  private void close(Frame frame) {
+    if (frame.id != null && (frame.marker != null || frame.customName != null)) {
+      pending.add(frame);
+    }
+  }
+
+  private static boolean is(Frame frame, String name) {
+    return frame != null && frame.name.equals(name);
+  }
+
+  private static void skipPayload(DataInput in, byte type, int depth) throws IOException {
+    switch (type) {
+      case BYTE -> skipFully(in, 1);
+      case SHORT -> skipFully(in, 2);
+      case INT, FLOAT -> skipFully(in, 4);
+      case LONG, DOUBLE -> skipFully(in, 8);
+      case BYTE_ARRAY -> skipFully(in, in.readInt());
+      case STRING -> skipString(in);
+      case INT_ARRAY -> skipFully(in, in.readInt() * 4L);
+      case LONG_ARRAY -> skipFully(in, in.readInt() * 8L);
+      case LIST -> {
+        if (depth > MAX_DEPTH) {
+          throw new IOException("NBT trop profond");
+        }
+        byte elementType = in.readByte();
+        int length = in.readInt();
+        for (int i = 0; i < length; i++) {
+          skipPayload(in, elementType, depth + 1);
+        }
+      }
+      case COMPOUND -> {
+        if (depth > MAX_DEPTH) {
+          throw new IOException("NBT trop profond");
+        }
+        while (true) {
+          byte child = in.readByte();
+          if (child == END) {
+            break;
+          }
+          skipString(in);
+          skipPayload(in, child, depth + 1);
+        }
+      }
+      default -> throw new IOException("Type NBT inconnu: " + type);
+    }
+  }
+
+  private static void skipString(DataInput in) throws IOException {
+    skipFully(in, in.readUnsignedShort());
+  }
+
+  private static void skipFully(DataInput in, long bytes) throws IOException {
+    if (bytes < 0) {
+      throw new IOException("Longueur NBT négative");
+    }
+    while (bytes > 0) {
+      int skipped = in.skipBytes((int) Math.min(bytes, Integer.MAX_VALUE));
+      if (skipped <= 0) {
+        // skipBytes peut s'arrêter avant la fin du flux: forcer la lecture
+        in.readByte();
+        skipped = 1;
+      }
+      bytes -= skipped;
+    }
+  }
+
+  // Position lisible: conteneur (bloc ou entité) le plus proche, et objet englobant éventuel
+  private static String location(Frame item) {
+    // Nom de liste indexé (Items[3], Inventory[12]) ou clé du compound (item, Item)
+    StringBuilder out = new StringBuilder(item.name);
+    for (Frame frame = item.parent; frame != null; frame = frame.parent) {
+      if (frame.id != null && frame.hasCount) {
+        out.append(" dans ").append(frame.id);
+      }
+      if (frame.hasBlockPos) {
+        out.append(" ").append(frame.id != null ? frame.id : "bloc").append(" à ")
+            .append(frame.x).append(' ').append(frame.y).append(' ').append(frame.z);
+        break;
+      }
+      if (frame.pos != null) {
+        out.append(" ").append(frame.id != null ? frame.id : "joueur").append(String.format(Locale.ROOT,
+            " à %.1f %.1f %.1f", frame.pos[0], frame.pos[1], frame.pos[2]));
+        break;
+      }
+    }
+    return out.toString().trim();
+  }
+
+  // Texte brut d'un composant JSON ({"text":...,"extra":[...]}) ou d'un ancien nom en §
+  static String plainText(String value) {
+    String text = value;
+    if (!value.isEmpty() && (value.charAt(0) == '{' || value.charAt(0) == '[' || value.charAt(0) == '"')) {
+      text = jsonText(value);
+    }
+    return stripColors(text);
+  }
+
+  static String stripColors(String text) {
+    if (text.indexOf('§') < 0) {
+      return text;
+    }
+    StringBuilder out = new StringBuilder(text.length());
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '§') {
+        i++;
+      } else {
+        out.append(c);
+      }
+    }
+    return out.toString();
+  }
+
+  // Concatène les valeurs "text" dans l'ordre, et les chaînes JSON isolées
+  private static String jsonText(String json) {
+    StringBuilder out = new StringBuilder();
+    int i = 0;
+    int length = json.length();
+    String lastKey = null;
+    while (i < length) {
+      char c = json.charAt(i);
+      if (c != '"') {
+        if (c == ',' || c == '{' || c == '[') {
+          lastKey = null;
+        }
+        i++;
+        continue;
+      }
+      StringBuilder string = new StringBuilder();
+      i++;
+      while (i < length && json.charAt(i) != '"') {
+        char ch = json.charAt(i);
+        if (ch == '\\' && i + 1 < length) {
+          char escaped = json.charAt(++i);
+          switch (escaped) {
+            case 'n' -> string.append('\n');
+            case 't' -> string.append('\t');
+            case 'u' -> {
+              if (i + 4 < length) {
+                string.append((char) Integer.parseInt(json.substring(i + 1, i + 5), 16));
+                i += 4;
+              }
+            }
+            default -> string.append(escaped);
+          }
+        } else {
+          string.append(ch);
+        }
+        i++;
+      }
+      i++;
+      int next = i;
+      while (next < length && Character.isWhitespace(json.charAt(next))) {
+        next++;
+      }
+      if (next < length && json.charAt(next) == ':') {
+        lastKey = string.toString();
+        i = next + 1;
+      } else if (lastKey == null || lastKey.equals("text")) {
+        // Valeur de "text", ou chaîne seule (racine ou élément de "extra")
+        out.append(string);
+        lastKey = null;
+      } else {
+        lastKey = null;
+      }
+    }
+    return out.toString();
+  }
+}
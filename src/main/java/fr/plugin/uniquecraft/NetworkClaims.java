@@ -0,0 +1,334 @@
+package fr.plugin.uniquecraft;
+
+import fr.plugin.uniquecraft.ClaimCoordinator.Event;
+import fr.plugin.uniquecraft.ClaimCoordinator.Lease;
+import fr.plugin.uniquecraft.Trace.Category;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+// Cache local de l'état réseau des crafts. Les événements de craft ne lisent que ce cache;
+// leases, validations et resets partent vers le coordinateur sur des threads virtuels,
+// et les changements des autres serveurs arrivent par le flux d'événements (poll()).
+public class NetworkClaims {
+
+  private static final int POLL_BATCH = 512;
+  // Un lease qui expire dans moins de cette marge ne permet plus de crafter
+  private static final long SAFETY_MARGIN_MILLIS = 2_000L;
+  // Resynchronisation complète périodique, pour les événements manqués ou purgés
+  private static final int RESYNC_EVERY_POLLS = 60;
+  private static final int COMMIT_ATTEMPTS = 5;
+  // Séquence manquante relue pendant ce délai (transaction encore ouverte), puis abandonnée
+  // (insertion annulée, séquence sautée par AUTO_INCREMENT)
+  private static final long GAP_TIMEOUT_MILLIS = 60_000L;
+  private static final int MAX_GAPS = 4096;
+
+  private final ClaimCoordinator coordinator;
+  private final ClaimRegistry claimRegistry;
+  // Remise à zéro venue du réseau: stockage local des crafts réalisés (et compteurs), pour qu'un
+  // redémarrage ne marque pas de nouveau le craft comme réalisé
+  private final Consumer<String> onReset;
+  private final long leaseMillis;
+  private final Logger logger;
+  private final Trace trace;
+  private final LatencyHistogram latency;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  // Leases détenus par ce serveur
+  private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+  // Leases détenus par d'autres serveurs: craftId -> expiration (ms)
+  private final Map<String, Long> remoteLeases = new ConcurrentHashMap<>();
+  private final Set<String> acquiring = ConcurrentHashMap.newKeySet();
+  // Crafts dont la validation réseau est en cours: la resynchronisation ne les remet pas à zéro
+  private final Set<String> committing = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean polling = new AtomicBoolean(false);
+  private final LongAdder conflicts = new LongAdder();
+  // Plus haute séquence vue
+  private volatile long lastSequence;
+  // Séquences inférieures à lastSequence pas encore vues -> première constatation (ms). Thread de poll.
+  private final TreeMap<Long, Long> gaps = new TreeMap<>();
+  private int pollsSinceResync;
+  private PluginScheduler.Task pollTask;
+
+  public NetworkClaims(ClaimCoordinator coordinator, ClaimRegistry claimRegistry, Consumer<String> onReset,
+      long leaseMillis, Logger logger, Trace trace, CraftMetrics metrics) {
+    this.coordinator = coordinator;
+    this.claimRegistry = claimRegistry;
+    this.onReset = onReset;
+    this.leaseMillis = leaseMillis;
+    this.logger = logger;
+    this.trace = trace;
+    this.latency = metrics.persistence("network");
+  }
+
+  public String serverId() {
+    return coordinator.serverId();
+  }
+
+  // Charge les crafts réalisés sur le réseau et se place en fin de flux. Les crafts du stockage local
+  // remis à zéro sur le réseau pendant l'arrêt sont remis à zéro ici. Bloquant (onEnable, après le
+  // chargement du stockage local).
+  public int load() throws IOException {
+    lastSequence = coordinator.headSequence();
+    List<String> local = claimRegistry.claimedIds();
+    Map<String, ClaimRecord> claims = coordinator.load();
+    for (ClaimRecord claim : claims.values()) {
+      claimRegistry.markClaimed(claim.craftId(), claim.player());
+    }
+    int released = releaseMissed(local, coordinator.released());
+    if (released > 0) {
+      logger.info("§eCrafts remis à zéro sur le réseau pendant l'arrêt: " + released);
+    }
+    return claims.size();
+  }
+
+  public void start(PluginScheduler scheduler, long periodTicks) {
+    pollTask = scheduler.runAsyncTimer(this::poll, periodTicks, periodTicks);
+  }
+
+  // Lease en cours sur un autre serveur
+  public boolean heldElsewhere(String craftId) {
+    Long expiresAt = remoteLeases.get(craftId);
+    return expiresAt != null && expiresAt > System.currentTimeMillis();
+  }
+
+  // Lease de ce serveur utilisable pour crafter maintenant, sinon null. Le lease appartient au
+  // serveur: l'exclusion entre ses joueurs reste celle de ClaimRegistry.
+  public Lease lease(String craftId) {
+    Lease lease = leases.get(craftId);
+    if (lease == null || lease.expiresAt() - SAFETY_MARGIN_MILLIS < System.currentTimeMillis()) {
+      return null;
+    }
+    return lease;
+  }
+
+  // Demande (ou renouvelle) un lease en arrière-plan. Non bloquant, idempotent.
+  public void prepare(String craftId, UUID player) {
+    Lease lease = leases.get(craftId);
+    if (lease != null && lease.expiresAt() - leaseMillis / 2 > System.currentTimeMillis()) {
+      return;
+    }
+    if (!acquiring.add(craftId)) {
+      return;
+    }
+    executor.execute(() -> {
+      long start = System.nanoTime();
+      try {
+        Lease acquired = coordinator.acquire(craftId, player, leaseMillis);
+        if (acquired != null) {
+          leases.put(craftId, acquired);
+          remoteLeases.remove(craftId);
+          trace.log(Category.PERSISTENCE, "Lease réseau obtenu: {} (token {})", craftId, acquired.token());
+        } else {
+          leases.remove(craftId);
+          trace.log(Category.PERSISTENCE, "Lease réseau refusé: {}", craftId);
+        }
+      } catch (IOException e) {
+        logger.warning("§eLease réseau impossible pour " + craftId + ": " + e.getMessage());
+      } finally {
+        acquiring.remove(craftId);
+        latency.record(System.nanoTime() - start);
+      }
+    });
+  }
+
+  // Valide un craft déjà accepté localement. Réessaie en cas d'erreur: le token rend
+  // la validation idempotente et empêche qu'un lease repris soit validé.
+  public void commit(Lease held, UUID player) {
+    // Un renouvellement a pu remplacer l'objet sans changer le token
+    leases.computeIfPresent(held.craftId(), (id, current) -> current.token() == held.token() ? null : current);
+    Lease lease = new Lease(held.craftId(), player, held.token(), held.expiresAt());
+    committing.add(lease.craftId());
+    executor.execute(() -> {
+      try {
+        commitWithRetries(lease);
+      } finally {
+        committing.remove(lease.craftId());
+      }
+    });
+  }
+
+  private void commitWithRetries(Lease lease) {
+    for (int attempt = 1; attempt <= COMMIT_ATTEMPTS; attempt++) {
+      long start = System.nanoTime();
+      try {
+        if (!coordinator.commit(lease)) {
+          conflicts.increment();
+          logger.severe("§cConflit réseau: le craft " + lease.craftId() + " a été réalisé ici mais son lease"
+              + " (token " + lease.token() + ") a été repris par un autre serveur !");
+        }
+        return;
+      } catch (IOException e) {
+        logger.warning("§eValidation réseau du craft " + lease.craftId() + " impossible (essai " + attempt
+            + "/" + COMMIT_ATTEMPTS + "): " + e.getMessage());
+      } finally {
+        latency.record(System.nanoTime() - start);
+      }
+      try {
+        Thread.sleep(TimeUnit.SECONDS.toMillis(attempt));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+    logger.severe("§cLe craft " + lease.craftId() + " n'a pas pu être validé sur le réseau !");
+  }
+
+  public void reset(String craftId) {
+    leases.remove(craftId);
+    remoteLeases.remove(craftId);
+    executor.execute(() -> {
+      try {
+        coordinator.reset(craftId);
+      } catch (IOException e) {
+        logger.severe("§cRéinitialisation réseau du craft " + craftId + " impossible: " + e.getMessage());
+      }
+    });
+  }
+
+  // Applique les événements des autres serveurs au cache local. Appelé par le timer asynchrone.
+  // Une séquence sautée peut appartenir à une transaction pas encore validée (AUTO_INCREMENT attribué
+  // à l'insertion, visible au commit): elle est notée comme trou et relue aux passages suivants,
+  // jusqu'à GAP_TIMEOUT_MILLIS. Un événement arrivé en retard peut être appliqué après un événement
+  // de séquence supérieure: ils portent sur des crafts différents, les transitions d'un même craft
+  // étant sérialisées par le verrou de sa ligne.
+  public void poll() {
+    if (!polling.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      long now = System.currentTimeMillis();
+      long from = gaps.isEmpty() ? lastSequence : Math.min(lastSequence, gaps.firstKey() - 1);
+      List<Event> events;
+      do {
+        events = coordinator.poll(from, POLL_BATCH);
+        for (Event event : events) {
+          long sequence = event.sequence();
+          if (sequence > lastSequence) {
+            for (long missing = lastSequence + 1; missing < sequence && gaps.size() < MAX_GAPS; missing++) {
+              gaps.put(missing, now);
+            }
+            lastSequence = sequence;
+            apply(event);
+          } else if (gaps.remove(sequence) != null) {
+            trace.log(Category.PERSISTENCE, "Événement réseau {} reçu en retard", sequence);
+            apply(event);
+          }
+          from = sequence;
+        }
+      } while (events.size() == POLL_BATCH);
+      expireGaps(now);
+
+      if (++pollsSinceResync >= RESYNC_EVERY_POLLS) {
+        pollsSinceResync = 0;
+        resync();
+      }
+    } catch (IOException e) {
+      logger.warning("§eLecture du flux réseau impossible: " + e.getMessage());
+    } finally {
+      polling.set(false);
+    }
+  }
+
+  // Trou jamais comblé: insertion annulée ou séquence sautée. La resynchronisation périodique répare
+  // un événement réellement perdu.
+  private void expireGaps(long now) {
+    Iterator<Long> firstSeen = gaps.values().iterator();
+    while (firstSeen.hasNext()) {
+      if (now - firstSeen.next() >= GAP_TIMEOUT_MILLIS) {
+        firstSeen.remove();
+      }
+    }
+  }
+
+  // Resynchronisation dans les deux sens avec la table partagée: crafts réalisés ailleurs, et crafts
+  // remis à zéro dont l'événement RESET a été manqué. Un craft réalisé ici et pas encore validé sur
+  // le réseau, ou absent de la table (crafts locaux), n'est pas touché.
+  private void resync() throws IOException {
+    // Relevé local avant la lecture distante: un craft réalisé ici entre-temps a d'abord pris un lease,
+    // sa ligne n'apparaît donc pas dans released
+    List<String> claimed = claimRegistry.claimedIds();
+    for (ClaimRecord claim : coordinator.load().values()) {
+      if (!claimRegistry.isClaimed(claim.craftId())) {
+        claimRegistry.markClaimed(claim.craftId(), claim.player());
+      }
+    }
+    releaseMissed(claimed, coordinator.released());
+  }
+
+  // Crafts réalisés localement mais remis à zéro (ou repris) sur le réseau
+  private int releaseMissed(List<String> claimed, Set<String> released) {
+    int count = 0;
+    for (String craftId : claimed) {
+      if (released.contains(craftId) && !committing.contains(craftId) && claimRegistry.reset(craftId)) {
+        leases.remove(craftId);
+        onReset.accept(craftId);
+        count++;
+        logger.info("§eCraft " + craftId + " remis à zéro sur le réseau (événement manqué)");
+      }
+    }
+    return count;
+  }
+
+  private void apply(Event event) {
+    if (event.serverId().equals(coordinator.serverId())) {
+      return;
+    }
+    String craftId = event.craftId();
+    switch (event.kind()) {
+      case LEASED -> {
+        remoteLeases.put(craftId, event.expiresAt());
+        // Notre lease éventuel est périmé (token inférieur)
+        Lease lease = leases.get(craftId);
+        if (lease != null && lease.token() < event.token()) {
+          leases.remove(craftId, lease);
+        }
+      }
+      case CLAIMED -> {
+        remoteLeases.remove(craftId);
+        leases.remove(craftId);
+        claimRegistry.markClaimed(craftId, event.player());
+      }
+      case RESET -> {
+        remoteLeases.remove(craftId);
+        leases.remove(craftId);
+        claimRegistry.reset(craftId);
+        onReset.accept(craftId);
+      }
+    }
+    trace.log(Category.PERSISTENCE,
+        () -> "Événement réseau " + event.kind() + " " + craftId + " de " + event.serverId());
+  }
+
+  public long conflicts() {
+    return conflicts.sum();
+  }
+
+  // Arrête le flux et attend les validations en cours. Bloquant, à appeler au onDisable.
+  public void close() {
+    if (pollTask != null) {
+      pollTask.cancel();
+      pollTask = null;
+    }
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        logger.severe("§cDes validations réseau n'ont pas pu être terminées à temps !");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    coordinator.close();
+  }
+}
@@ -0,0 +1,129 @@
+package fr.plugin.uniquecraft;
+
+import java.util.Arrays;
+
+// Table à adressage ouvert (sondage linéaire) UUID -> compteurs de crafts d'un joueur connecté.
+// L'UUID est stocké en deux long, les compteurs dans un int[] par joueur: triplets
+// [craft interné, période, nombre]. Aucun objet par entrée en dehors de ce tableau.
+// Non synchronisée: protégée par le verrou de CraftQuotas.
+final class PlayerQuotaTable {
+
+  private static final float LOAD_FACTOR = 0.6f;
+
+  private long[] msb;
+  private long[] lsb;
+  private int[][] counters;
+  private boolean[] used;
+  private int size;
+
+  PlayerQuotaTable(int expected) {
+    int capacity = Integer.highestOneBit(Math.max(16, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+    allocate(capacity);
+  }
+
+  int size() {
+    return size;
+  }
+
+  // null si le joueur n'est pas chargé
+  int[] get(long high, long low) {
+    int slot = find(high, low);
+    return slot < 0 ? null : counters[slot];
+  }
+
+  void put(long high, long low, int[] values) {
+    int slot = find(high, low);
+    if (slot >= 0) {
+      counters[slot] = values;
+      return;
+    }
+    if (size + 1 > msb.length * LOAD_FACTOR) {
+      resize(msb.length << 1);
+    }
+    insert(high, low, values);
+    size++;
+  }
+
+  // Suppression par décalage arrière: pas de marqueur de suppression, les sondages restent courts
+  void remove(long high, long low) {
+    int slot = find(high, low);
+    if (slot < 0) {
+      return;
+    }
+    int mask = msb.length - 1;
+    int hole = slot;
+    int next = (hole + 1) & mask;
+    while (used[next]) {
+      int home = hash(msb[next], lsb[next]) & mask;
+      // L'entrée peut combler le trou si sa position d'origine n'est pas entre le trou et elle
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        msb[hole] = msb[next];
+        lsb[hole] = lsb[next];
+        counters[hole] = counters[next];
+        hole = next;
+      }
+      next = (next + 1) & mask;
+    }
+    used[hole] = false;
+    counters[hole] = null;
+    size--;
+  }
+
+  void clear() {
+    Arrays.fill(used, false);
+    Arrays.fill(counters, null);
+    size = 0;
+  }
+
+  private int find(long high, long low) {
+    int mask = msb.length - 1;
+    int slot = hash(high, low) & mask;
+    while (used[slot]) {
+      if (msb[slot] == high && lsb[slot] == low) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void insert(long high, long low, int[] values) {
+    int mask = msb.length - 1;
+    int slot = hash(high, low) & mask;
+    while (used[slot]) {
+      slot = (slot + 1) & mask;
+    }
+    used[slot] = true;
+    msb[slot] = high;
+    lsb[slot] = low;
+    counters[slot] = values;
+  }
+
+  private void resize(int capacity) {
+    long[] oldMsb = msb;
+    long[] oldLsb = lsb;
+    int[][] oldCounters = counters;
+    boolean[] oldUsed = used;
+    allocate(capacity);
+    for (int i = 0; i < oldMsb.length; i++) {
+      if (oldUsed[i]) {
+        insert(oldMsb[i], oldLsb[i], oldCounters[i]);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    msb = new long[capacity];
+    lsb = new long[capacity];
+    counters = new int[capacity][];
+    used = new boolean[capacity];
+  }
+
+  private static int hash(long high, long low) {
+    long h = high ^ low;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return (int) h;
+  }
+}
@@ -0,0 +1,115 @@
+package fr.plugin.uniquecraft;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+// Façade de planification: ordonnanceurs global/région/entité sous Folia,
+// ordonnanceur Bukkit classique sous Paper.
+public class PluginScheduler {
+
+  public interface Task {
+    void cancel();
+  }
+
+  private final Plugin plugin;
+  private final boolean folia;
+
+  public PluginScheduler(Plugin plugin) {
+    this.plugin = plugin;
+    this.folia = isFolia();
+  }
+
+  public static boolean isFolia() {
+    try {
+      Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+      return true;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  public boolean folia() {
+    return folia;
+  }
+
+  // État global du serveur (recettes, etc.): région globale sous Folia, thread principal sinon
+  public void runGlobal(Runnable task) {
+    if (folia) {
+      Bukkit.getGlobalRegionScheduler().execute(plugin, task);
+    } else if (Bukkit.isPrimaryThread()) {
+      task.run();
+    } else {
+      Bukkit.getScheduler().runTask(plugin, task);
+    }
+  }
+
+  public Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+    if (folia) {
+      ScheduledTask scheduled = Bukkit.getGlobalRegionScheduler()
+          .runAtFixedRate(plugin, t -> task.run(), Math.max(1L, delayTicks), periodTicks);
+      return scheduled::cancel;
+    }
+    BukkitTask scheduled = Bukkit.getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks);
+    return scheduled::cancel;
+  }
+
+  public void runAsync(Runnable task) {
+    if (folia) {
+      Bukkit.getAsyncScheduler().runNow(plugin, t -> task.run());
+    } else {
+      Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+    }
+  }
+
+  public Task runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+    if (folia) {
+      ScheduledTask scheduled = Bukkit.getAsyncScheduler().runAtFixedRate(plugin, t -> task.run(),
+          delayTicks * 50L, periodTicks * 50L, TimeUnit.MILLISECONDS);
+      return scheduled::cancel;
+    }
+    BukkitTask scheduled = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, task, delayTicks, periodTicks);
+    return scheduled::cancel;
+  }
+
+  // Tâche liée à un joueur: exécutée sur le thread qui possède l'entité
+  public void runForPlayer(Player player, Runnable task) {
+    if (folia) {
+      player.getScheduler().run(plugin, t -> task.run(), null);
+    } else if (Bukkit.isPrimaryThread()) {
+      task.run();
+    } else {
+      Bukkit.getScheduler().runTask(plugin, task);
+    }
+  }
+
+  // Comme runForPlayer, mais toujours après delayTicks (au moins 1): l'événement en cours est appliqué
+  public void runForPlayerLater(Player player, Runnable task, long delayTicks) {
+    if (folia) {
+      player.getScheduler().runDelayed(plugin, t -> task.run(), null, Math.max(1L, delayTicks));
+    } else {
+      Bukkit.getScheduler().runTaskLater(plugin, task, Math.max(1L, delayTicks));
+    }
+  }
+
+  // Message à tous les joueurs: une seule audience sous Paper, chacun sur son ordonnanceur sous Folia
+  public void broadcast(Component message) {
+    sendTo(Bukkit.getOnlinePlayers(), message);
+  }
+
+  public void sendTo(Collection<? extends Player> players, Component message) {
+    if (!folia) {
+      Audience.audience(players).sendMessage(message);
+      return;
+    }
+    for (Player player : players) {
+      runForPlayer(player, () -> player.sendMessage(message));
+    }
+  }
+}
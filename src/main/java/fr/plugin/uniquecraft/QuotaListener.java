@@ -0,0 +1,40 @@
+package fr.plugin.uniquecraft;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+// Compteurs par joueur de CraftQuotas: chargés pendant la connexion (thread asynchrone de login,
+// avant l'arrivée en jeu), libérés au départ. Seuls les joueurs connectés occupent de la mémoire.
+public class QuotaListener implements Listener {
+
+  private final CraftQuotas quotas;
+
+  public QuotaListener(CraftQuotas quotas) {
+    this.quotas = quotas;
+  }
+
+  // MONITOR: la connexion n'est plus refusée par un autre plugin
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+    if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+      quotas.loadPlayer(event.getUniqueId());
+    }
+  }
+
+  // Chargement manqué (délai dépassé, plugin activé après la connexion): rattrapage sans bloquer
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onJoin(PlayerJoinEvent event) {
+    if (!quotas.loaded(event.getPlayer().getUniqueId())) {
+      quotas.loadPlayerAsync(event.getPlayer().getUniqueId());
+    }
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onQuit(PlayerQuitEvent event) {
+    quotas.unloadPlayer(event.getPlayer().getUniqueId());
+  }
+}
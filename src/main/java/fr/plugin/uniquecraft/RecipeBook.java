@@ -0,0 +1,198 @@
+package fr.plugin.uniquecraft;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+
+// Recettes des crafts uniques dans la table du serveur et dans le livre de recettes des joueurs.
+// Un craft réalisé est retiré de la table (ses grilles ne déclenchent plus PrepareItemCraftEvent)
+// et du livre des joueurs; /uniquecraft reset le remet. Les changements (ClaimRegistry.Listener,
+// connexions) sont mis en file et appliqués par une tâche par tick sur la région globale, au plus
+// budget opérations par tick: une recette retirée ou remise, ou le livre d'un joueur mis à jour.
+public final class RecipeBook implements ClaimRegistry.Listener, Listener {
+
+  private record Change(String craftId, boolean retire) {
+  }
+
+  private enum Outcome {
+    NONE, RETIRED, RESTORED
+  }
+
+  // Recettes à découvrir et à oublier pour un joueur, fusionnées jusqu'à l'envoi
+  private static final class Pending {
+    private final Set<NamespacedKey> discover = new LinkedHashSet<>();
+    private final Set<NamespacedKey> undiscover = new LinkedHashSet<>();
+  }
+
+  private final PluginScheduler scheduler;
+  private final Supplier<RecipeIndex> recipes;
+  private final Trace trace;
+  private final int budget;
+  // false: le livre de recettes n'affiche pas les crafts uniques, seuls les crafts réalisés en sont retirés
+  private final boolean discover;
+  // Crafts réalisés, absents de la table des recettes
+  private final Set<String> retired = ConcurrentHashMap.newKeySet();
+  private final Queue<Change> changes = new ConcurrentLinkedQueue<>();
+  private final Queue<UUID> joined = new ConcurrentLinkedQueue<>();
+  // Thread global uniquement, dans l'ordre d'arrivée
+  private final Map<UUID, Pending> pending = new LinkedHashMap<>();
+  private PluginScheduler.Task task;
+
+  public RecipeBook(PluginScheduler scheduler, Supplier<RecipeIndex> recipes, Trace trace, int budget,
+      boolean discover) {
+    this.scheduler = scheduler;
+    this.recipes = recipes;
+    this.trace = trace;
+    this.budget = Math.max(1, budget);
+    this.discover = discover;
+  }
+
+  public void start() {
+    task = scheduler.runGlobalTimer(this::tick, 1L, 1L);
+  }
+
+  public void stop() {
+    if (task != null) {
+      task.cancel();
+      task = null;
+    }
+  }
+
+  // Recette non enregistrée car le craft est déjà réalisé (chargement et reload, thread global)
+  public void markRetired(String craftId) {
+    retired.add(craftId);
+  }
+
+  public boolean isRetired(String craftId) {
+    return retired.contains(craftId);
+  }
+
+  @Override
+  public void claimed(String craftId) {
+    changes.add(new Change(craftId, true));
+  }
+
+  @Override
+  public void released(String craftId) {
+    changes.add(new Change(craftId, false));
+  }
+
+  // Livre de recettes complet à la connexion: après un redémarrage, les joueurs qui arrivent en masse
+  // sont servis au rythme du budget
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onJoin(PlayerJoinEvent event) {
+    queue(event.getPlayer().getUniqueId());
+  }
+
+  // Synchronisation complète du livre de recettes de ce joueur à un prochain tick
+  public void queue(UUID player) {
+    joined.add(player);
+  }
+
+  private void tick() {
+    int remaining = budget;
+    boolean restored = false;
+    Change change;
+    while (remaining > 0 && (change = changes.poll()) != null) {
+      // Sans effet (déjà retirée au chargement, craft supprimé): ne compte pas dans le budget
+      Outcome outcome = apply(change);
+      if (outcome != Outcome.NONE) {
+        remaining--;
+        restored |= outcome == Outcome.RESTORED;
+      }
+    }
+    // Une seule resynchronisation des clients pour toutes les recettes remises pendant ce tick
+    if (restored) {
+      Bukkit.updateRecipes();
+    }
+    UUID player;
+    while ((player = joined.poll()) != null) {
+      Pending full = pending(player);
+      RecipeIndex index = recipes.get();
+      for (CraftDefinition definition : index.sorted()) {
+        if (retired.contains(definition.id())) {
+          full.discover.remove(definition.key());
+          full.undiscover.add(definition.key());
+        } else if (discover) {
+          full.undiscover.remove(definition.key());
+          full.discover.add(definition.key());
+        }
+      }
+    }
+    Iterator<Map.Entry<UUID, Pending>> players = pending.entrySet().iterator();
+    while (remaining > 0 && players.hasNext()) {
+      Map.Entry<UUID, Pending> entry = players.next();
+      players.remove();
+      Player online = Bukkit.getPlayer(entry.getKey());
+      if (online == null) {
+        continue;
+      }
+      remaining--;
+      List<NamespacedKey> toDiscover = new ArrayList<>(entry.getValue().discover);
+      List<NamespacedKey> toUndiscover = new ArrayList<>(entry.getValue().undiscover);
+      scheduler.runForPlayer(online, () -> {
+        if (!toUndiscover.isEmpty()) {
+          online.undiscoverRecipes(toUndiscover);
+        }
+        if (!toDiscover.isEmpty()) {
+          online.discoverRecipes(toDiscover);
+        }
+      });
+    }
+  }
+
+  private Outcome apply(Change change) {
+    CraftDefinition definition = recipes.get().get(change.craftId());
+    if (change.retire()) {
+      if (!retired.add(change.craftId()) || definition == null) {
+        return Outcome.NONE;
+      }
+      Bukkit.removeRecipe(definition.key(), false);
+      trace.log(Trace.Category.LOAD, "Recette retirée (craft réalisé): {}", definition.key());
+      for (Player player : Bukkit.getOnlinePlayers()) {
+        Pending update = pending(player.getUniqueId());
+        update.discover.remove(definition.key());
+        update.undiscover.add(definition.key());
+      }
+      return Outcome.RETIRED;
+    }
+    if (!retired.remove(change.craftId()) || definition == null) {
+      return Outcome.NONE;
+    }
+    try {
+      Bukkit.addRecipe(definition.createRecipe(), false);
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      // Déjà présente (reload entre le reset et ce tick)
+      return Outcome.NONE;
+    }
+    trace.log(Trace.Category.LOAD, "Recette remise (reset): {}", definition.key());
+    if (discover) {
+      for (Player player : Bukkit.getOnlinePlayers()) {
+        Pending update = pending(player.getUniqueId());
+        update.undiscover.remove(definition.key());
+        update.discover.add(definition.key());
+      }
+    }
+    return Outcome.RESTORED;
+  }
+
+  private Pending pending(UUID player) {
+    return pending.computeIfAbsent(player, uuid -> new Pending());
+  }
+}
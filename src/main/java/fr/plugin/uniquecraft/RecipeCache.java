@@ -0,0 +1,376 @@
+package fr.plugin.uniquecraft;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import org.bukkit.Keyed;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+import org.bukkit.Tag;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeModifier;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+
+// Crafts compilés, mis en cache dans un fichier binaire (recipes.cache) pour éviter la compilation de
+// crafts.yml au démarrage: résultat en ItemStack.serializeAsBytes, forme et ingrédients à plat.
+// Le fichier n'est valable que pour le contenu exact de crafts.yml, la version de données du serveur,
+// la version du plugin et le contenu des tags d'objets (datapacks), ingrédients "#tag" déjà résolus
+// dans le cache (clé SHA-256 en en-tête); sinon load retourne null et les crafts sont compilés.
+//
+// En-tête: magic, format, clé (32 octets), nombre de crafts; puis les crafts, puis les problèmes de
+// compilation (signalés à nouveau à chaque démarrage). Chaînes: longueur + UTF-8.
+public final class RecipeCache {
+
+  private static final int MAGIC = 0x55435243;
+  private static final int FORMAT = 1;
+  private static final int KEY_LENGTH = 32;
+
+  private final Path file;
+  private final NamespacedKey markerKey;
+
+  public RecipeCache(Path file, NamespacedKey markerKey) {
+    this.file = file;
+    this.markerKey = markerKey;
+  }
+
+  // Clé du cache: contenu de crafts.yml, version de données du serveur, namespace et version du plugin
+  // (compilation modifiée sans changement de format), puis tags d'objets et leurs matériaux, triés
+  public static byte[] key(byte[] craftsYaml, int dataVersion, String namespace, String pluginVersion,
+      Iterable<Tag<Material>> itemTags) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    digest.update(ByteBuffer.allocate(8).putInt(FORMAT).putInt(dataVersion).array());
+    digest.update(namespace.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    digest.update(pluginVersion.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    Map<String, Tag<Material>> tags = new TreeMap<>();
+    for (Tag<Material> tag : itemTags) {
+      tags.put(tag.getKey().toString(), tag);
+    }
+    for (Map.Entry<String, Tag<Material>> tag : tags.entrySet()) {
+      digest.update(tag.getKey().getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      // EnumSet: ordre des matériaux stable
+      Set<Material> materials = EnumSet.noneOf(Material.class);
+      materials.addAll(tag.getValue().getValues());
+      for (Material material : materials) {
+        digest.update(material.name().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 1);
+      }
+    }
+    digest.update((byte) 0);
+    return digest.digest(craftsYaml);
+  }
+
+  // Crafts du cache, ou null s'il est absent, périmé ou illisible. Une seule lecture par projection
+  // mémoire du fichier.
+  public CraftLoader.Result load(byte[] key) throws IOException {
+    long start = System.nanoTime();
+    if (!Files.exists(file)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (in.remaining() < 12 + KEY_LENGTH || in.getInt() != MAGIC || in.getInt() != FORMAT) {
+        return null;
+      }
+      byte[] stored = new byte[KEY_LENGTH];
+      in.get(stored);
+      if (!Arrays.equals(stored, key)) {
+        return null;
+      }
+      int count = in.getInt();
+      List<CraftDefinition> definitions = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        CraftDefinition definition = readDefinition(in);
+        if (definition == null) {
+          return null;
+        }
+        definitions.add(definition);
+      }
+      int invalid = in.getInt();
+      int craftsWithProblems = in.getInt();
+      Map<String, List<String>> problems = new LinkedHashMap<>();
+      for (int i = 0; i < craftsWithProblems; i++) {
+        String craftId = readString(in);
+        int lines = in.getInt();
+        List<String> craftProblems = new ArrayList<>(lines);
+        for (int j = 0; j < lines; j++) {
+          craftProblems.add(readString(in));
+        }
+        problems.put(craftId, craftProblems);
+      }
+      return new CraftLoader.Result(definitions, Collections.unmodifiableMap(problems), invalid,
+          System.nanoTime() - start);
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      // Fichier tronqué, ou matériau/registre disparu malgré la même version de données
+      return null;
+    }
+  }
+
+  // Sérialise les crafts (thread principal: l'ItemStack est lu ici); l'écriture du fichier se fait
+  // ensuite avec write, hors du thread principal.
+  public static byte[] encode(byte[] key, CraftLoader.Result result) {
+    List<CraftDefinition> definitions = result.definitions();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024 * Math.max(1, definitions.size()));
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT);
+      out.write(key);
+      out.writeInt(definitions.size());
+      for (CraftDefinition definition : definitions) {
+        writeDefinition(out, definition);
+      }
+      out.writeInt(result.invalid());
+      out.writeInt(result.problems().size());
+      for (Map.Entry<String, List<String>> problems : result.problems().entrySet()) {
+        writeString(out, problems.getKey());
+        out.writeInt(problems.getValue().size());
+        for (String problem : problems.getValue()) {
+          writeString(out, problem);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  public void write(byte[] data) throws IOException {
+    CraftsPersistence.writeAtomically(file, data);
+  }
+
+  private static void writeDefinition(DataOutputStream out, CraftDefinition definition) throws IOException {
+    writeString(out, definition.id());
+    writeString(out, definition.key().toString());
+    out.writeLong(definition.fingerprint());
+    byte[] result = definition.result().serializeAsBytes();
+    out.writeInt(result.length);
+    out.write(result);
+
+    CraftDefinition.Quota quota = definition.quota();
+    out.writeInt(quota.perServer());
+    out.writeInt(quota.perPlayer());
+    out.writeBoolean(quota.perSeason());
+
+    Messages.Localized message = definition.message();
+    writeString(out, message.source());
+    out.writeInt(message.texts().size());
+    for (Map.Entry<String, String> text : message.texts().entrySet()) {
+      writeString(out, text.getKey());
+      writeString(out, text.getValue());
+    }
+
+    out.writeInt(definition.enchantments().size());
+    for (Map.Entry<Enchantment, Integer> enchantment : definition.enchantments().entrySet()) {
+      writeString(out, enchantment.getKey().getKey().toString());
+      out.writeInt(enchantment.getValue());
+    }
+    out.writeInt(definition.attributes().size());
+    for (CraftDefinition.AttributeEntry entry : definition.attributes()) {
+      AttributeModifier modifier = entry.modifier();
+      writeString(out, entry.attribute().getKey().toString());
+      out.writeLong(modifier.getUniqueId().getMostSignificantBits());
+      out.writeLong(modifier.getUniqueId().getLeastSignificantBits());
+      writeString(out, modifier.getName());
+      out.writeDouble(modifier.getAmount());
+      writeString(out, modifier.getOperation().name());
+      writeString(out, modifier.getSlot() == null ? "" : modifier.getSlot().name());
+    }
+
+    CraftPattern pattern = definition.pattern();
+    out.writeBoolean(pattern.isShapeless());
+    if (pattern.isShapeless()) {
+      out.writeInt(pattern.shapelessIngredients().size());
+      for (CraftIngredient ingredient : pattern.shapelessIngredients()) {
+        writeIngredient(out, ingredient);
+      }
+      return;
+    }
+    out.writeInt(pattern.shape().size());
+    for (String row : pattern.shape()) {
+      writeString(out, row);
+    }
+    out.writeInt(pattern.ingredients().size());
+    for (Map.Entry<Character, CraftIngredient> ingredient : pattern.ingredients().entrySet()) {
+      out.writeChar(ingredient.getKey());
+      writeIngredient(out, ingredient.getValue());
+    }
+  }
+
+  private static void writeIngredient(DataOutputStream out, CraftIngredient ingredient) throws IOException {
+    writeString(out, ingredient.source());
+    out.writeInt(ingredient.materials().size());
+    for (Material material : ingredient.materials()) {
+      writeString(out, material.name());
+    }
+    writeNullable(out, ingredient.craftRef());
+    writeNullable(out, ingredient.name());
+    List<String> lore = ingredient.lore();
+    out.writeInt(lore == null ? -1 : lore.size());
+    if (lore != null) {
+      for (String line : lore) {
+        writeString(out, line);
+      }
+    }
+  }
+
+  // null si une référence (matériau, enchantement, attribut) n'existe plus
+  private CraftDefinition readDefinition(ByteBuffer in) {
+    String id = readString(in);
+    NamespacedKey key = NamespacedKey.fromString(readString(in));
+    long fingerprint = in.getLong();
+    byte[] result = readBytes(in, in.getInt());
+    if (key == null) {
+      return null;
+    }
+    ItemStack stack = ItemStack.deserializeBytes(result);
+
+    CraftDefinition.Quota quota = new CraftDefinition.Quota(in.getInt(), in.getInt(), in.get() != 0);
+
+    String source = readString(in);
+    int textCount = in.getInt();
+    Map<String, String> texts = new HashMap<>(textCount * 2);
+    for (int i = 0; i < textCount; i++) {
+      texts.put(readString(in), readString(in));
+    }
+    Messages.Localized message = Messages.Localized.compile(source, texts, "player", "craft_id");
+
+    int enchantmentCount = in.getInt();
+    Map<Enchantment, Integer> enchantments = new LinkedHashMap<>();
+    for (int i = 0; i < enchantmentCount; i++) {
+      Enchantment enchantment = lookup(Registry.ENCHANTMENT, readString(in));
+      if (enchantment == null) {
+        return null;
+      }
+      enchantments.put(enchantment, in.getInt());
+    }
+    int attributeCount = in.getInt();
+    List<CraftDefinition.AttributeEntry> attributes = new ArrayList<>(attributeCount);
+    for (int i = 0; i < attributeCount; i++) {
+      Attribute attribute = lookup(Registry.ATTRIBUTE, readString(in));
+      UUID uuid = new UUID(in.getLong(), in.getLong());
+      String name = readString(in);
+      double amount = in.getDouble();
+      AttributeModifier.Operation operation = AttributeModifier.Operation.valueOf(readString(in));
+      String slot = readString(in);
+      if (attribute == null) {
+        return null;
+      }
+      attributes.add(new CraftDefinition.AttributeEntry(attribute, new AttributeModifier(uuid, name, amount,
+          operation, slot.isEmpty() ? null : EquipmentSlot.valueOf(slot))));
+    }
+
+    CraftPattern pattern;
+    if (in.get() != 0) {
+      int count = in.getInt();
+      List<CraftIngredient> ingredients = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        ingredients.add(readIngredient(in));
+      }
+      pattern = CraftPattern.shapeless(ingredients);
+    } else {
+      int rows = in.getInt();
+      List<String> shape = new ArrayList<>(rows);
+      for (int i = 0; i < rows; i++) {
+        shape.add(readString(in));
+      }
+      int count = in.getInt();
+      Map<Character, CraftIngredient> ingredients = new LinkedHashMap<>();
+      for (int i = 0; i < count; i++) {
+        char symbol = in.getChar();
+        ingredients.put(symbol, readIngredient(in));
+      }
+      pattern = CraftPattern.shaped(shape, ingredients);
+    }
+    return new CraftDefinition(id, key, stack, pattern, message, quota, enchantments, attributes, fingerprint);
+  }
+
+  private CraftIngredient readIngredient(ByteBuffer in) {
+    String source = readString(in);
+    int materialCount = in.getInt();
+    Set<Material> materials = EnumSet.noneOf(Material.class);
+    for (int i = 0; i < materialCount; i++) {
+      String name = readString(in);
+      Material material = Material.getMaterial(name);
+      if (material == null) {
+        throw new IllegalArgumentException("Matériau inconnu: " + name);
+      }
+      materials.add(material);
+    }
+    String craftRef = readNullable(in);
+    String name = readNullable(in);
+    int loreCount = in.getInt();
+    List<String> lore = null;
+    if (loreCount >= 0) {
+      lore = new ArrayList<>(loreCount);
+      for (int i = 0; i < loreCount; i++) {
+        lore.add(readString(in));
+      }
+    }
+    return new CraftIngredient(source, materials, craftRef, markerKey, name, lore);
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static void writeNullable(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      writeString(out, value);
+    }
+  }
+
+  private static <T extends Keyed> T lookup(Registry<T> registry, String key) {
+    NamespacedKey namespacedKey = NamespacedKey.fromString(key);
+    return namespacedKey == null ? null : registry.get(namespacedKey);
+  }
+
+  private static String readString(ByteBuffer in) {
+    return new String(readBytes(in, in.getInt()), StandardCharsets.UTF_8);
+  }
+
+  private static byte[] readBytes(ByteBuffer in, int length) {
+    if (length < 0 || length > in.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return bytes;
+  }
+
+  private static String readNullable(ByteBuffer in) {
+    return in.get() != 0 ? readString(in) : null;
+  }
+}
@@ -0,0 +1,192 @@
+package fr.plugin.uniquecraft;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.bukkit.Keyed;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.Recipe;
+
+// Index NamespacedKey -> craft, construit à l'enregistrement des recettes.
+// Les recettes vanilla (ou d'autres plugins) sont rejetées dès le namespace, sans allocation.
+public final class RecipeIndex {
+
+  public static final int MAX_COMPLETIONS = 100;
+
+  private final String namespace;
+  private final Map<NamespacedKey, CraftDefinition> byKey;
+  private final Map<String, CraftDefinition> byId;
+  // Matériaux produits par un craft unique: filtre des événements d'objets sans lire l'ItemMeta
+  private final Set<Material> resultMaterials;
+  // Index de grille: empreinte de forme -> crafts avec forme, nombre d'objets -> crafts sans forme.
+  // Les crafts à ingrédients exacts passent en tête de liste (plus spécifiques).
+  private final Map<Long, List<CraftDefinition>> byShape;
+  private final Map<Integer, List<CraftDefinition>> byCount;
+  // Crafts dont la recette reconnue par le serveur ne suffit pas: ingrédient exact, ou même
+  // disposition de matériaux qu'un autre craft (le serveur choisit alors l'un des deux)
+  private final Set<CraftDefinition> checked;
+  // Identifiants triés par forme minuscule (Locale.ROOT): complétion par recherche dichotomique
+  private final String[] folded;
+  private final CraftDefinition[] sorted;
+
+  public RecipeIndex(String namespace, Collection<CraftDefinition> definitions) {
+    this.namespace = namespace;
+    Map<NamespacedKey, CraftDefinition> keys = new HashMap<>();
+    Map<String, CraftDefinition> ids = new LinkedHashMap<>();
+    Set<Material> materials = EnumSet.noneOf(Material.class);
+    Map<Long, List<CraftDefinition>> shapes = new HashMap<>();
+    Map<Integer, List<CraftDefinition>> counts = new HashMap<>();
+    Map<String, List<CraftDefinition>> layouts = new HashMap<>();
+    for (CraftDefinition definition : definitions) {
+      keys.put(definition.key(), definition);
+      ids.put(definition.id(), definition);
+      materials.add(definition.resultMaterial());
+      CraftPattern pattern = definition.pattern();
+      if (pattern.isShapeless()) {
+        counts.computeIfAbsent(pattern.itemCount(), count -> new ArrayList<>()).add(definition);
+      } else {
+        shapes.computeIfAbsent(pattern.shapeKey(), shape -> new ArrayList<>()).add(definition);
+        if (pattern.mirroredKey() != pattern.shapeKey()) {
+          shapes.computeIfAbsent(pattern.mirroredKey(), shape -> new ArrayList<>()).add(definition);
+        }
+      }
+      layouts.computeIfAbsent(pattern.materialKey(), layout -> new ArrayList<>(1)).add(definition);
+    }
+    Set<CraftDefinition> toCheck = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (List<CraftDefinition> layout : layouts.values()) {
+      for (CraftDefinition definition : layout) {
+        if (layout.size() > 1 || definition.pattern().exact()) {
+          toCheck.add(definition);
+        }
+      }
+    }
+    Comparator<CraftDefinition> exactFirst = Comparator.comparing(definition -> !definition.pattern().exact());
+    shapes.values().forEach(candidates -> candidates.sort(exactFirst));
+    counts.values().forEach(candidates -> candidates.sort(exactFirst));
+    this.byKey = keys;
+    this.byId = Collections.unmodifiableMap(ids);
+    this.resultMaterials = materials;
+    this.byShape = shapes;
+    this.byCount = counts;
+    this.checked = toCheck;
+    this.sorted = ids.values().toArray(new CraftDefinition[0]);
+    Arrays.sort(sorted, Comparator.comparing((CraftDefinition definition) -> fold(definition.id()))
+        .thenComparing(CraftDefinition::id));
+    this.folded = new String[sorted.length];
+    for (int i = 0; i < sorted.length; i++) {
+      folded[i] = fold(sorted[i].id());
+    }
+  }
+
+  public static RecipeIndex empty(String namespace) {
+    return new RecipeIndex(namespace, Collections.emptyList());
+  }
+
+  public String namespace() {
+    return namespace;
+  }
+
+  public CraftDefinition find(Recipe recipe) {
+    if (!(recipe instanceof Keyed keyed)) {
+      return null;
+    }
+    NamespacedKey key = keyed.getKey();
+    if (!namespace.equals(key.getNamespace())) {
+      return null;
+    }
+    return byKey.get(key);
+  }
+
+  // Craft réellement réalisé par la grille, à partir de la recette reconnue par le serveur (find).
+  // Sans ingrédient exact ni recette partagée, c'est celle-ci, sans lire la grille.
+  // null si aucun craft unique ne correspond à la grille (ItemMeta d'un ingrédient exact différente).
+  public CraftDefinition resolve(CraftDefinition matched, ItemStack[] matrix) {
+    if (!checked.contains(matched)) {
+      return matched;
+    }
+    return match(matrix);
+  }
+
+  // Recherche par empreinte de grille: seuls les crafts de même forme (ou même nombre d'objets)
+  // sont comparés, sur leurs matériaux d'abord; l'ItemMeta n'est lue que pour ceux qui restent.
+  public CraftDefinition match(ItemStack[] matrix) {
+    CraftPattern.Grid grid = new CraftPattern.Grid(matrix);
+    CraftDefinition found = match(byShape.get(grid.shapeKey), grid);
+    return found != null ? found : match(byCount.get(grid.items.length), grid);
+  }
+
+  private static CraftDefinition match(List<CraftDefinition> candidates, CraftPattern.Grid grid) {
+    if (candidates == null) {
+      return null;
+    }
+    for (CraftDefinition candidate : candidates) {
+      CraftPattern pattern = candidate.pattern();
+      if (pattern.matches(grid, false) && (!pattern.exact() || pattern.matches(grid, true))) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  public boolean isResultMaterial(Material material) {
+    return resultMaterials.contains(material);
+  }
+
+  public CraftDefinition get(String craftId) {
+    return byId.get(craftId);
+  }
+
+  // Identifiants commençant par le préfixe donné, sans tenir compte de la casse (complétion de commande).
+  // Au plus MAX_COMPLETIONS résultats, dans l'ordre alphabétique.
+  public List<String> complete(String prefix) {
+    String key = fold(prefix);
+    // Premier identifiant >= préfixe (plusieurs identifiants peuvent ne différer que par la casse)
+    int from = 0;
+    int to = folded.length;
+    while (from < to) {
+      int middle = (from + to) >>> 1;
+      if (folded[middle].compareTo(key) < 0) {
+        from = middle + 1;
+      } else {
+        to = middle;
+      }
+    }
+    List<String> completions = new ArrayList<>();
+    for (int i = from; i < folded.length && completions.size() < MAX_COMPLETIONS; i++) {
+      if (!folded[i].startsWith(key)) {
+        break;
+      }
+      completions.add(sorted[i].id());
+    }
+    return completions;
+  }
+
+  // Crafts dans l'ordre alphabétique, sans tenir compte de la casse (listes paginées)
+  public List<CraftDefinition> sorted() {
+    return Collections.unmodifiableList(Arrays.asList(sorted));
+  }
+
+  private static String fold(String text) {
+    return text.toLowerCase(Locale.ROOT);
+  }
+
+  public Collection<CraftDefinition> definitions() {
+    return byId.values();
+  }
+
+  public int size() {
+    return byId.size();
+  }
+}
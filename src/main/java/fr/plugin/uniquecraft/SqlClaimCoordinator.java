@@ -0,0 +1,336 @@
+package fr.plugin.uniquecraft;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+import org.bukkit.configuration.ConfigurationSection;
+
+// Coordinateur sur une base partagée (MySQL, ou fichier SQLite commun aux serveurs).
+// Une ligne par craft porte l'état et le token de fencing; chaque changement d'état ajoute
+// une ligne au flux d'événements lu par les autres serveurs.
+public class SqlClaimCoordinator implements ClaimCoordinator {
+
+  private static final String CLAIMS = "uniquecrafts_network_claims";
+  private static final String EVENTS = "uniquecrafts_network_events";
+  // Les événements plus anciens ne servent plus: un serveur en retard se resynchronise par load()
+  private static final long EVENT_RETENTION_MILLIS = TimeUnit.HOURS.toMillis(1);
+  private static final long PRUNE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+  private final DataSource dataSource;
+  private final String serverId;
+  private final boolean sqlite;
+  private final Logger logger;
+  private volatile long lastPrune;
+  private volatile boolean schemaReady;
+
+  public static SqlClaimCoordinator fromConfig(ConfigurationSection network, File dataFolder, String serverId,
+      Logger logger) {
+    String file = network.getString("file", "uniquecrafts-network.db");
+    HikariConfig hikari = JdbcClaimStore.hikariConfig(network, new File(dataFolder, file));
+    hikari.setPoolName("UniqueCrafts-network");
+    boolean sqlite = "sqlite".equalsIgnoreCase(network.getString("type", "sqlite"));
+    return new SqlClaimCoordinator(new HikariDataSource(hikari), serverId, sqlite, logger);
+  }
+
+  // Le DataSource peut être n'importe quel pool, sqlite choisit le dialecte SQL
+  public SqlClaimCoordinator(DataSource dataSource, String serverId, boolean sqlite, Logger logger) {
+    this.dataSource = dataSource;
+    this.serverId = serverId;
+    this.sqlite = sqlite;
+    this.logger = logger;
+  }
+
+  @Override
+  public String serverId() {
+    return serverId;
+  }
+
+  @Override
+  public Map<String, ClaimRecord> load() throws IOException {
+    Map<String, ClaimRecord> claims = new LinkedHashMap<>();
+    try (Connection connection = dataSource.getConnection()) {
+      ensureSchema(connection);
+      try (PreparedStatement select = connection.prepareStatement(
+          "SELECT craft_id, player, claimed_at FROM " + CLAIMS + " WHERE state = ?")) {
+        select.setString(1, Kind.CLAIMED.name());
+        try (ResultSet rs = select.executeQuery()) {
+          while (rs.next()) {
+            String craftId = rs.getString(1);
+            claims.put(craftId, new ClaimRecord(craftId, UUID.fromString(rs.getString(2)), rs.getLong(3)));
+          }
+        }
+      }
+    } catch (SQLException | IllegalArgumentException e) {
+      throw new IOException("Lecture de la table " + CLAIMS + " impossible", e);
+    }
+    return Collections.unmodifiableMap(claims);
+  }
+
+  @Override
+  public Set<String> released() throws IOException {
+    Set<String> released = new HashSet<>();
+    try (Connection connection = dataSource.getConnection()) {
+      ensureSchema(connection);
+      try (PreparedStatement select = connection.prepareStatement("SELECT craft_id FROM " + CLAIMS
+          + " WHERE state = ? OR (state = ? AND server_id <> ?)")) {
+        select.setString(1, Kind.RESET.name());
+        select.setString(2, Kind.LEASED.name());
+        select.setString(3, serverId);
+        try (ResultSet rs = select.executeQuery()) {
+          while (rs.next()) {
+            released.add(rs.getString(1));
+          }
+        }
+      }
+    } catch (SQLException e) {
+      throw new IOException("Lecture de la table " + CLAIMS + " impossible", e);
+    }
+    return released;
+  }
+
+  @Override
+  public Lease acquire(String craftId, UUID player, long leaseMillis) throws IOException {
+    long now = System.currentTimeMillis();
+    long expiresAt = now + leaseMillis;
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        // Reprise d'un lease expiré ou remis à zéro (nouveau token), ou renouvellement par ce
+        // serveur (même token: un Lease déjà remis à un joueur de ce serveur reste valide)
+        int updated;
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + CLAIMS
+            + " SET token = CASE WHEN state = ? AND server_id = ? THEN token ELSE token + 1 END,"
+            + " server_id = ?, player = ?, state = ?, lease_until = ?, claimed_at = 0"
+            + " WHERE craft_id = ? AND state <> ?"
+            + " AND (state <> ? OR lease_until < ? OR server_id = ?)")) {
+          update.setString(1, Kind.LEASED.name());
+          update.setString(2, serverId);
+          update.setString(3, serverId);
+          update.setString(4, player.toString());
+          update.setString(5, Kind.LEASED.name());
+          update.setLong(6, expiresAt);
+          update.setString(7, craftId);
+          update.setString(8, Kind.CLAIMED.name());
+          update.setString(9, Kind.LEASED.name());
+          update.setLong(10, now);
+          update.setString(11, serverId);
+          updated = update.executeUpdate();
+        }
+        if (updated == 0) {
+          // Premier lease sur ce craft; ignoré si la ligne existe (réalisé ou loué ailleurs)
+          String insertIgnore = sqlite ? "INSERT OR IGNORE INTO " : "INSERT IGNORE INTO ";
+          try (PreparedStatement insert = connection.prepareStatement(insertIgnore + CLAIMS
+              + " (craft_id, server_id, player, token, state, lease_until, claimed_at)"
+              + " VALUES (?, ?, ?, 1, ?, ?, 0)")) {
+            insert.setString(1, craftId);
+            insert.setString(2, serverId);
+            insert.setString(3, player.toString());
+            insert.setString(4, Kind.LEASED.name());
+            insert.setLong(5, expiresAt);
+            updated = insert.executeUpdate();
+          }
+        }
+        if (updated == 0) {
+          connection.rollback();
+          return null;
+        }
+
+        long token;
+        try (PreparedStatement select = connection.prepareStatement(
+            "SELECT token FROM " + CLAIMS + " WHERE craft_id = ?")) {
+          select.setString(1, craftId);
+          try (ResultSet rs = select.executeQuery()) {
+            rs.next();
+            token = rs.getLong(1);
+          }
+        }
+        publish(connection, craftId, Kind.LEASED, player, token, expiresAt, now);
+        connection.commit();
+        return new Lease(craftId, player, token, expiresAt);
+      } catch (SQLException e) {
+        connection.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      throw new IOException("Lease impossible pour " + craftId, e);
+    }
+  }
+
+  @Override
+  public boolean commit(Lease lease) throws IOException {
+    long now = System.currentTimeMillis();
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        int updated;
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + CLAIMS
+            + " SET state = ?, lease_until = 0, claimed_at = ?"
+            + " WHERE craft_id = ? AND token = ? AND server_id = ? AND state = ?")) {
+          update.setString(1, Kind.CLAIMED.name());
+          update.setLong(2, now);
+          update.setString(3, lease.craftId());
+          update.setLong(4, lease.token());
+          update.setString(5, serverId);
+          update.setString(6, Kind.LEASED.name());
+          updated = update.executeUpdate();
+        }
+        if (updated == 0) {
+          connection.rollback();
+          return false;
+        }
+        publish(connection, lease.craftId(), Kind.CLAIMED, lease.player(), lease.token(), 0L, now);
+        connection.commit();
+        return true;
+      } catch (SQLException e) {
+        connection.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      throw new IOException("Validation impossible pour " + lease.craftId(), e);
+    }
+  }
+
+  @Override
+  public void reset(String craftId) throws IOException {
+    long now = System.currentTimeMillis();
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        // Le token est conservé: un lease antérieur au reset reste périmé
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + CLAIMS
+            + " SET state = ?, lease_until = 0 WHERE craft_id = ?")) {
+          update.setString(1, Kind.RESET.name());
+          update.setString(2, craftId);
+          update.executeUpdate();
+        }
+        publish(connection, craftId, Kind.RESET, new UUID(0L, 0L), 0L, 0L, now);
+        connection.commit();
+      } catch (SQLException e) {
+        connection.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      throw new IOException("Réinitialisation impossible pour " + craftId, e);
+    }
+  }
+
+  @Override
+  public List<Event> poll(long afterSequence, int limit) throws IOException {
+    List<Event> events = new ArrayList<>();
+    try (Connection connection = dataSource.getConnection()) {
+      try (PreparedStatement select = connection.prepareStatement(
+          "SELECT seq, craft_id, kind, server_id, player, token, expires_at FROM " + EVENTS
+              + " WHERE seq > ? ORDER BY seq LIMIT ?")) {
+        select.setLong(1, afterSequence);
+        select.setInt(2, limit);
+        try (ResultSet rs = select.executeQuery()) {
+          while (rs.next()) {
+            events.add(new Event(rs.getLong(1), rs.getString(2), Kind.valueOf(rs.getString(3)), rs.getString(4),
+                UUID.fromString(rs.getString(5)), rs.getLong(6), rs.getLong(7)));
+          }
+        }
+      }
+      pruneIfDue(connection);
+    } catch (SQLException | IllegalArgumentException e) {
+      throw new IOException("Lecture des événements réseau impossible", e);
+    }
+    return events;
+  }
+
+  @Override
+  public long headSequence() throws IOException {
+    try (Connection connection = dataSource.getConnection()) {
+      ensureSchema(connection);
+      try (Statement statement = connection.createStatement();
+          ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(seq), 0) FROM " + EVENTS)) {
+        return rs.next() ? rs.getLong(1) : 0L;
+      }
+    } catch (SQLException e) {
+      throw new IOException("Lecture des événements réseau impossible", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (dataSource instanceof AutoCloseable closeable) {
+      try {
+        closeable.close();
+      } catch (Exception e) {
+        logger.warning("§eErreur à la fermeture du pool réseau: " + e.getMessage());
+      }
+    }
+  }
+
+  // Tables créées au premier accès (load ou headSequence)
+  private void ensureSchema(Connection connection) throws SQLException {
+    if (schemaReady) {
+      return;
+    }
+    try (Statement statement = connection.createStatement()) {
+      statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + CLAIMS + " ("
+          + "craft_id VARCHAR(64) NOT NULL PRIMARY KEY, "
+          + "server_id VARCHAR(64) NOT NULL, "
+          + "player CHAR(36) NOT NULL, "
+          + "token BIGINT NOT NULL, "
+          + "state VARCHAR(8) NOT NULL, "
+          + "lease_until BIGINT NOT NULL, "
+          + "claimed_at BIGINT NOT NULL)");
+      statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + EVENTS + " ("
+          + (sqlite ? "seq INTEGER PRIMARY KEY AUTOINCREMENT, "
+              : "seq BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, ")
+          + "craft_id VARCHAR(64) NOT NULL, "
+          + "kind VARCHAR(8) NOT NULL, "
+          + "server_id VARCHAR(64) NOT NULL, "
+          + "player CHAR(36) NOT NULL, "
+          + "token BIGINT NOT NULL, "
+          + "expires_at BIGINT NOT NULL, "
+          + "created_at BIGINT NOT NULL)");
+    }
+    schemaReady = true;
+  }
+
+  private void publish(Connection connection, String craftId, Kind kind, UUID player, long token, long expiresAt,
+      long now) throws SQLException {
+    try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + EVENTS
+        + " (craft_id, kind, server_id, player, token, expires_at, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+      insert.setString(1, craftId);
+      insert.setString(2, kind.name());
+      insert.setString(3, serverId);
+      insert.setString(4, player.toString());
+      insert.setLong(5, token);
+      insert.setLong(6, expiresAt);
+      insert.setLong(7, now);
+      insert.executeUpdate();
+    }
+  }
+
+  private void pruneIfDue(Connection connection) throws SQLException {
+    long now = System.currentTimeMillis();
+    if (now - lastPrune < PRUNE_INTERVAL_MILLIS) {
+      return;
+    }
+    lastPrune = now;
+    try (PreparedStatement delete = connection.prepareStatement(
+        "DELETE FROM " + EVENTS + " WHERE created_at < ?")) {
+      delete.setLong(1, now - EVENT_RETENTION_MILLIS);
+      delete.executeUpdate();
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package fr.plugin.uniquecraft;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+// Traces de débogage par catégorie, désactivées par défaut (config.yml "debug").
+// Catégorie désactivée: une seule lecture volatile, aucun message construit.
+// Les messages sont limités en débit par catégorie et écrits par un thread dédié.
+public final class Trace {
+
+  public enum Category {
+    PREPARE, CRAFT, LOAD, PERSISTENCE;
+
+    public String id() {
+      return name().toLowerCase(Locale.ROOT);
+    }
+
+    // null si le nom ne correspond à aucune catégorie
+    public static Category parse(String name) {
+      for (Category category : values()) {
+        if (category.id().equalsIgnoreCase(name)) {
+          return category;
+        }
+      }
+      return null;
+    }
+  }
+
+  private record Line(Category category, String text, int argCount, Object a, Object b) {
+  }
+
+  // Fenêtre d'une seconde pour la limitation de débit d'une catégorie
+  private static final class Window {
+    private long second;
+    private int count;
+    private long suppressed;
+  }
+
+  private static final int QUEUE_CAPACITY = 4096;
+
+  private final Logger logger;
+  private final Window[] windows = new Window[Category.values().length];
+  private final BlockingQueue<Line> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+  private final LongAdder dropped = new LongAdder();
+  private volatile int enabledMask;
+  private volatile int maxPerSecond;
+  private Thread writer;
+
+  public Trace(Logger logger, int maxPerSecond) {
+    this.logger = logger;
+    this.maxPerSecond = maxPerSecond;
+    for (int i = 0; i < windows.length; i++) {
+      windows[i] = new Window();
+    }
+  }
+
+  public boolean enabled(Category category) {
+    return (enabledMask & (1 << category.ordinal())) != 0;
+  }
+
+  public synchronized void enable(Category category, boolean enabled) {
+    int bit = 1 << category.ordinal();
+    enabledMask = enabled ? enabledMask | bit : enabledMask & ~bit;
+    if (enabled) {
+      startWriter();
+    }
+  }
+
+  // Inverse l'état de la catégorie et retourne le nouvel état
+  public synchronized boolean toggle(Category category) {
+    boolean enabled = !enabled(category);
+    enable(category, enabled);
+    return enabled;
+  }
+
+  public synchronized void enableAll(boolean enabled) {
+    for (Category category : Category.values()) {
+      enable(category, enabled);
+    }
+  }
+
+  public Set<Category> enabledCategories() {
+    Set<Category> categories = EnumSet.noneOf(Category.class);
+    for (Category category : Category.values()) {
+      if (enabled(category)) {
+        categories.add(category);
+      }
+    }
+    return categories;
+  }
+
+  // Nombre maximal de lignes par seconde et par catégorie (0: illimité)
+  public void setMaxPerSecond(int maxPerSecond) {
+    this.maxPerSecond = maxPerSecond;
+  }
+
+  public void log(Category category, String message) {
+    if (enabled(category)) {
+      submit(category, message, 0, null, null);
+    }
+  }
+
+  // "{}" est remplacé par les arguments, sur le thread d'écriture
+  public void log(Category category, String pattern, Object a) {
+    if (enabled(category)) {
+      submit(category, pattern, 1, a, null);
+    }
+  }
+
+  public void log(Category category, String pattern, Object a, Object b) {
+    if (enabled(category)) {
+      submit(category, pattern, 2, a, b);
+    }
+  }
+
+  // Le fournisseur est appelé sur le thread appelant, seulement si la ligne est retenue
+  public void log(Category category, Supplier<String> message) {
+    if (enabled(category) && admit(category)) {
+      enqueue(new Line(category, message.get(), 0, null, null));
+    }
+  }
+
+  private void submit(Category category, String text, int argCount, Object a, Object b) {
+    if (admit(category)) {
+      enqueue(new Line(category, text, argCount, a, b));
+    }
+  }
+
+  private boolean admit(Category category) {
+    int limit = maxPerSecond;
+    if (limit <= 0) {
+      return true;
+    }
+    long second = System.nanoTime() / TimeUnit.SECONDS.toNanos(1);
+    long suppressed = 0;
+    boolean admitted;
+    Window window = windows[category.ordinal()];
+    synchronized (window) {
+      if (window.second != second) {
+        suppressed = window.suppressed;
+        window.second = second;
+        window.count = 0;
+        window.suppressed = 0;
+      }
+      admitted = window.count++ < limit;
+      if (!admitted) {
+        window.suppressed++;
+      }
+    }
+    if (suppressed > 0) {
+      enqueue(new Line(category, "{} message(s) ignoré(s) (limite de " + limit + "/s)", 1, suppressed, null));
+    }
+    return admitted;
+  }
+
+  private void enqueue(Line line) {
+    if (!queue.offer(line)) {
+      dropped.increment();
+    }
+  }
+
+  private synchronized void startWriter() {
+    if (writer != null) {
+      return;
+    }
+    writer = new Thread(this::drain, "UniqueCrafts-Trace");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  private void drain() {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        write(queue.take());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void write(Line line) {
+    long lost = dropped.sumThenReset();
+    if (lost > 0) {
+      logger.warning("§e[trace] " + lost + " message(s) perdu(s), file pleine");
+    }
+    logger.info("§b[" + line.category().id() + "] " + format(line));
+  }
+
+  private static String format(Line line) {
+    if (line.argCount() == 0) {
+      return line.text();
+    }
+    String text = line.text();
+    StringBuilder out = new StringBuilder(text.length() + 32);
+    int from = 0;
+    for (int arg = 0; arg < line.argCount(); arg++) {
+      int at = text.indexOf("{}", from);
+      if (at < 0) {
+        break;
+      }
+      out.append(text, from, at).append(arg == 0 ? line.a() : line.b());
+      from = at + 2;
+    }
+    return out.append(text, from, text.length()).toString();
+  }
+
+  // Écrit les lignes restantes et arrête le thread d'écriture (onDisable)
+  public synchronized void close() {
+    enabledMask = 0;
+    if (writer != null) {
+      writer.interrupt();
+      try {
+        writer.join(TimeUnit.SECONDS.toMillis(1));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      writer = null;
+    }
+    Line line;
+    while ((line = queue.poll()) != null) {
+      write(line);
+    }
+  }
+}
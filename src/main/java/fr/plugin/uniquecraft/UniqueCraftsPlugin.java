@@ -2,48 +2,126 @@ package fr.plugin.uniquecraft;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.Bukkit;
+import org.bukkit.Keyed;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
+import org.bukkit.Tag;
+import org.bukkit.World;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
-import org.bukkit.event.EventHandler;
-import org.bukkit.event.Listener;
-import org.bukkit.event.inventory.CraftItemEvent;
-import org.bukkit.event.inventory.PrepareItemCraftEvent;
-import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.Recipe;
-import org.bukkit.inventory.ShapedRecipe;
-import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.attribute.Attribute;
-import org.bukkit.attribute.AttributeModifier;
-import org.bukkit.enchantments.Enchantment;
-import org.bukkit.inventory.EquipmentSlot;
-import org.bukkit.inventory.ItemFlag;
+import org.bukkit.plugin.java.JavaPlugin;
+
+public class UniqueCraftsPlugin extends JavaPlugin {
 
-public class UniqueCraftsPlugin extends JavaPlugin implements Listener {
+  private static final DateTimeFormatter HISTORY_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm", Locale.ROOT);
 
   private FileConfiguration craftsConfig;
   private File craftsFile;
-  private Set<String> globalCraftedItems;
+  // Clé de recipes.cache pour le contenu actuel de crafts.yml (null: fichier illisible, pas de cache)
+  private byte[] craftsCacheKey;
+  private RecipeCache recipeCache;
+  private ClaimRegistry claimRegistry;
+  private CraftsPersistence persistence;
+  private ClaimStore claimStore;
+  private volatile RecipeIndex recipeIndex;
+  private CraftCompiler craftCompiler;
+  private PluginScheduler scheduler;
+  private final CraftMetrics metrics = new CraftMetrics();
+  private MetricsServer metricsServer;
+  private Trace trace;
+  private volatile Messages messages = Messages.defaults();
+  // null si network.enabled est faux
+  private NetworkClaims network;
+  private ItemAudit audit;
+  private ItemLocator locator;
+  private CraftQuotas quotas;
+  private CraftHistory history;
+  private RecipeBook recipeBook;
+  private CraftFeedback feedback;
+  private final AtomicBoolean reloading = new AtomicBoolean(false);
 
   @Override
   public void onEnable() {
+    long enableStart = System.nanoTime();
+
     // Initialisation des données
-    globalCraftedItems = new HashSet<>();
+    scheduler = new PluginScheduler(this);
+    long reservationSeconds = getConfig().getLong("settings.reservation-timeout", 10);
+    claimRegistry = new ClaimRegistry(TimeUnit.SECONDS.toNanos(reservationSeconds));
+    recipeIndex = RecipeIndex.empty(getName().toLowerCase(Locale.ROOT));
+    craftCompiler = new CraftCompiler(this);
+    recipeCache = new RecipeCache(new File(getDataFolder(), "recipes.cache").toPath(),
+        new NamespacedKey(this, CraftCompiler.MARKER_KEY));
 
     // Chargement de la configuration
     loadConfig();
+    trace = new Trace(getLogger(), getConfig().getInt("debug-rate-limit", 20));
+    trace.enableAll(getConfig().getBoolean("debug", false));
+    loadMessages();
     loadCraftsConfig();
+    persistence = new CraftsPersistence(this, craftsFile, craftsConfig, metrics, trace);
+    long saveInterval = getConfig().getLong("settings.save-interval", 300);
+    persistence.start(scheduler, saveInterval);
+    claimStore = createClaimStore();
+    network = createNetwork();
+    locator = new ItemLocator(new File(getDataFolder(), "locations.yml").toPath(), getLogger(), metrics, trace);
+    locator.load();
+    history = new CraftHistory(new File(getDataFolder(), "history").toPath(),
+        getConfig().getInt("history.buffer", 8192), getConfig().getInt("history.segment-size", 5000), getLogger(),
+        metrics, trace);
+    history.load();
+    history.start();
+    quotas = new CraftQuotas(getDataFolder(), getConfig().getString("settings.season", ""), getLogger(), metrics,
+        trace);
+    try {
+      quotas.load();
+    } catch (IOException e) {
+      getLogger().severe("§cErreur lors de la lecture des quotas: " + e.getMessage());
+    }
+
+    recipeBook = new RecipeBook(scheduler, () -> recipeIndex, trace,
+        getConfig().getInt("settings.recipe-updates-per-tick", 20),
+        getConfig().getBoolean("settings.recipe-book", true));
+    claimRegistry.setListener(recipeBook);
+    feedback = new CraftFeedback(() -> messages, feedbackMode(),
+        getConfig().getInt("settings.blocked-feedback-ticks", 40));
+
+    // Chargement des crafts déjà faits, avant les événements (la lecture en base se fait hors du thread
+    // principal, son attente est bornée) et avant les recettes: celles des crafts réalisés ne sont pas
+    // enregistrées
+    loadCraftedItems();
+    loadNetworkClaims();
 
     // Enregistrement des événements
-    getServer().getPluginManager().registerEvents(this, this);
+    getServer().getPluginManager().registerEvents(
+        new CraftListener(trace, () -> recipeIndex, claimRegistry, claimStore, scheduler, metrics,
+            () -> messages, feedback, quotas, network), this);
+    getServer().getPluginManager().registerEvents(feedback, this);
+    getServer().getPluginManager().registerEvents(new QuotaListener(quotas), this);
+    getServer().getPluginManager().registerEvents(recipeBook, this);
+    getServer().getPluginManager().registerEvents(
+        new ItemLocatorListener(locator, () -> recipeIndex, new NamespacedKey(this, CraftCompiler.MARKER_KEY),
+            new NamespacedKey(this, ItemLocatorListener.SERIAL_KEY), scheduler, history), this);
 
     // Enregistrement de la commande
     getCommand("uniquecraft").setExecutor(this);
@@ -51,17 +129,69 @@ public class UniqueCraftsPlugin extends JavaPlugin implements Listener {
 
     // Chargement des crafts personnalisés
     loadCustomRecipes();
+    reconcileQuotas();
+    // Joueurs déjà connectés (plugin rechargé à chaud)
+    for (Player player : Bukkit.getOnlinePlayers()) {
+      quotas.loadPlayerAsync(player.getUniqueId());
+      recipeBook.queue(player.getUniqueId());
+    }
+    recipeBook.start();
+    feedback.start(scheduler);
 
-    // Chargement des crafts déjà faits
-    loadCraftedItems();
+    // Compaction périodique du journal en snapshot
+    long compactTicks = Math.max(1L, saveInterval) * 20L;
+    scheduler.runAsyncTimer(claimStore::compact, compactTicks, compactTicks);
+    scheduler.runAsyncTimer(locator::checkpoint, compactTicks, compactTicks);
+
+    startMetricsServer();
 
-    getLogger().info("Plugin UniqueCrafts activé !");
+    audit = createAudit();
+    if (getConfig().getBoolean("settings.check-existing-items", true) && audit.hasUnfinished()) {
+      getLogger().info("§eAudit des objets interrompu, reprise en arrière-plan");
+      startAudit(Bukkit.getConsoleSender(), true);
+    }
+
+    getLogger().info(String.format(Locale.ROOT, "Plugin UniqueCrafts activé ! (%.1f ms)",
+        (System.nanoTime() - enableStart) / 1_000_000.0));
   }
 
   @Override
   public void onDisable() {
-    // Save the crafts in the config
-    saveCraftsConfig();
+    if (recipeBook != null) {
+      recipeBook.stop();
+    }
+    if (feedback != null) {
+      feedback.stop();
+    }
+    if (audit != null) {
+      audit.stop();
+    }
+    if (locator != null) {
+      locator.checkpoint();
+    }
+    if (history != null) {
+      history.close();
+    }
+    if (metricsServer != null) {
+      metricsServer.stop();
+      metricsServer = null;
+    }
+    // Dernière écriture garantie des crafts en attente
+    if (quotas != null) {
+      quotas.close();
+    }
+    if (network != null) {
+      network.close();
+    }
+    if (claimStore != null) {
+      claimStore.close();
+    }
+    if (persistence != null) {
+      persistence.shutdown();
+    }
+    if (trace != null) {
+      trace.close();
+    }
     getLogger().info("Plugin UniqueCrafts désactivé !");
   }
 
@@ -72,6 +202,11 @@ public class UniqueCraftsPlugin extends JavaPlugin implements Listener {
     saveConfig();
   }
 
+  private void loadMessages() {
+    messages = Messages.load(getConfig().getConfigurationSection("messages"),
+        getConfig().getBoolean("settings.broadcast-messages", true));
+  }
+
   private void loadCraftsConfig() {
     craftsFile = new File(getDataFolder(), "crafts.yml");
     if (!craftsFile.exists()) {
@@ -81,363 +216,532 @@ public class UniqueCraftsPlugin extends JavaPlugin implements Listener {
     } else {
       getLogger().info("§aFichier crafts.yml trouvé !");
     }
-    craftsConfig = YamlConfiguration.loadConfiguration(craftsFile);
+    LoadedCrafts loaded = readCrafts(true);
+    craftsConfig = loaded.config();
+    craftsCacheKey = loaded.cacheKey();
     getLogger().info("§aConfiguration crafts.yml chargée !");
   }
 
-  private void saveCraftsConfig() {
+  private record LoadedCrafts(FileConfiguration config, byte[] cacheKey) {
+  }
+
+  // crafts.yml lu une seule fois: les mêmes octets servent au YAML et à la clé du cache des recettes.
+  // La clé (tags d'objets compris) n'est calculée qu'au démarrage, sur le thread principal.
+  private LoadedCrafts readCrafts(boolean cacheKey) {
+    YamlConfiguration config = new YamlConfiguration();
     try {
-      craftsConfig.save(craftsFile);
-      getLogger().info("§aSauvegarde crafts.yml réussie !");
-    } catch (IOException e) {
-      getLogger().severe("§cErreur lors de la sauvegarde des crafts: " + e.getMessage());
+      byte[] bytes = Files.readAllBytes(craftsFile.toPath());
+      config.loadFromString(new String(bytes, StandardCharsets.UTF_8));
+      if (!cacheKey) {
+        return new LoadedCrafts(config, null);
+      }
+      return new LoadedCrafts(config, RecipeCache.key(bytes, Bukkit.getUnsafe().getDataVersion(),
+          getName().toLowerCase(Locale.ROOT), getPluginMeta().getVersion(),
+          Bukkit.getTags(Tag.REGISTRY_ITEMS, Material.class)));
+    } catch (IOException | InvalidConfigurationException e) {
+      getLogger().severe("§cErreur lors de la lecture de crafts.yml: " + e.getMessage());
+      return new LoadedCrafts(config, null);
     }
   }
 
-  private void loadCraftedItems() {
-    ConfigurationSection craftedSection = craftsConfig.getConfigurationSection("crafted");
-    if (craftedSection != null) {
-      getLogger().info("§aChargement des crafts déjà réalisés...");
-      for (String craftId : craftedSection.getKeys(false)) {
-        if (craftedSection.getBoolean(craftId)) {
-          globalCraftedItems.add(craftId);
-          getLogger().info("§7- Craft déjà fait: " + craftId);
-        }
+  // Écriture de recipes.cache hors du thread principal; les ItemStack sont sérialisés sur l'appelant
+  private void saveRecipeCache(byte[] key, CraftLoader.Result result) {
+    if (key == null) {
+      return;
+    }
+    byte[] data = RecipeCache.encode(key, result);
+    scheduler.runAsync(() -> {
+      try {
+        recipeCache.write(data);
+        trace.log(Trace.Category.PERSISTENCE, "recipes.cache écrit ({} octets)", data.length);
+      } catch (IOException e) {
+        getLogger().warning("§eImpossible d'écrire recipes.cache: " + e.getMessage());
+      }
+    });
+  }
+
+  // Base SQLite/MySQL si database.enabled, sinon journal local
+  private ClaimStore createClaimStore() {
+    ConfigurationSection database = getConfig().getConfigurationSection("database");
+    if (database != null && database.getBoolean("enabled", false)) {
+      try {
+        ClaimStore store = JdbcClaimStore.fromConfig(database, getDataFolder(), getLogger(), metrics, trace);
+        getLogger().info("§aStockage des crafts: base " + database.getString("type", "sqlite"));
+        return store;
+      } catch (RuntimeException e) {
+        // Connexion faite par load(): seule une configuration invalide échoue ici
+        getLogger().severe("§cConfiguration de la base invalide, utilisation du journal local: " + e.getMessage());
       }
-      getLogger().info("§aTotal crafts déjà réalisés: " + globalCraftedItems.size());
-    } else {
-      getLogger().info("§eAucun craft réalisé précédemment.");
     }
+    return new ClaimJournal(getDataFolder(), getLogger(), metrics, trace);
   }
 
-  private void loadCustomRecipes() {
-    getLogger().info("§6=== CHARGEMENT DES CRAFTS ===");
-    ConfigurationSection craftsSection = craftsConfig.getConfigurationSection("crafts");
-    if (craftsSection == null) {
-      getLogger().severe("§cERREUR: Section 'crafts' introuvable dans crafts.yml !");
-      getLogger().severe("§cVérifiez que votre fichier contient bien:");
-      getLogger().severe("§ccrafts:");
-      getLogger().severe("§c  nom_du_craft:");
-      getLogger().severe("§c    shape: etc...");
+  // Coordination réseau si network.enabled: un craft unique pour tous les serveurs du proxy
+  private NetworkClaims createNetwork() {
+    ConfigurationSection section = getConfig().getConfigurationSection("network");
+    if (section == null || !section.getBoolean("enabled", false)) {
+      return null;
+    }
+    String serverId = section.getString("server-id", "");
+    if (serverId.isEmpty()) {
+      serverId = getServer().getWorldContainer().toPath().toAbsolutePath().normalize().getFileName().toString();
+    }
+    ClaimCoordinator coordinator = SqlClaimCoordinator.fromConfig(section, getDataFolder(), serverId, getLogger());
+    long leaseMillis = TimeUnit.SECONDS.toMillis(section.getLong("lease-seconds", 30));
+    getLogger().info("§aCoordination réseau activée (serveur " + serverId + ")");
+    // Champs lus à l'appel: claimStore peut être remplacé par le journal local au chargement, quotas est
+    // créé ensuite. Un reset réseau ouvre aussi une nouvelle période de limites sur ce serveur.
+    return new NetworkClaims(coordinator, claimRegistry, craftId -> {
+      claimStore.reset(craftId);
+      quotas.reset(craftId);
+    }, leaseMillis, getLogger(), trace, metrics);
+  }
 
-      // debug logs
-      getLogger().severe(craftsConfig.get("crafts").toString());
+  private void loadNetworkClaims() {
+    if (network == null) {
       return;
     }
-
-    getLogger().info("§aCrafts trouvés dans config: " + craftsSection.getKeys(false).size());
-
-    for (String craftId : craftsSection.getKeys(false)) {
-      getLogger().info("§eTentative de chargement du craft: §6" + craftId);
-      ConfigurationSection craft = craftsSection.getConfigurationSection(craftId);
-      if (craft != null) {
-        registerRecipe(craftId, craft);
-      } else {
-        getLogger().warning("§cImpossible de charger la section pour: " + craftId);
-      }
+    try {
+      int claimed = network.load();
+      getLogger().info("§aCrafts réalisés sur le réseau: " + claimed);
+    } catch (IOException e) {
+      // Les crafts restent bloqués tant qu'aucun lease ne peut être obtenu
+      getLogger().severe("§cLecture de l'état réseau impossible: " + e.getMessage());
     }
-    getLogger().info("§6=== FIN CHARGEMENT CRAFTS ===");
+    network.start(scheduler, Math.max(1L, getConfig().getLong("network.poll-interval", 20)));
   }
 
-  private void registerRecipe(String craftId, ConfigurationSection craft) {
-    getLogger().info("§e--- Début enregistrement craft: §6" + craftId);
+  private CraftFeedback.Mode feedbackMode() {
+    String mode = getConfig().getString("settings.blocked-feedback", "actionbar");
+    try {
+      return CraftFeedback.Mode.valueOf(mode.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      getLogger().warning("§esettings.blocked-feedback inconnu (" + mode + "), actionbar utilisé");
+      return CraftFeedback.Mode.ACTIONBAR;
+    }
+  }
 
-    // Récupération du résultat
-    String resultMaterial = craft.getString("result.material");
-    int resultAmount = craft.getInt("result.amount", 1);
+  private ItemAudit createAudit() {
+    int threads = getConfig().getInt("audit.threads", 2);
+    long bytesPerSecond = (long) (getConfig().getDouble("audit.max-mb-per-second", 16) * 1_048_576);
+    double pauseMspt = getConfig().getDouble("audit.pause-above-mspt", 40);
+    // Sous Folia les régions ont chacune leur tick: seul le débit limite l'audit
+    BooleanSupplier busy = scheduler.folia()
+        ? () -> false
+        : () -> Bukkit.getAverageTickTime() > pauseMspt;
+    String marker = new NamespacedKey(this, CraftCompiler.MARKER_KEY).toString();
+    return new ItemAudit(getDataFolder(), getLogger(), marker, threads, bytesPerSecond, busy);
+  }
 
-    if (resultMaterial == null) {
-      getLogger().warning("§cMatériau résultat manquant pour: " + craftId);
+  private void startAudit(CommandSender sender, boolean resume) {
+    List<Path> folders = new ArrayList<>();
+    for (World world : Bukkit.getWorlds()) {
+      folders.add(world.getWorldFolder().toPath());
+    }
+    boolean started;
+    try {
+      started = audit.start(folders, auditSignatures(), resume, report -> scheduler.runGlobal(() -> {
+        List<String> lines = auditSummary(report);
+        for (String line : lines) {
+          getLogger().info(line);
+        }
+        if (sender != Bukkit.getConsoleSender()) {
+          for (String line : lines) {
+            sender.sendMessage(line);
+          }
+        }
+      }));
+    } catch (IOException e) {
+      sender.sendMessage("§cImpossible de lancer l'audit: " + e.getMessage());
       return;
     }
-
-    Material material = Material.getMaterial(resultMaterial.toUpperCase());
-    if (material == null) {
-      getLogger().warning("§cMatériau inconnu: " + resultMaterial + " pour: " + craftId);
+    if (!started) {
+      sender.sendMessage("§cUn audit est déjà en cours: " + audit.status());
       return;
     }
+    sender.sendMessage("§aAudit des objets uniques lancé en arrière-plan §7(fichiers sur disque:"
+        + " un save-all préalable donne un résultat à jour)");
+  }
 
-    ItemStack result = new ItemStack(material, resultAmount);
-    ItemMeta meta = result.getItemMeta();
-
-    // Apply custom name
-    if (craft.contains("result.name")) {
-      String name = craft.getString("result.name");
-      if (name != null) {
-        meta.setDisplayName(name.replace('&', '§'));
-        getLogger().info("§7Nom personnalisé: " + name);
+  // Ce que l'audit doit reconnaître pour chaque craft, en plus du marqueur PDC
+  private List<ItemAudit.Signature> auditSignatures() {
+    List<ItemAudit.Signature> signatures = new ArrayList<>();
+    for (CraftDefinition definition : recipeIndex.definitions()) {
+      ItemMeta meta = definition.result().getItemMeta();
+      String name = meta.hasDisplayName() ? NbtScanner.stripColors(meta.getDisplayName()) : null;
+      List<String> lore = new ArrayList<>();
+      if (meta.hasLore()) {
+        for (String line : meta.getLore()) {
+          lore.add(NbtScanner.stripColors(line));
+        }
       }
+      signatures.add(new ItemAudit.Signature(definition.id(), definition.resultMaterial().getKey().toString(),
+          name, lore));
     }
+    return signatures;
+  }
 
-    // Apply custom lore
-    if (craft.contains("result.lore")) {
-      List<String> lore = new ArrayList<>();
-      for (String line : craft.getStringList("result.lore")) {
-        lore.add(line.replace('&', '§'));
+  private List<String> auditSummary(ItemAudit.Report report) {
+    List<String> lines = new ArrayList<>();
+    lines.add(String.format(Locale.ROOT,
+        "§aAudit terminé: %d fichiers, %.1f Mo en %.1f s, %d objets uniques trouvés", report.files(),
+        report.bytes() / 1_048_576.0, report.nanos() / 1e9, report.findings().size()));
+    List<String> duplicates = report.duplicates();
+    if (duplicates.isEmpty()) {
+      lines.add("§aAucun doublon.");
+    } else {
+      List<String> counts = new ArrayList<>();
+      for (String craftId : duplicates) {
+        counts.add(craftId + " (" + report.totals().get(craftId) + ")");
       }
-      meta.setLore(lore);
-      getLogger().info("§7Lore ajouté (" + lore.size() + " lignes)");
+      lines.add("§cDoublons: " + String.join(", ", counts));
+    }
+    List<String> unclaimed = new ArrayList<>();
+    for (String craftId : report.totals().keySet()) {
+      if (!claimRegistry.isClaimed(craftId)) {
+        unclaimed.add(craftId);
+      }
+    }
+    if (!unclaimed.isEmpty()) {
+      lines.add("§eObjets présents mais craft non enregistré: " + String.join(", ", unclaimed));
+    }
+    if (report.unreadable() > 0) {
+      lines.add("§e" + report.unreadable() + " fichiers ou chunks illisibles (voir la console)");
     }
+    lines.add("§7Rapport détaillé: " + report.path());
+    return lines;
+  }
 
-    // Apply enchantments
-    if (craft.contains("result.enchantments")) {
-      ConfigurationSection enchantments = craft.getConfigurationSection("result.enchantments");
-      if (enchantments != null) {
-        getLogger().info("§7Enchantements à appliquer: " + enchantments.getKeys(false).size());
-        for (String enchantKey : enchantments.getKeys(false)) {
-          try {
-            Enchantment enchantment = Enchantment.getByName(enchantKey.toUpperCase());
-            if (enchantment != null) {
-              int level = enchantments.getInt(enchantKey);
-              meta.addEnchant(enchantment, level, true);
-              getLogger().info("§7- " + enchantKey + ": " + level);
-            } else {
-              getLogger().warning("§eEnchantement inconnu: " + enchantKey + " dans le craft " + craftId);
-            }
-          } catch (Exception e) {
-            getLogger().warning("§cErreur avec l'enchantement " + enchantKey + ": " + e.getMessage());
-          }
+  // Lecture des segments hors du thread principal; une entrée de plus que la page pour savoir s'il y a une suite
+  private void sendHistory(CommandSender sender, String target, String pageArg) {
+    int page;
+    try {
+      page = Math.max(1, Integer.parseInt(pageArg));
+    } catch (NumberFormatException e) {
+      sender.sendMessage("§cPage invalide: " + pageArg);
+      return;
+    }
+    int skip = (int) Math.min(Integer.MAX_VALUE - 1L - CraftQuery.PAGE_SIZE, (long) (page - 1) * CraftQuery.PAGE_SIZE);
+    scheduler.runAsync(() -> {
+      List<CraftHistory.Entry> entries = history.query(target, skip + CraftQuery.PAGE_SIZE + 1);
+      List<String> lines = new ArrayList<>();
+      if (entries.size() <= skip) {
+        lines.add("§cAucun craft dans l'historique pour " + target + (page > 1 ? " (page " + page + ")" : ""));
+      } else {
+        lines.add("§6=== Historique: " + target + " (page " + page + ") ===");
+        for (CraftHistory.Entry entry : entries.subList(skip, Math.min(entries.size(), skip + CraftQuery.PAGE_SIZE))) {
+          lines.add(historyLine(entry));
+        }
+        if (entries.size() > skip + CraftQuery.PAGE_SIZE) {
+          lines.add("§7Suite: /uniquecraft history " + target + " " + (page + 1));
         }
       }
-    }
+      for (String line : lines) {
+        sender.sendMessage(line);
+      }
+    });
+  }
 
-    // Apply attributes
-    if (craft.contains("result.attributes")) {
-      ConfigurationSection attributes = craft.getConfigurationSection("result.attributes");
-      if (attributes != null) {
-        getLogger().info("§7Attributs à appliquer: " + attributes.getKeys(false).size());
-        for (String attrKey : attributes.getKeys(false)) {
-          double value = attributes.getDouble(attrKey);
-
-          Attribute attribute = null;
-          EquipmentSlot slot = EquipmentSlot.HAND;
-
-          // Map attribute names to Bukkit Attributes
-          switch (attrKey.toLowerCase()) {
-            case "attack_damage":
-            case "generic.attack_damage":
-              attribute = Attribute.GENERIC_ATTACK_DAMAGE;
-              break;
-            case "attack_speed":
-            case "generic.attack_speed":
-              attribute = Attribute.GENERIC_ATTACK_SPEED;
-              break;
-            case "max_health":
-            case "generic.max_health":
-              attribute = Attribute.GENERIC_MAX_HEALTH;
-              break;
-            case "movement_speed":
-            case "generic.movement_speed":
-              attribute = Attribute.GENERIC_MOVEMENT_SPEED;
-              slot = EquipmentSlot.FEET;
-              break;
-            case "armor":
-            case "generic.armor":
-              attribute = Attribute.GENERIC_ARMOR;
-              slot = EquipmentSlot.CHEST;
-              break;
-            case "armor_toughness":
-            case "generic.armor_toughness":
-              attribute = Attribute.GENERIC_ARMOR_TOUGHNESS;
-              slot = EquipmentSlot.CHEST;
-              break;
-            case "luck":
-            case "generic.luck":
-              attribute = Attribute.GENERIC_LUCK;
-              break;
-            case "knockback_resistance":
-            case "generic.knockback_resistance":
-              attribute = Attribute.GENERIC_KNOCKBACK_RESISTANCE;
-              slot = EquipmentSlot.CHEST;
-              break;
-            default:
-              getLogger().warning("§eAttribut inconnu: " + attrKey + " dans le craft " + craftId);
-              continue;
-          }
+  private static String historyLine(CraftHistory.Entry entry) {
+    String when = HISTORY_TIME.format(Instant.ofEpochMilli(entry.time()).atZone(ZoneId.systemDefault()));
+    String where = entry.world().isEmpty() ? ""
+        : " §7à " + entry.world() + " " + entry.x() + " " + entry.y() + " " + entry.z();
+    return "§e" + when + " §f" + entry.craftId() + " §7par §f" + entry.name() + where + " §8#"
+        + entry.serial().substring(0, Math.min(8, entry.serial().length()));
+  }
 
-          if (attribute != null) {
-            // Generate a unique UUID based on craftId and attribute name
-            UUID uuid = generateUUID(craftId, attrKey);
-            AttributeModifier modifier = new AttributeModifier(
-                uuid,
-                attrKey,
-                value,
-                AttributeModifier.Operation.ADD_NUMBER,
-                slot);
-            meta.addAttributeModifier(attribute, modifier);
-            getLogger().info("§7- " + attrKey + ": " + value + " (slot: " + slot + ")");
-          }
+  private static String locateLine(ItemLocator.Holder holder) {
+    String where = holder.world().isEmpty() ? ""
+        : " §7à " + holder.world() + " " + holder.x() + " " + holder.y() + " " + holder.z();
+    String what = switch (holder.kind()) {
+      case PLAYER -> "porté par " + holder.name() + (holder.player() != null
+          && Bukkit.getPlayer(holder.player()) != null ? " §a(en ligne)" : " §7(hors ligne)");
+      case ENDER_CHEST -> "coffre de l'End de " + holder.name();
+      case CONTAINER -> "dans " + holder.name();
+      case ENTITY -> "porté par l'entité " + holder.name();
+      case GROUND -> "au sol (" + holder.name() + ")";
+      case LOST -> "perdu (" + holder.name() + ")";
+    };
+    long minutes = TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis() - holder.updatedAt());
+    return "§e#" + holder.serial().substring(0, 8) + " §f" + what + where + " §8(il y a " + minutes + " min)";
+  }
+
+  private void auditCommand(CommandSender sender, String action) {
+    switch (action.toLowerCase(Locale.ROOT)) {
+      case "status" -> {
+        if (audit.running()) {
+          sender.sendMessage("§eAudit en cours: " + audit.status());
+        } else if (audit.hasUnfinished()) {
+          sender.sendMessage("§eAudit interrompu, reprise avec /uniquecraft audit");
+        } else {
+          sender.sendMessage("§7Aucun audit en cours.");
+        }
+      }
+      case "stop" -> {
+        if (!audit.running()) {
+          sender.sendMessage("§7Aucun audit en cours.");
+          return;
+        }
+        // Attend la fin des fichiers en cours: hors du thread principal
+        scheduler.runAsync(audit::stop);
+        sender.sendMessage("§eAudit arrêté, reprise avec /uniquecraft audit");
+      }
+      case "", "restart" -> {
+        if (!getConfig().getBoolean("settings.check-existing-items", true)) {
+          sender.sendMessage("§cL'audit est désactivé (settings.check-existing-items).");
+          return;
         }
+        startAudit(sender, action.isEmpty());
       }
+      default -> sender.sendMessage("§cUsage: /uniquecraft audit [restart|stop|status]");
     }
+  }
 
-    // Apply unbreakable
-    if (craft.getBoolean("result.unbreakable", false)) {
-      meta.setUnbreakable(true);
-      meta.addItemFlags(ItemFlag.HIDE_UNBREAKABLE);
-      getLogger().info("§7Objet indestructible: OUI");
+  // Endpoint Prometheus optionnel, sur 127.0.0.1 uniquement
+  private void startMetricsServer() {
+    if (!getConfig().getBoolean("metrics.enabled", false)) {
+      return;
     }
+    int port = getConfig().getInt("metrics.port", 9464);
+    try {
+      metricsServer = MetricsServer.start(port, metrics);
+      getLogger().info("§aMétriques disponibles sur http://127.0.0.1:" + metricsServer.port() + "/metrics");
+    } catch (IOException e) {
+      getLogger().severe("§cImpossible de démarrer l'endpoint de métriques sur le port " + port + ": "
+          + e.getMessage());
+    }
+  }
 
-    // Hide enchantments and attributes by default
-    meta.addItemFlags(ItemFlag.HIDE_ENCHANTS, ItemFlag.HIDE_ATTRIBUTES);
-
-    result.setItemMeta(meta);
-
-    // Create recipe
-    NamespacedKey key = new NamespacedKey(this, "unique_craft_" + craftId);
-    getLogger().info("§aClé générée: §7" + key.toString());
-    getLogger().info("§aNamespace: §7" + key.getNamespace());
-    getLogger().info("§aKey: §7" + key.getKey());
-
-    ShapedRecipe recipe = new ShapedRecipe(key, result);
+  private void loadCraftedItems() {
+    Map<String, ClaimRecord> claims;
+    try {
+      claims = claimStore.load();
+    } catch (IOException e) {
+      if (!(claimStore instanceof JdbcClaimStore)) {
+        getLogger().severe("§cErreur lors de la lecture des crafts réalisés: " + e.getMessage());
+        return;
+      }
+      getLogger().severe("§cConnexion à la base impossible, utilisation du journal local: " + e.getMessage());
+      claimStore.close();
+      claimStore = new ClaimJournal(getDataFolder(), getLogger(), metrics, trace);
+      try {
+        claims = claimStore.load();
+      } catch (IOException journal) {
+        getLogger().severe("§cErreur lors de la lecture des crafts réalisés: " + journal.getMessage());
+        return;
+      }
+    }
 
-    // Configuration de la forme
-    List<String> shapeList = craft.getStringList("shape");
-    if (shapeList.size() != 3) {
-      getLogger().warning("§cLa forme du craft " + craftId + " doit avoir 3 lignes!");
-      return;
+    for (ClaimRecord claim : claims.values()) {
+      claimRegistry.markClaimed(claim.craftId(), claim.player());
     }
 
-    recipe.shape(shapeList.toArray(new String[0]));
-    getLogger().info("§7Forme: " + String.join(", ", shapeList));
-
-    // Configuration des ingrédients
-    ConfigurationSection ingredients = craft.getConfigurationSection("ingredients");
-    if (ingredients != null) {
-      getLogger().info("§7Ingrédients: " + ingredients.getKeys(false).size());
-      for (String ingredientKey : ingredients.getKeys(false)) {
-        char symbol = ingredientKey.charAt(0);
-        String ingredientMaterial = ingredients.getString(ingredientKey);
-        if (ingredientMaterial != null) {
-          Material ingMaterial = Material.getMaterial(ingredientMaterial.toUpperCase());
-          if (ingMaterial != null) {
-            recipe.setIngredient(symbol, ingMaterial);
-            getLogger().info("§7- " + symbol + " = " + ingMaterial);
-          } else {
-            getLogger().warning("§eMatériau inconnu: " + ingredientMaterial + " dans le craft " + craftId);
-          }
+    // Migration de l'ancienne section "crafted" de crafts.yml vers le stockage
+    ConfigurationSection craftedSection = craftsConfig.getConfigurationSection("crafted");
+    if (craftedSection != null && !craftedSection.getKeys(false).isEmpty()) {
+      getLogger().info("§eMigration des crafts réalisés de crafts.yml vers le stockage...");
+      for (String craftId : craftedSection.getKeys(false)) {
+        if (craftedSection.getBoolean(craftId) && !claimRegistry.isClaimed(craftId)) {
+          claimRegistry.markClaimed(craftId, new UUID(0L, 0L));
+          claimStore.claim(craftId, new UUID(0L, 0L));
         }
       }
+      claimStore.compact();
+      persistence.set("crafted", null);
     }
 
-    // Enregistrement de la recette
-    try {
-      Bukkit.addRecipe(recipe);
-      getLogger().info("§a✓ SUCCÈS: Craft enregistré: " + craftId);
-    } catch (IllegalArgumentException e) {
-      getLogger().severe("§c✗ ERREUR avec le craft " + craftId + ": " + e.getMessage());
-      e.printStackTrace();
+    int claimed = claimRegistry.claimedCount();
+    if (claimed == 0) {
+      getLogger().info("§eAucun craft réalisé précédemment.");
+    } else {
+      getLogger().info("§aTotal crafts déjà réalisés: " + claimed);
     }
-
-    getLogger().info("§e--- Fin enregistrement craft: §6" + craftId + "\n");
   }
 
-  // Helper method to generate UUIDs for attributes
-  private UUID generateUUID(String craftId, String attributeName) {
-    // Use a consistent method to generate UUIDs from craftId and attribute name
-    String combined = craftId + "_" + attributeName;
-    int hash = combined.hashCode();
-
-    // Create a UUID from the hash (ensuring it's unique per craft+attribute)
-    return new UUID(
-        ((long) craftId.hashCode() << 32) | (hash & 0xffffffffL),
-        ((long) attributeName.hashCode() << 32) | (System.currentTimeMillis() & 0xffffffffL));
+  // Accorde l'état des crafts à plusieurs exemplaires avec leurs compteurs: un craft fait avant l'ajout
+  // de limits: compte pour un exemplaire; une limite relevée ou une nouvelle saison le rend de nouveau
+  // disponible; une limite atteinte le marque comme fait.
+  private void reconcileQuotas() {
+    int reopened = 0;
+    for (CraftDefinition definition : recipeIndex.sorted()) {
+      if (!definition.quota().counted()) {
+        continue;
+      }
+      String craftId = definition.id();
+      boolean claimed = claimRegistry.isClaimed(craftId);
+      if (claimed) {
+        quotas.adopt(definition);
+      }
+      boolean exhausted = quotas.exhausted(definition);
+      if (claimed && !exhausted && claimRegistry.reset(craftId)) {
+        claimStore.reset(craftId);
+        reopened++;
+      } else if (!claimed && exhausted) {
+        UUID nobody = new UUID(0L, 0L);
+        claimRegistry.markClaimed(craftId, nobody);
+        claimStore.claim(craftId, nobody);
+      }
+    }
+    if (reopened > 0) {
+      getLogger().info("§aCrafts de nouveau disponibles (limites ou saison " + quotas.season() + "): " + reopened);
+    }
   }
 
-  @EventHandler
-  public void onPrepareCraft(PrepareItemCraftEvent event) {
-    Recipe recipe = event.getRecipe();
-    if (recipe == null)
-      return;
-
-    // Vérifier si c'est une de nos recettes uniques
-    String craftId = getCraftIdFromRecipe(recipe);
-    if (craftId == null)
+  private void loadCustomRecipes() {
+    ConfigurationSection craftsSection = craftsConfig.getConfigurationSection("crafts");
+    if (craftsSection == null) {
+      getLogger().severe("§cERREUR: Section 'crafts' introuvable dans crafts.yml !");
+      getLogger().severe("§cVérifiez que votre fichier contient bien:");
+      getLogger().severe("§ccrafts:");
+      getLogger().severe("§c  nom_du_craft:");
+      getLogger().severe("§c    shape: etc...");
       return;
+    }
 
-    getLogger().info("§b[PrepareCraft] Craft détecté: " + craftId);
+    // Crafts déjà compilés si crafts.yml et la version du serveur n'ont pas changé, sinon validation et
+    // compilation en parallèle, puis réécriture du cache
+    CraftLoader.Result result = null;
+    if (craftsCacheKey != null) {
+      try {
+        result = recipeCache.load(craftsCacheKey);
+      } catch (IOException e) {
+        getLogger().warning("§erecipes.cache illisible, compilation de crafts.yml: " + e.getMessage());
+      }
+    }
+    boolean cached = result != null;
+    if (!cached) {
+      result = CraftLoader.compileAll(craftsSection, craftCompiler);
+      saveRecipeCache(craftsCacheKey, result);
+    }
+    if (!result.problems().isEmpty()) {
+      getLogger().warning("§e" + result.invalid() + " craft(s) invalide(s), " + result.problems().size()
+          + " craft(s) avec avertissements:" + CraftLoader.summarize(result.problems()));
+    }
 
-    // Vérifier si cet objet a déjà été crafté globalement
-    if (globalCraftedItems.contains(craftId)) {
-      event.getInventory().setResult(null);
-      if (event.getViewers().get(0) instanceof Player) {
-        Player player = (Player) event.getViewers().get(0);
-        player.sendMessage("§cCet objet a déjà été crafté sur le serveur !");
-        getLogger().info("§b[PrepareCraft] Craft bloqué: " + craftId + " déjà fait par serveur");
+    // Enregistrement groupé, une seule resynchronisation des clients. Les crafts déjà réalisés restent
+    // hors de la table des recettes jusqu'à leur reset.
+    long registerStart = System.nanoTime();
+    for (CraftDefinition definition : result.definitions()) {
+      if (claimRegistry.isClaimed(definition.id())) {
+        recipeBook.markRetired(definition.id());
+      } else {
+        addRecipe(definition);
       }
-    } else {
-      getLogger().info("§b[PrepareCraft] Craft autorisé: " + craftId + " pas encore fait");
     }
+    Bukkit.updateRecipes();
+    metrics.recordRegister(System.nanoTime() - registerStart);
+
+    // Index utilisé par les événements de craft
+    recipeIndex = new RecipeIndex(getName().toLowerCase(Locale.ROOT), result.definitions());
+    getLogger().info(String.format(Locale.ROOT, "§a%d crafts chargés (%s %.1f ms, enregistrement %.1f ms)",
+        result.definitions().size(), cached ? "cache" : "compilation", result.compileNanos() / 1_000_000.0,
+        (System.nanoTime() - registerStart) / 1_000_000.0));
   }
 
-  @EventHandler
-  public void onCraftItem(CraftItemEvent event) {
-    if (event.getWhoClicked() instanceof Player) {
-      Player player = (Player) event.getWhoClicked();
-      Recipe recipe = event.getRecipe();
-
-      if (recipe == null)
-        return;
-
-      String craftId = getCraftIdFromRecipe(recipe);
-      if (craftId == null)
-        return;
-
-      getLogger().info("§b[CraftItem] Tentative de craft: " + craftId + " par " + player.getName());
+  // Reload incrémental: crafts.yml est relu et comparé hors du thread principal,
+  // seuls les crafts ajoutés/modifiés/supprimés sont appliqués à la table des recettes.
+  private void reloadCrafts(CommandSender sender) {
+    if (!reloading.compareAndSet(false, true)) {
+      sender.sendMessage("§cUn rechargement est déjà en cours !");
+      return;
+    }
+    long start = System.nanoTime();
+    RecipeIndex current = recipeIndex;
+
+    scheduler.runAsync(() -> {
+      try {
+        // Pas d'écriture avant la lecture: les modifications de l'admin seraient écrasées. Les valeurs
+        // en attente sont réappliquées sur la config relue (setConfig).
+        long writes = persistence.writes();
+        if (!craftsFile.exists()) {
+          sender.sendMessage("§cFichier crafts.yml introuvable, rechargement annulé !");
+          reloading.set(false);
+          return;
+        }
+        // recipes.cache n'est pas réécrit ici: le reload ne recompile que les crafts modifiés, le
+        // prochain démarrage constatera le changement de crafts.yml et recompilera tout
+        FileConfiguration loaded = readCrafts(false).config();
+        ConfigurationSection crafts = loaded.getConfigurationSection("crafts");
+        if (crafts == null) {
+          sender.sendMessage("§cSection 'crafts' introuvable dans crafts.yml, rechargement annulé !");
+          reloading.set(false);
+          return;
+        }
+        CraftDiff diff = CraftDiff.compute(current, crafts, craftCompiler);
+        trace.log(Trace.Category.LOAD, () -> "Reload: " + diff.added().size() + " ajouté(s), "
+            + diff.changed().size() + " modifié(s), " + diff.removed().size() + " supprimé(s)");
+        if (!diff.problems().isEmpty()) {
+          getLogger().warning("§eProblèmes dans crafts.yml:" + CraftLoader.summarize(diff.problems()));
+        }
 
-      // Vérifier si l'objet a déjà été crafté
-      if (globalCraftedItems.contains(craftId)) {
-        event.setCancelled(true);
-        player.sendMessage("§cCet objet a déjà été crafté sur le serveur !");
-        getLogger().info("§b[CraftItem] Craft annulé: " + craftId + " déjà fait");
-        return;
+        // La table des recettes est un état global: région globale sous Folia
+        scheduler.runGlobal(() -> {
+          try {
+            reloadConfig();
+            trace.setMaxPerSecond(getConfig().getInt("debug-rate-limit", 20));
+            trace.enableAll(getConfig().getBoolean("debug", false));
+            loadMessages();
+            craftsConfig = loaded;
+            persistence.setConfig(loaded, writes);
+            quotas.setSeason(getConfig().getString("settings.season", ""));
+            applyDiff(diff);
+            reconcileQuotas();
+            double millis = (System.nanoTime() - start) / 1_000_000.0;
+            sender.sendMessage(messages.render(sender, Messages.Key.RELOAD_SUCCESS)
+                .append(Component.text(String.format(Locale.ROOT, " (+%d ~%d -%d, %d avec problèmes, %.1f ms)",
+                    diff.added().size(), diff.changed().size(), diff.removed().size(), diff.problems().size(),
+                    millis), NamedTextColor.GRAY)));
+          } finally {
+            reloading.set(false);
+          }
+        });
+      } catch (RuntimeException e) {
+        reloading.set(false);
+        getLogger().severe("§cErreur lors du rechargement de crafts.yml: " + e.getMessage());
+        sender.sendMessage("§cErreur lors du rechargement, voir la console.");
       }
+    });
+  }
 
-      // Marquer comme crafté
-      globalCraftedItems.add(craftId);
-
-      // Enregistrer dans la config
-      craftsConfig.set("crafted." + craftId, true);
-      saveCraftsConfig();
-
-      // Envoyer le message
-      ConfigurationSection craftsSection = craftsConfig.getConfigurationSection("crafts." + craftId);
-      if (craftsSection != null) {
-        String message = craftsSection.getString("message",
-            "§aL'objet unique a été crafté par " + player.getName() + " !");
-        String finalMessage = message.replace("%player%", player.getName());
-
-        // Broadcast message to all players
-        for (Player p : Bukkit.getOnlinePlayers()) {
-          p.sendMessage(finalMessage);
-        }
+  // Retrait/ajout ciblé des recettes, puis une seule resynchronisation des clients
+  private void applyDiff(CraftDiff diff) {
+    if (!diff.isEmpty()) {
+      long registerStart = System.nanoTime();
+      for (CraftDefinition definition : diff.removed()) {
+        Bukkit.removeRecipe(definition.key(), false);
+        trace.log(Trace.Category.LOAD, "Recette retirée: {}", definition.key());
       }
-
-      player.sendMessage("§aVous avez crafté un objet unique !");
-      getLogger().info("§b[CraftItem] Craft réussi: " + craftId + " par " + player.getName());
+      for (CraftDefinition definition : diff.changed()) {
+        Bukkit.removeRecipe(definition.key(), false);
+      }
+      for (CraftDefinition definition : diff.added()) {
+        addLiveRecipe(definition);
+      }
+      for (CraftDefinition definition : diff.changed()) {
+        addLiveRecipe(definition);
+      }
+      Bukkit.updateRecipes();
+      metrics.recordRegister(System.nanoTime() - registerStart);
     }
+    recipeIndex = new RecipeIndex(recipeIndex.namespace(), diff.definitions());
   }
 
-  private String getCraftIdFromRecipe(Recipe recipe) {
-    if (recipe instanceof ShapedRecipe) {
-      ShapedRecipe shapedRecipe = (ShapedRecipe) recipe;
-      String key = shapedRecipe.getKey().getKey();
-      String namespace = shapedRecipe.getKey().getNamespace();
-
-      getLogger().info("§bDEBUG Recipe trouvée:");
-      getLogger().info("§7- Namespace: " + namespace);
-      getLogger().info("§7- Key: " + key);
-      getLogger().info("§7- Full: " + shapedRecipe.getKey().toString());
+  // Craft réalisé: la recette reste retirée, RecipeBook la remettra au reset
+  private void addLiveRecipe(CraftDefinition definition) {
+    if (claimRegistry.isClaimed(definition.id())) {
+      recipeBook.markRetired(definition.id());
+    } else {
+      addRecipe(definition);
+    }
+  }
 
-      if (key.startsWith("unique_craft_")) {
-        String craftId = key.substring("unique_craft_".length());
-        getLogger().info("§aCraft ID extrait: " + craftId);
-        return craftId;
-      } else {
-        getLogger().warning("§eCette recette n'est pas un craft unique (pas le bon préfixe)");
-      }
+  private void addRecipe(CraftDefinition definition) {
+    try {
+      Bukkit.addRecipe(definition.createRecipe(), false);
+      trace.log(Trace.Category.LOAD, "Recette enregistrée: {}", definition.key());
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      getLogger().severe("§c✗ ERREUR avec le craft " + definition.id() + ": " + e.getMessage());
     }
-    return null;
   }
 
   // Commande pour gérer les crafts
@@ -447,9 +751,13 @@ public class UniqueCraftsPlugin extends JavaPlugin implements Listener {
       if (args.length == 0) {
         sender.sendMessage("§6=== UniqueCrafts ===");
         sender.sendMessage("§e/uniquecraft reload - Recharge la configuration");
-        sender.sendMessage("§e/uniquecraft list - Liste les crafts disponibles");
+        sender.sendMessage("§e/uniquecraft list [page] [statut:|matériau:|nom:] - Liste les crafts");
         sender.sendMessage("§e/uniquecraft reset <id> - Réinitialise un craft");
-        sender.sendMessage("§e/uniquecraft debug - Infos de débogage");
+        sender.sendMessage("§e/uniquecraft stats - Statistiques et temps de traitement");
+        sender.sendMessage("§e/uniquecraft debug [crafts|catégorie|all|off] - Infos ou traces de débogage");
+        sender.sendMessage("§e/uniquecraft locate <id> - Où se trouve un objet unique");
+        sender.sendMessage("§e/uniquecraft history <id|joueur> [page] - Historique des crafts");
+        sender.sendMessage("§e/uniquecraft audit [restart|stop|status] - Recherche des objets uniques en double");
         return true;
       }
 
@@ -459,32 +767,12 @@ public class UniqueCraftsPlugin extends JavaPlugin implements Listener {
           return true;
         }
 
-        reloadConfig();
-        loadCraftsConfig();
-        globalCraftedItems.clear();
-        loadCraftedItems();
-
-        // Recharger les recettes
-        // removeAllRecipes();
-        loadCustomRecipes();
-
-        sender.sendMessage("§aConfiguration rechargée !");
+        reloadCrafts(sender);
         return true;
       }
 
       if (args[0].equalsIgnoreCase("list")) {
-        ConfigurationSection craftsSection = craftsConfig.getConfigurationSection("crafts");
-        if (craftsSection != null) {
-          sender.sendMessage("§6=== Crafts disponibles ===");
-          for (String craftId : craftsSection.getKeys(false)) {
-            boolean crafted = globalCraftedItems.contains(craftId);
-            String status = crafted ? "§cDéjà crafté" : "§aDisponible";
-            sender.sendMessage("§e- " + craftId + ": " + status);
-          }
-          sender.sendMessage("§eTotal: " + craftsSection.getKeys(false).size() + " crafts");
-        } else {
-          sender.sendMessage("§cAucun craft configuré !");
-        }
+        sendCraftPage(sender, args, 1, "list", false);
         return true;
       }
 
@@ -500,94 +788,207 @@ public class UniqueCraftsPlugin extends JavaPlugin implements Listener {
         }
 
         String craftId = args[1];
-        if (!globalCraftedItems.contains(craftId)) {
+        boolean claimed = claimRegistry.reset(craftId);
+        if (!quotas.reset(craftId) && !claimed) {
           sender.sendMessage("§cCe craft n'a pas encore été réalisé !");
           return true;
         }
 
-        globalCraftedItems.remove(craftId);
-        craftsConfig.set("crafted." + craftId, null);
-        saveCraftsConfig();
-        sender.sendMessage("§aCraft " + craftId + " réinitialisé !");
+        if (claimed) {
+          claimStore.reset(craftId);
+          if (network != null) {
+            network.reset(craftId);
+          }
+        }
+        messages.send(sender, Messages.Key.CRAFT_RESET, craftId);
         return true;
       }
 
-      if (args[0].equalsIgnoreCase("debug")) {
-        sender.sendMessage("§6=== DEBUG UniqueCrafts ===");
-
-        // Afficher tous les crafts enregistrés sur le serveur
-        sender.sendMessage("§eTous les crafts sur le serveur:");
-        int count = 0;
-        int ourCrafts = 0;
-
-        // CORRECTION : Utiliser recipeIterator() au lieu de getRecipes()
-        Iterator<Recipe> iterator = Bukkit.recipeIterator();
-        while (iterator.hasNext()) {
-          Recipe recipe = iterator.next();
-          if (recipe instanceof ShapedRecipe) {
-            ShapedRecipe sr = (ShapedRecipe) recipe;
-            String key = sr.getKey().toString();
-            sender.sendMessage("§7- " + key);
-            count++;
-            if (key.contains("unique_craft_")) {
-              ourCrafts++;
-            }
-          }
+      if (args[0].equalsIgnoreCase("stats")) {
+        for (String line : metrics.summary()) {
+          sender.sendMessage(line);
+        }
+        if (network != null) {
+          sender.sendMessage("§eRéseau: serveur " + network.serverId() + ", conflits " + network.conflicts());
+        }
+        sender.sendMessage("§eRefus regroupés: " + feedback.suppressed() + " message(s) évité(s), "
+            + feedback.tracked() + " joueur(s) en attente");
+        if (history.dropped() > 0) {
+          sender.sendMessage("§cHistorique: " + history.dropped() + " entrée(s) perdue(s), tampon plein");
         }
+        return true;
+      }
 
-        sender.sendMessage("§eTotal crafts ShapedRecipe: " + count);
-        sender.sendMessage("§eNos crafts uniques trouvés: " + ourCrafts);
+      if (args[0].equalsIgnoreCase("history")) {
+        if (!sender.hasPermission("uniquecrafts.history")) {
+          sender.sendMessage("§cVous n'avez pas la permission !");
+          return true;
+        }
+        if (args.length < 2) {
+          sender.sendMessage("§cUsage: /uniquecraft history <craft_id|joueur> [page]");
+          return true;
+        }
+        sendHistory(sender, args[1], args.length > 2 ? args[2] : "1");
+        return true;
+      }
 
-        // Afficher nos crafts chargés
-        sender.sendMessage("§6Nos crafts configurés:");
-        ConfigurationSection craftsSection = craftsConfig.getConfigurationSection("crafts");
-        if (craftsSection != null) {
-          for (String craftId : craftsSection.getKeys(false)) {
-            sender.sendMessage("§7- " + craftId);
-          }
-          sender.sendMessage("§eTotal dans config: " + craftsSection.getKeys(false).size());
-        } else {
-          sender.sendMessage("§cAucun craft dans la config !");
+      if (args[0].equalsIgnoreCase("locate")) {
+        if (args.length < 2) {
+          sender.sendMessage("§cUsage: /uniquecraft locate <craft_id>");
+          return true;
+        }
+        List<ItemLocator.Holder> holders = locator.locate(args[1]);
+        if (holders.isEmpty()) {
+          sender.sendMessage("§cAucun exemplaire connu de " + args[1]
+              + " §7(seuls les objets craftés depuis l'activation du suivi sont numérotés)");
+          return true;
+        }
+        sender.sendMessage("§6=== " + args[1] + ": " + holders.size() + " exemplaire(s)"
+            + (holders.size() > 1 ? " §c(DOUBLON)" : "") + " §6===");
+        for (ItemLocator.Holder holder : holders) {
+          sender.sendMessage(locateLine(holder));
         }
+        return true;
+      }
 
-        // Vérifier si le fichier existe
-        sender.sendMessage("§6Fichier crafts.yml existe: " + craftsFile.exists());
-        sender.sendMessage("§6Dossier plugin: " + getDataFolder().getAbsolutePath());
+      if (args[0].equalsIgnoreCase("audit")) {
+        auditCommand(sender, args.length >= 2 ? args[1] : "");
+        return true;
+      }
 
+      if (args[0].equalsIgnoreCase("debug") && args.length >= 2 && args[1].equalsIgnoreCase("crafts")) {
+        sendCraftPage(sender, args, 2, "debug crafts", true);
+        return true;
+      }
+
+      if (args[0].equalsIgnoreCase("debug") && args.length >= 2) {
+        toggleTrace(sender, args[1]);
+        return true;
+      }
+
+      if (args[0].equalsIgnoreCase("debug")) {
+        sendDebugSummary(sender);
         return true;
       }
     }
     return false;
   }
 
-  private void removeAllRecipes() {
-    getLogger().info("§6Suppression de toutes nos recettes...");
-    // Get all recipes and remove ours
-    Iterator<Recipe> iterator = Bukkit.recipeIterator();
-    List<Recipe> newRecipes = new ArrayList<>();
+  // Liste paginée et filtrée des crafts: filtrage et mise en forme hors du thread principal,
+  // sur l'index courant (immuable)
+  private void sendCraftPage(CommandSender sender, String[] args, int from, String command, boolean details) {
+    CraftQuery query;
+    try {
+      query = CraftQuery.parse(args, from);
+    } catch (IllegalArgumentException e) {
+      sender.sendMessage("§c" + e.getMessage());
+      return;
+    }
+    RecipeIndex index = recipeIndex;
+    if (index.size() == 0) {
+      sender.sendMessage("§cAucun craft configuré !");
+      return;
+    }
+    scheduler.runAsync(() -> {
+      CraftQuery.Page page = query.run(index.sorted(), claimRegistry::status);
+      List<String> lines = new ArrayList<>(page.items().size() + 2);
+      lines.add(String.format(Locale.ROOT, "§6=== Crafts (page %d/%d, %d sur %d) ===", page.page(), page.pages(),
+          page.total(), index.size()));
+      for (CraftDefinition definition : page.items()) {
+        lines.add(details ? debugLine(definition) : listLine(definition));
+      }
+      if (page.total() == 0) {
+        lines.add("§7Aucun craft ne correspond aux filtres.");
+      } else if (page.page() < page.pages()) {
+        lines.add("§7Suite: /uniquecraft " + command + " " + (page.page() + 1) + query.filters());
+      }
+      for (String line : lines) {
+        sender.sendMessage(line);
+      }
+    });
+  }
 
-    while (iterator.hasNext()) {
-      Recipe recipe = iterator.next();
-      if (recipe instanceof ShapedRecipe) {
-        ShapedRecipe shapedRecipe = (ShapedRecipe) recipe;
-        // Keep recipes that are NOT from our plugin
-        if (!shapedRecipe.getKey().getNamespace().equals(getName().toLowerCase())) {
-          newRecipes.add(recipe);
-        } else {
-          getLogger().info("§7- Supprimé: " + shapedRecipe.getKey().toString());
+  private String listLine(CraftDefinition definition) {
+    String status = switch (claimRegistry.status(definition.id())) {
+      case AVAILABLE -> "§aDisponible";
+      case RESERVED -> "§eRéservé";
+      case CLAIMED -> "§cDéjà crafté";
+    };
+    CraftDefinition.Quota quota = definition.quota();
+    String count = quota.counted() && quota.perServer() > 0
+        ? " §7" + quotas.serverCount(definition) + "/" + quota.perServer() : "";
+    return "§e- " + definition.id() + " §7(" + definition.resultMaterial().name().toLowerCase(Locale.ROOT)
+        + ")§e: " + status + count;
+  }
+
+  private static String debugLine(CraftDefinition definition) {
+    CraftPattern pattern = definition.pattern();
+    String layout = pattern.isShapeless()
+        ? "sans forme, " + pattern.shapelessIngredients().size() + " ingrédient(s)"
+        : "forme " + String.join("/", pattern.shape());
+    return "§7- " + definition.id() + " (" + definition.key() + ") §8" + definition.resultMaterial().name()
+        .toLowerCase(Locale.ROOT) + ", " + layout + (pattern.exact() ? ", ingrédients exacts" : "");
+  }
+
+  // Résumé de la table des recettes par namespace (plus d'un millier de recettes vanilla): le parcours
+  // se fait sur la région globale, sans envoi de chat; la mise en forme hors du thread principal
+  private void sendDebugSummary(CommandSender sender) {
+    RecipeIndex index = recipeIndex;
+    scheduler.runGlobal(() -> {
+      Map<String, Integer> namespaces = new HashMap<>();
+      int total = 0;
+      int ourCrafts = 0;
+      Iterator<Recipe> iterator = Bukkit.recipeIterator();
+      while (iterator.hasNext()) {
+        if (iterator.next() instanceof Keyed keyed) {
+          NamespacedKey key = keyed.getKey();
+          namespaces.merge(key.getNamespace(), 1, Integer::sum);
+          total++;
+          if (index.namespace().equals(key.getNamespace()) && key.getKey().startsWith(CraftCompiler.KEY_PREFIX)) {
+            ourCrafts++;
+          }
         }
-      } else {
-        // Keep non-shaped recipes
-        newRecipes.add(recipe);
       }
-    }
+      int recipes = total;
+      int registered = ourCrafts;
+      scheduler.runAsync(() -> {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(namespaces.entrySet());
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+            .thenComparing(Map.Entry.comparingByKey()));
+        List<String> lines = new ArrayList<>();
+        lines.add("§6=== DEBUG UniqueCrafts ===");
+        lines.add("§eTable des recettes: " + recipes + " recettes, " + entries.size() + " namespace(s)");
+        for (Map.Entry<String, Integer> entry : entries) {
+          lines.add("§7- " + entry.getKey() + ": " + entry.getValue());
+        }
+        lines.add("§eNos crafts uniques enregistrés: " + registered + " §7(" + index.size() + " dans la config)");
+        lines.add("§6Fichier crafts.yml existe: " + craftsFile.exists());
+        lines.add("§6Dossier plugin: " + getDataFolder().getAbsolutePath());
+        lines.add("§7Détail: /uniquecraft debug crafts [page] [statut:|matériau:|nom:]");
+        for (String line : lines) {
+          sender.sendMessage(line);
+        }
+      });
+    });
+  }
 
-    // Clear and re-add all recipes
-    Bukkit.clearRecipes();
-    for (Recipe recipe : newRecipes) {
-      Bukkit.addRecipe(recipe);
+  // Active/désactive une catégorie de traces à chaud
+  private void toggleTrace(CommandSender sender, String name) {
+    if (name.equalsIgnoreCase("all") || name.equalsIgnoreCase("off")) {
+      trace.enableAll(name.equalsIgnoreCase("all"));
+    } else {
+      Trace.Category category = Trace.Category.parse(name);
+      if (category == null) {
+        sender.sendMessage("§cCatégorie inconnue: " + name + " §7(prepare, craft, load, persistence, all, off)");
+        return;
+      }
+      trace.toggle(category);
+    }
+    List<String> enabled = new ArrayList<>();
+    for (Trace.Category category : trace.enabledCategories()) {
+      enabled.add(category.id());
     }
-    getLogger().info("§aRecettes supprimées et réinitialisées !");
+    sender.sendMessage("§aTraces actives: §f" + (enabled.isEmpty() ? "aucune" : String.join(", ", enabled)));
   }
 
   @Override
@@ -595,23 +996,51 @@ public class UniqueCraftsPlugin extends JavaPlugin implements Listener {
     if (command.getName().equalsIgnoreCase("uniquecraft")) {
       if (args.length == 1) {
         List<String> completions = new ArrayList<>();
-        for (String option : Arrays.asList("reload", "list", "reset", "debug")) {
+        for (String option : Arrays.asList("reload", "list", "reset", "locate", "history", "stats", "debug",
+            "audit")) {
           if (option.startsWith(args[0].toLowerCase())) {
             completions.add(option);
           }
         }
         return completions;
-      } else if (args.length == 2 && args[0].equalsIgnoreCase("reset")) {
-        ConfigurationSection craftsSection = craftsConfig.getConfigurationSection("crafts");
-        if (craftsSection != null) {
-          List<String> completions = new ArrayList<>();
-          for (String craftId : craftsSection.getKeys(false)) {
-            if (craftId.startsWith(args[1].toLowerCase())) {
-              completions.add(craftId);
-            }
+      } else if (args.length == 2 && (args[0].equalsIgnoreCase("reset") || args[0].equalsIgnoreCase("locate"))) {
+        return recipeIndex.complete(args[1]);
+      } else if (args.length == 2 && args[0].equalsIgnoreCase("history")) {
+        List<String> completions = recipeIndex.complete(args[1]);
+        String prefix = args[1].toLowerCase(Locale.ROOT);
+        for (Player player : Bukkit.getOnlinePlayers()) {
+          if (player.getName().toLowerCase(Locale.ROOT).startsWith(prefix)) {
+            completions.add(player.getName());
           }
-          return completions;
         }
+        return completions;
+      } else if (args.length == 2 && args[0].equalsIgnoreCase("debug")) {
+        List<String> completions = new ArrayList<>();
+        for (String option : Arrays.asList("crafts", "prepare", "craft", "load", "persistence", "all", "off")) {
+          if (option.startsWith(args[1].toLowerCase())) {
+            completions.add(option);
+          }
+        }
+        return completions;
+      } else if (args[0].equalsIgnoreCase("list") && args.length >= 2
+          || args[0].equalsIgnoreCase("debug") && args.length >= 3 && args[1].equalsIgnoreCase("crafts")) {
+        List<String> completions = new ArrayList<>();
+        String last = args[args.length - 1].toLowerCase(Locale.ROOT);
+        for (String option : Arrays.asList("statut:disponible", "statut:réservé", "statut:crafté", "matériau:",
+            "nom:")) {
+          if (option.startsWith(last)) {
+            completions.add(option);
+          }
+        }
+        return completions;
+      } else if (args.length == 2 && args[0].equalsIgnoreCase("audit")) {
+        List<String> completions = new ArrayList<>();
+        for (String option : Arrays.asList("restart", "stop", "status")) {
+          if (option.startsWith(args[1].toLowerCase())) {
+            completions.add(option);
+          }
+        }
+        return completions;
       }
     }
     return new ArrayList<>();
@@ -0,0 +1,221 @@
+package fr.plugin.uniquecraft;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+// Transitions concurrentes de ClaimRegistry: plusieurs threads se disputent les mêmes crafts,
+// départ simultané (CountDownLatch). Un seul gagnant par craft, aucune transition perdue.
+class ClaimRegistryTest {
+
+  private static final int THREADS = 16;
+  private static final int CRAFTS = 200;
+
+  private final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+
+  @AfterEach
+  void tearDown() {
+    pool.shutdownNow();
+  }
+
+  // Réservation expirée immédiatement: tous les joueurs peuvent se voler la réservation jusqu'au commit
+  @RepeatedTest(5)
+  void exactlyOneCommitPerCraft() throws Exception {
+    ClaimRegistry registry = new ClaimRegistry(0L);
+    CountingListener listener = new CountingListener();
+    registry.setListener(listener);
+    Map<String, AtomicInteger> wins = new ConcurrentHashMap<>();
+    Map<String, UUID> winners = new ConcurrentHashMap<>();
+
+    race(player -> {
+      for (String craftId : shuffledIds(player)) {
+        if (registry.reserve(craftId, player) && registry.commit(craftId, player)) {
+          wins.computeIfAbsent(craftId, id -> new AtomicInteger()).incrementAndGet();
+          winners.put(craftId, player);
+        }
+      }
+    });
+
+    assertEquals(CRAFTS, registry.claimedCount());
+    for (String craftId : ids()) {
+      assertEquals(1, wins.get(craftId).get(), craftId);
+      assertEquals(ClaimRegistry.Status.CLAIMED, registry.status(craftId));
+      assertEquals(winners.get(craftId), registry.state(craftId).holder());
+      assertEquals(1, listener.claims(craftId), craftId);
+    }
+  }
+
+  // commit direct (sans réservation) contre reserve -> commit
+  @RepeatedTest(5)
+  void directCommitsRaceReservations() throws Exception {
+    ClaimRegistry registry = new ClaimRegistry(TimeUnit.SECONDS.toNanos(10));
+    Map<String, AtomicInteger> wins = new ConcurrentHashMap<>();
+
+    race(player -> {
+      boolean direct = (player.getLeastSignificantBits() & 1) == 0;
+      for (String craftId : shuffledIds(player)) {
+        boolean won = direct
+            ? registry.commit(craftId, player)
+            : registry.reserve(craftId, player) && registry.commit(craftId, player);
+        if (won) {
+          wins.computeIfAbsent(craftId, id -> new AtomicInteger()).incrementAndGet();
+        }
+      }
+    });
+
+    for (String craftId : ids()) {
+      assertEquals(1, wins.get(craftId).get(), craftId);
+    }
+  }
+
+  // Après chaque tour de commits, reset concurrent: un seul reset réussit par craft, chaque
+  // transition est notifiée une fois et le tour suivant retrouve tous les crafts disponibles
+  @Test
+  void claimResetCyclesLoseNoTransition() throws Exception {
+    ClaimRegistry registry = new ClaimRegistry(0L);
+    CountingListener listener = new CountingListener();
+    registry.setListener(listener);
+    int rounds = 20;
+    Map<String, AtomicInteger> resets = new ConcurrentHashMap<>();
+
+    for (int round = 0; round < rounds; round++) {
+      race(player -> {
+        for (String craftId : shuffledIds(player)) {
+          if (registry.reserve(craftId, player)) {
+            registry.commit(craftId, player);
+          }
+        }
+      });
+      assertEquals(CRAFTS, registry.claimedCount());
+
+      race(player -> {
+        for (String craftId : shuffledIds(player)) {
+          if (registry.reset(craftId)) {
+            resets.computeIfAbsent(craftId, id -> new AtomicInteger()).incrementAndGet();
+          }
+        }
+      });
+      assertEquals(0, registry.claimedCount());
+    }
+
+    for (String craftId : ids()) {
+      assertEquals(rounds, resets.get(craftId).get(), craftId);
+      assertEquals(rounds, listener.claims(craftId), craftId);
+      assertEquals(rounds, listener.releases(craftId), craftId);
+      assertNull(registry.state(craftId));
+    }
+  }
+
+  // Réservations rendues par release ou consume: aucune ne reste bloquée, et un joueur ne libère
+  // jamais la réservation d'un autre
+  @RepeatedTest(5)
+  void releaseAndConsumeLeaveNoReservation() throws Exception {
+    ClaimRegistry registry = new ClaimRegistry(TimeUnit.SECONDS.toNanos(10));
+    AtomicInteger stolen = new AtomicInteger();
+
+    race(player -> {
+      boolean consume = (player.getLeastSignificantBits() & 1) == 0;
+      for (int pass = 0; pass < 10; pass++) {
+        for (String craftId : shuffledIds(player)) {
+          if (!registry.reserve(craftId, player)) {
+            continue;
+          }
+          ClaimRegistry.ClaimState state = registry.state(craftId);
+          if (state == null || !player.equals(state.holder())) {
+            stolen.incrementAndGet();
+          }
+          if (consume) {
+            registry.consume(craftId, player);
+          } else {
+            registry.release(craftId, player);
+          }
+        }
+      }
+    });
+
+    assertEquals(0, stolen.get());
+    for (String craftId : ids()) {
+      assertNull(registry.state(craftId), craftId);
+      assertEquals(ClaimRegistry.Status.AVAILABLE, registry.status(craftId));
+    }
+  }
+
+  private interface PlayerTask {
+    void run(UUID player) throws Exception;
+  }
+
+  // Lance THREADS joueurs en même temps et attend leur fin
+  private void race(PlayerTask task) throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      UUID player = new UUID(0L, i);
+      futures.add(pool.submit(() -> {
+        start.await();
+        task.run(player);
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+  }
+
+  private static List<String> ids() {
+    List<String> ids = new ArrayList<>(CRAFTS);
+    for (int i = 0; i < CRAFTS; i++) {
+      ids.add("craft-" + i);
+    }
+    return ids;
+  }
+
+  // Ordre différent par joueur, pour multiplier les collisions
+  private static List<String> shuffledIds(UUID player) {
+    List<String> ids = ids();
+    Collections.shuffle(ids, new Random(player.getLeastSignificantBits() * 31 + System.nanoTime()));
+    return ids;
+  }
+
+  private static final class CountingListener implements ClaimRegistry.Listener {
+
+    private final Map<String, AtomicInteger> claimed = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> released = new ConcurrentHashMap<>();
+
+    @Override
+    public void claimed(String craftId) {
+      claimed.computeIfAbsent(craftId, id -> new AtomicInteger()).incrementAndGet();
+    }
+
+    @Override
+    public void released(String craftId) {
+      released.computeIfAbsent(craftId, id -> new AtomicInteger()).incrementAndGet();
+    }
+
+    int claims(String craftId) {
+      AtomicInteger count = claimed.get(craftId);
+      return count == null ? 0 : count.get();
+    }
+
+    int releases(String craftId) {
+      AtomicInteger count = released.get(craftId);
+      return count == null ? 0 : count.get();
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package fr.plugin.uniquecraft;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Chargement des compteurs d'un joueur en concurrence avec son départ.
+class CraftQuotasTest {
+
+  private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-00000000a11c");
+
+  @TempDir
+  Path dir;
+
+  private CraftQuotas quotas;
+
+  @BeforeEach
+  void setUp() {
+    Logger logger = Logger.getLogger("CraftQuotasTest");
+    quotas = new CraftQuotas(dir.toFile(), "", logger, new CraftMetrics(), new Trace(logger, 0));
+  }
+
+  @AfterEach
+  void tearDown() {
+    quotas.close();
+  }
+
+  @Test
+  void loadFinishingAfterQuitIsDropped() throws Exception {
+    Future<?> load;
+    // Verrou tenu: la lecture du fichier se termine, la publication attend le départ du joueur
+    synchronized (quotas) {
+      load = quotas.loadPlayerAsync(ALICE);
+      quotas.unloadPlayer(ALICE);
+    }
+    load.get(5, TimeUnit.SECONDS);
+    assertFalse(quotas.loaded(ALICE));
+    assertEquals(0, quotas.loadedPlayers());
+  }
+
+  @Test
+  void reconnectAfterQuitIsLoaded() throws Exception {
+    Future<?> stale;
+    Future<?> current;
+    synchronized (quotas) {
+      stale = quotas.loadPlayerAsync(ALICE);
+      quotas.unloadPlayer(ALICE);
+      current = quotas.loadPlayerAsync(ALICE);
+    }
+    stale.get(5, TimeUnit.SECONDS);
+    current.get(5, TimeUnit.SECONDS);
+    assertTrue(quotas.loaded(ALICE));
+    assertEquals(1, quotas.loadedPlayers());
+
+    quotas.unloadPlayer(ALICE);
+    assertEquals(0, quotas.loadedPlayers());
+  }
+}
@@ -0,0 +1,116 @@
+package fr.plugin.uniquecraft;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Reprise d'un audit interrompu: un fichier modifié depuis son analyse est refait sans que ses
+// anciens résultats soient comptés en plus.
+class ItemAuditTest {
+
+  private static final String MARKER = "uniquecrafts:craft_id";
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void changedFileIsNotCountedTwiceOnResume() throws Exception {
+    Path playerdata = Files.createDirectories(dir.resolve("world").resolve("playerdata"));
+    Path alice = playerdata.resolve("alice.dat");
+    Path bob = playerdata.resolve("bob.dat");
+    // alice.dat, plus gros, est analysé en premier
+    writePlayer(alice, "ultio", 2048);
+    writePlayer(bob, "aegis", 0);
+
+    // Un seul thread; serveur "chargé" après le premier fichier, puis arrêt de l'audit
+    AtomicInteger calls = new AtomicInteger();
+    AtomicBoolean busy = new AtomicBoolean(true);
+    File dataFolder = dir.resolve("plugin").toFile();
+    ItemAudit audit = new ItemAudit(dataFolder, Logger.getLogger("ItemAuditTest"), MARKER, 1, 0,
+        () -> calls.incrementAndGet() > 1 && busy.get());
+    assertTrue(audit.start(List.of(dir.resolve("world")), List.of(), false, report -> {
+    }));
+    Path state = dataFolder.toPath().resolve("audit").resolve("state.txt");
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (calls.get() < 2 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    audit.stop();
+    assertEquals(1, Files.readAllLines(state, StandardCharsets.UTF_8).size());
+
+    // alice.dat modifié (autre taille) entre l'interruption et la reprise
+    writePlayer(alice, "ultio", 4096);
+    busy.set(false);
+    CompletableFuture<ItemAudit.Report> done = new CompletableFuture<>();
+    assertTrue(audit.start(List.of(dir.resolve("world")), List.of(), true, done::complete));
+    ItemAudit.Report report = done.get(10, TimeUnit.SECONDS);
+
+    assertEquals(Map.of("aegis", 1, "ultio", 1), report.totals());
+    assertTrue(report.duplicates().isEmpty());
+  }
+
+  // playerdata minimal: un objet marqué (composants 1.20.5+) dans l'inventaire, padding pour la taille
+  private static void writePlayer(Path file, String craftId, int padding) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(file)))) {
+      out.writeByte(10);
+      out.writeUTF("");
+      out.writeByte(8);
+      out.writeUTF("padding");
+      out.writeUTF(noise(padding));
+      out.writeByte(9);
+      out.writeUTF("Inventory");
+      out.writeByte(10);
+      out.writeInt(1);
+      out.writeByte(8);
+      out.writeUTF("id");
+      out.writeUTF("minecraft:diamond_sword");
+      out.writeByte(3);
+      out.writeUTF("count");
+      out.writeInt(1);
+      out.writeByte(10);
+      out.writeUTF("components");
+      out.writeByte(10);
+      out.writeUTF("minecraft:custom_data");
+      out.writeByte(10);
+      out.writeUTF("PublicBukkitValues");
+      out.writeByte(8);
+      out.writeUTF(MARKER);
+      out.writeUTF(craftId);
+      out.writeByte(0);
+      out.writeByte(0);
+      out.writeByte(0);
+      out.writeByte(0);
+      out.writeByte(0);
+    }
+    // Date distincte à chaque réécriture, même dans la même milliseconde
+    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + padding));
+  }
+
+  // Texte peu compressible: la taille du fichier suit padding
+  private static String noise(int length) {
+    Random random = new Random(length);
+    StringBuilder text = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      text.append((char) ('a' + random.nextInt(26)));
+    }
+    return text.toString();
+  }
+}
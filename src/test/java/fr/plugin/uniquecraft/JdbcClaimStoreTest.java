@@ -0,0 +1,227 @@
+package fr.plugin.uniquecraft;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// JdbcClaimStore sur H2 en mode MySQL: écritures par lots, nouvel essai après échec, relecture.
+class JdbcClaimStoreTest {
+
+  private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-00000000a11c");
+  private static final UUID BOB = UUID.fromString("00000000-0000-0000-0000-000000000b0b");
+
+  private final Logger logger = Logger.getLogger("JdbcClaimStoreTest");
+  private final Trace trace = new Trace(logger, 0);
+  private GatedDataSource dataSource;
+  private JdbcClaimStore store;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    JdbcDataSource h2 = new JdbcDataSource();
+    h2.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+    dataSource = new GatedDataSource(h2);
+    store = open();
+  }
+
+  @AfterEach
+  void tearDown() {
+    dataSource.failing.set(false);
+    dataSource.gate.countDown();
+    store.close();
+  }
+
+  @Test
+  void claimAndResetAreVisibleAfterReload() throws Exception {
+    store.claim("ultio", ALICE);
+    store.claim("aegis", BOB);
+    store.reset("aegis");
+    store.close();
+
+    Map<String, ClaimRecord> claims = reload();
+    assertEquals(1, claims.size());
+    assertEquals(ALICE, claims.get("ultio").player());
+    assertFalse(claims.containsKey("aegis"));
+  }
+
+  @Test
+  void pendingOperationsAreCoalescedIntoOneBatch() throws Exception {
+    dataSource.gate = new CountDownLatch(1);
+    dataSource.waiting = new CountDownLatch(1);
+    dataSource.connections.set(0);
+    // Le premier lot attend sa connexion: les opérations suivantes s'accumulent dans la file
+    store.claim("first", ALICE);
+    assertTrue(dataSource.waiting.await(5, TimeUnit.SECONDS));
+    for (int i = 0; i < 100; i++) {
+      store.claim("craft-" + (i % 10), i % 2 == 0 ? ALICE : BOB);
+    }
+    store.reset("craft-9");
+    dataSource.gate.countDown();
+    store.close();
+
+    // Un lot pour "first", un seul pour les 101 opérations suivantes
+    assertEquals(2, dataSource.connections.get());
+    Map<String, ClaimRecord> claims = reload();
+    assertEquals(10, claims.size());
+    // Dernière opération par craft: craft-8 réclamé en dernier par ALICE (i = 98), craft-9 remis
+    assertEquals(ALICE, claims.get("craft-8").player());
+    assertEquals(BOB, claims.get("craft-7").player());
+    assertFalse(claims.containsKey("craft-9"));
+  }
+
+  @Test
+  void failedBatchIsRetriedWithoutAnotherWrite() throws Exception {
+    dataSource.failing.set(true);
+    store.claim("ultio", ALICE);
+    assertTrue(dataSource.refused.await(5, TimeUnit.SECONDS));
+    dataSource.failing.set(false);
+
+    // Aucune autre écriture: le nouvel essai différé suffit
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(JdbcClaimStore.RETRY_MIN_MILLIS * 5);
+    Map<String, ClaimRecord> claims = Map.of();
+    while (System.nanoTime() < deadline && claims.isEmpty()) {
+      Thread.sleep(50);
+      claims = reload();
+    }
+    assertEquals(ALICE, claims.get("ultio").player());
+  }
+
+  @Test
+  void failedBatchIsWrittenBeforeNewerOperations() throws Exception {
+    dataSource.failing.set(true);
+    store.claim("ultio", ALICE);
+    assertTrue(dataSource.refused.await(5, TimeUnit.SECONDS));
+    dataSource.failing.set(false);
+    store.reset("ultio");
+    store.claim("aegis", BOB);
+    store.close();
+
+    Map<String, ClaimRecord> claims = reload();
+    assertFalse(claims.containsKey("ultio"));
+    assertEquals(BOB, claims.get("aegis").player());
+  }
+
+  // Identifiant trop long pour la colonne (MySQL strict): l'opération est abandonnée, le reste du lot
+  // et les écritures suivantes sont enregistrés
+  @Test
+  void rejectedOperationDoesNotBlockTheQueue() throws Exception {
+    dataSource.gate = new CountDownLatch(1);
+    dataSource.waiting = new CountDownLatch(1);
+    store.claim("first", ALICE);
+    assertTrue(dataSource.waiting.await(5, TimeUnit.SECONDS));
+    store.claim("x".repeat(100), ALICE);
+    store.claim("ultio", BOB);
+    dataSource.gate.countDown();
+    Thread.sleep(100);
+    store.claim("aegis", ALICE);
+    store.close();
+
+    Map<String, ClaimRecord> claims = reload();
+    assertEquals(Set.of("first", "ultio", "aegis"), claims.keySet());
+  }
+
+  private JdbcClaimStore open() throws Exception {
+    JdbcClaimStore opened = new JdbcClaimStore(dataSource, logger, new CraftMetrics(), trace);
+    opened.load();
+    return opened;
+  }
+
+  // Relecture par une nouvelle instance, comme au redémarrage du serveur
+  private Map<String, ClaimRecord> reload() throws Exception {
+    JdbcClaimStore reloaded = new JdbcClaimStore(dataSource, logger, new CraftMetrics(), trace);
+    try {
+      return reloaded.load();
+    } finally {
+      reloaded.close();
+    }
+  }
+
+  // DataSource de test: connexions comptées, refusées sur demande, ou retenues jusqu'à gate
+  private static final class GatedDataSource implements DataSource {
+
+    private final DataSource delegate;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicBoolean failing = new AtomicBoolean(false);
+    private final CountDownLatch refused = new CountDownLatch(1);
+    private volatile CountDownLatch waiting = new CountDownLatch(1);
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+
+    private GatedDataSource(DataSource delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+      if (failing.get()) {
+        refused.countDown();
+        throw new SQLException("Base indisponible (test)");
+      }
+      connections.incrementAndGet();
+      waiting.countDown();
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SQLException(e);
+      }
+      return delegate.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+      return getConnection();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+      return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+      delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+      delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+      return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+      return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+      return delegate.unwrap(type);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) throws SQLException {
+      return delegate.isWrapperFor(type);
+    }
+  }
+}
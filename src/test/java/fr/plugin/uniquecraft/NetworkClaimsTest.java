@@ -0,0 +1,197 @@
+package fr.plugin.uniquecraft;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// Flux d'événements réseau avec des séquences visibles dans le désordre (commit MySQL tardif)
+// et des événements perdus, réparés par la resynchronisation.
+class NetworkClaimsTest {
+
+  private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-00000000a11c");
+  private static final long LEASE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+  private final Logger logger = Logger.getLogger("NetworkClaimsTest");
+  private InMemoryClaimCoordinator.Network network;
+  private ClaimCoordinator remote;
+  private HidingCoordinator local;
+  private ClaimRegistry registry;
+  // Crafts remis à zéro dans le stockage local
+  private final Set<String> resets = ConcurrentHashMap.newKeySet();
+  private NetworkClaims claims;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    network = new InMemoryClaimCoordinator.Network();
+    remote = network.node("remote");
+    local = new HidingCoordinator(network.node("local"));
+    registry = new ClaimRegistry(TimeUnit.SECONDS.toNanos(10));
+    claims = open();
+    claims.load();
+  }
+
+  private NetworkClaims open() {
+    return new NetworkClaims(local, registry, resets::add, LEASE_MILLIS, logger, new Trace(logger, 0),
+        new CraftMetrics());
+  }
+
+  @AfterEach
+  void tearDown() {
+    claims.close();
+  }
+
+  @Test
+  void eventCommittedLateIsNotSkipped() throws IOException {
+    ClaimCoordinator.Lease first = remote.acquire("ultio", ALICE, LEASE_MILLIS);
+    ClaimCoordinator.Lease second = remote.acquire("aegis", ALICE, LEASE_MILLIS);
+    assertNotNull(first);
+    assertNotNull(second);
+    long lateSequence = remote.headSequence() + 1;
+    remote.commit(first);
+    remote.commit(second);
+    // Le CLAIMED de "ultio" n'est pas encore visible alors que celui de "aegis", plus récent, l'est
+    local.hidden.add(lateSequence);
+    claims.poll();
+    assertTrue(registry.isClaimed("aegis"));
+    assertFalse(registry.isClaimed("ultio"));
+
+    local.hidden.clear();
+    claims.poll();
+    assertTrue(registry.isClaimed("ultio"));
+  }
+
+  @Test
+  void resyncClearsMissedReset() throws IOException {
+    ClaimCoordinator.Lease lease = remote.acquire("ultio", ALICE, LEASE_MILLIS);
+    remote.commit(lease);
+    claims.poll();
+    assertTrue(registry.isClaimed("ultio"));
+
+    // Événement RESET perdu (purgé, ou trou abandonné)
+    local.hidden.add(remote.headSequence() + 1);
+    remote.reset("ultio");
+    claims.poll();
+    assertTrue(registry.isClaimed("ultio"));
+
+    for (int i = 0; i < 60; i++) {
+      claims.poll();
+    }
+    assertFalse(registry.isClaimed("ultio"));
+    assertTrue(resets.contains("ultio"));
+  }
+
+  @Test
+  void resetEventResetsLocalStore() throws IOException {
+    ClaimCoordinator.Lease lease = remote.acquire("ultio", ALICE, LEASE_MILLIS);
+    remote.commit(lease);
+    claims.poll();
+    remote.reset("ultio");
+    claims.poll();
+    assertFalse(registry.isClaimed("ultio"));
+    assertTrue(resets.contains("ultio"));
+  }
+
+  // Reset fait ailleurs pendant l'arrêt de ce serveur: le stockage local le croit encore réalisé
+  @Test
+  void loadReleasesClaimsResetWhileStopped() throws IOException {
+    ClaimCoordinator.Lease lease = remote.acquire("ultio", ALICE, LEASE_MILLIS);
+    remote.commit(lease);
+    remote.reset("ultio");
+    claims.close();
+
+    registry = new ClaimRegistry(TimeUnit.SECONDS.toNanos(10));
+    registry.markClaimed("ultio", ALICE);
+    registry.markClaimed("legacy", ALICE);
+    claims = open();
+    claims.load();
+    assertFalse(registry.isClaimed("ultio"));
+    assertTrue(registry.isClaimed("legacy"));
+    assertEquals(Set.of("ultio"), resets);
+  }
+
+  @Test
+  void resyncKeepsLocalOnlyClaims() throws IOException {
+    // Craft marqué réalisé localement, inconnu de la table partagée (quota local, ancien stockage)
+    registry.markClaimed("legacy", ALICE);
+    for (int i = 0; i < 60; i++) {
+      claims.poll();
+    }
+    assertTrue(registry.isClaimed("legacy"));
+  }
+
+  // Coordinateur dont certaines séquences ne sont pas (encore) visibles
+  private static final class HidingCoordinator implements ClaimCoordinator {
+
+    private final ClaimCoordinator delegate;
+    private final Set<Long> hidden = ConcurrentHashMap.newKeySet();
+
+    private HidingCoordinator(ClaimCoordinator delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public String serverId() {
+      return delegate.serverId();
+    }
+
+    @Override
+    public Map<String, ClaimRecord> load() throws IOException {
+      return delegate.load();
+    }
+
+    @Override
+    public Set<String> released() throws IOException {
+      return delegate.released();
+    }
+
+    @Override
+    public Lease acquire(String craftId, UUID player, long leaseMillis) throws IOException {
+      return delegate.acquire(craftId, player, leaseMillis);
+    }
+
+    @Override
+    public boolean commit(Lease lease) throws IOException {
+      return delegate.commit(lease);
+    }
+
+    @Override
+    public void reset(String craftId) throws IOException {
+      delegate.reset(craftId);
+    }
+
+    @Override
+    public List<Event> poll(long afterSequence, int limit) throws IOException {
+      List<Event> visible = new ArrayList<>();
+      for (Event event : delegate.poll(afterSequence, limit)) {
+        if (!hidden.contains(event.sequence())) {
+          visible.add(event);
+        }
+      }
+      return visible;
+    }
+
+    @Override
+    public long headSequence() throws IOException {
+      return delegate.headSequence();
+    }
+
+    @Override
+    public void close() {
+      delegate.close();
+    }
+  }
+}